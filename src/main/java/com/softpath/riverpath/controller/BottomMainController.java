@@ -1,15 +1,20 @@
 package com.softpath.riverpath.controller;
 
 import com.softpath.riverpath.custom.event.EventManager;
+import com.softpath.riverpath.model.SolverMetrics;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
+import javafx.scene.control.Tooltip;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.net.URL;
+import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 import static com.softpath.riverpath.custom.event.EventEnum.*;
@@ -24,6 +29,10 @@ public class BottomMainController implements Initializable {
     @FXML
     private ProgressBar progressBar;
     @FXML
+    private Label speedLabel;
+    @FXML
+    private Label residualLabel;
+    @FXML
     private MainController mainController;
 
     private double totalIncrement;
@@ -32,21 +41,76 @@ public class BottomMainController implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
         // subscribe event listener
         EventManager.addEventHandler(PROGRESS_BAR_UPDATE, event -> {
+            SolverMetrics.Snapshot metrics = (SolverMetrics.Snapshot) event.getObject();
             // update progress bar
             if (!progressBar.isVisible()) {
-                progressBar.setVisible(true);
-                percentageLabel.setVisible(true);
+                setProgressVisible(true);
             }
-            double v = ((Integer) event.getObject()) / totalIncrement;
+            double v = Math.max(0, metrics.increment()) / totalIncrement;
             percentageLabel.setText(Math.round(v * 100) + "%");
             progressBar.setProgress(v);
+            speedLabel.setText(formatSpeed(metrics));
+            residualLabel.setText(formatResiduals(metrics));
+            residualLabel.setTooltip(metrics.lastWarning() == null ? null : new Tooltip(metrics.lastWarning()));
         });
         EventManager.addEventHandler(NEW_TOTAL_INCREMENT_VALUE, event -> {
             this.totalIncrement = (Double) event.getObject();
         });
-        EventManager.addEventHandler(CIMLIB_PROCESS_END, event -> {
-            progressBar.setVisible(false);
-            percentageLabel.setVisible(false);
-        });
+        EventManager.addEventHandler(CIMLIB_PROCESS_END, event -> setProgressVisible(false));
+    }
+
+    private void setProgressVisible(boolean visible) {
+        for (Node node : List.of(progressBar, percentageLabel, speedLabel, residualLabel)) {
+            node.setVisible(visible);
+        }
+    }
+
+    /**
+     * @return the increment, the speed and the remaining time, e.g. "increment 120/400, 2.5 inc/s, 1 min 52 s left"
+     */
+    private String formatSpeed(SolverMetrics.Snapshot metrics) {
+        StringBuilder text = new StringBuilder();
+        text.append("increment ").append(Math.max(0, metrics.increment())).append('/').append(Math.round(totalIncrement));
+        if (!Double.isNaN(metrics.time())) {
+            text.append(String.format(Locale.ROOT, ", t = %.4g s", metrics.time()));
+        }
+        if (!Double.isNaN(metrics.incrementsPerSecond())) {
+            text.append(String.format(Locale.ROOT, ", %.3g inc/s", metrics.incrementsPerSecond()));
+        }
+        double remaining = metrics.remainingSeconds(totalIncrement);
+        if (!Double.isNaN(remaining)) {
+            text.append(", ").append(formatDuration(Math.round(remaining))).append(" left");
+        }
+        return text.toString();
+    }
+
+    private static String formatDuration(long seconds) {
+        if (seconds >= 3600) {
+            return seconds / 3600 + " h " + seconds % 3600 / 60 + " min";
+        }
+        if (seconds >= 60) {
+            return seconds / 60 + " min " + seconds % 60 + " s";
+        }
+        return seconds + " s";
+    }
+
+    /**
+     * @return the last value of each residual and its trend since the previous value, and the number of warnings
+     */
+    private static String formatResiduals(SolverMetrics.Snapshot metrics) {
+        StringBuilder text = new StringBuilder();
+        for (SolverMetrics.ResidualValue residual : metrics.residuals()) {
+            double last = residual.last();
+            double previous = residual.previous();
+            text.append(text.isEmpty() ? "" : "  ").append(residual.name())
+                    .append(String.format(Locale.ROOT, " %.3e", last));
+            if (!Double.isNaN(previous)) {
+                text.append(last < previous ? " ↓" : last > previous ? " ↑" : " =");
+            }
+        }
+        if (metrics.warnings() > 0) {
+            text.append(text.isEmpty() ? "" : "  ").append(metrics.warnings()).append(" warning(s)");
+        }
+        return text.toString();
     }
 }
@@ -177,6 +177,26 @@ public class BoundaryDefinitionController extends ValidAndCancelController imple
         baseBoundaryController.importValues(boundary);
     }
 
+    /**
+     * Use a point picked in the view as origin, only if this boundary is expanded and is a half plane
+     *
+     * @param point the coordinates of the point in the mesh
+     */
+    public void applyPickedOrigin(double[] point) {
+        if (!titledPane.isExpanded() || !ShapeType.Half_Plane.equals(comboBox.getValue())) {
+            return;
+        }
+        originX.setText(String.valueOf(point[0]));
+        originY.setText(String.valueOf(point[1]));
+        UtilityClass.checkNotBlank(originX);
+        UtilityClass.checkNotBlank(originY);
+        if (DomainProperties.getInstance().is3D()) {
+            originZ.setText(String.valueOf(point[2]));
+            UtilityClass.checkNotBlank(originZ);
+        }
+        updateRootModifiedState();
+    }
+
     @FXML
     private void handleKeyReleased(KeyEvent keyEvent) {
         UtilityClass.checkNotBlank((TextField) keyEvent.getSource());
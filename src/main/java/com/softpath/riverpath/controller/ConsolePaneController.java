@@ -2,12 +2,19 @@ package com.softpath.riverpath.controller;
 
 import com.softpath.riverpath.custom.event.CustomEvent;
 import com.softpath.riverpath.custom.event.EventEnum;
+import com.softpath.riverpath.custom.pane.SolverLogView;
+import com.softpath.riverpath.model.SolverMetrics;
+import com.softpath.riverpath.service.ProcessSupervisor;
+import com.softpath.riverpath.util.SolverLog;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import lombok.Getter;
@@ -17,8 +24,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.InlineCssTextArea;
 
+import java.io.File;
 import java.net.URL;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -39,16 +49,38 @@ public class ConsolePaneController implements Initializable {
 
     private static final String CARRIAGE_RETURN = System.lineSeparator();
     private static final String FX_BACKGROUND_COLOR_BLACK = "-fx-background-color: #1E2329;";
-    private static final int MESSAGE_BUFFER_SIZE = 50;
-    public static final String INCREMENT_DE_COMPTEUR_TEMPS = "Increment de CompteurTemps :";
+    // default maximum number of lines of the console, the oldest lines are removed
+    public static final int DEFAULT_MAX_LINES = 20_000;
+    // time of a line of the solver log
+    private static final DateTimeFormatter LOG_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
 
     @FXML
     private VirtualizedScrollPane<InlineCssTextArea> scrollConsole;
     @FXML
     private InlineCssTextArea consoleOutput;
+    @FXML
+    private TabPane consolePane;
+    @FXML
+    private Tab solverLogTab;
+    @FXML
+    private SolverLogView solverLogView;
 
-    // message buffer used when Cimlib is called to avoir UI frequent refresh
-    private List<String> messageBuffer = new ArrayList<>();
+    // output of the current (or last) run, written by the thread reading the solver output
+    private volatile SolverLog solverLog;
+    // progress of the current run read from the solver output, and the progress shown in the progress bar
+    private volatile SolverMetrics solverMetrics = new SolverMetrics();
+    private SolverMetrics shownMetrics;
+    private long shownMetricsVersion;
+    // shows the new lines of the solver once per frame
+    private final AnimationTimer solverOutputRefresher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            refreshSolverOutput();
+        }
+    };
+    // maximum number of lines kept in the console
+    private int maxLines = DEFAULT_MAX_LINES;
     private AtomicBoolean autoScrollEnabled = new AtomicBoolean(true);
     private ContextMenu contextMenu;
 
@@ -64,32 +96,59 @@ public class ConsolePaneController implements Initializable {
     }
 
     /**
-     * Buffer a message to display in the console output<br>
-     * Display it if the buffer is full
+     * Write the output of a new run to a log file, and show it in the solver log tab
      *
-     * @param message the message to buffer and display
+     * @param logFile the log file of the run
      */
-    public void displayMessageIfNeeded(String message) {
+    public void openSolverLog(File logFile) {
+        SolverLog log = SolverLog.create(logFile);
+        SolverLog previous = solverLog;
+        solverLog = log;
+        solverMetrics = new SolverMetrics();
         Platform.runLater(() -> {
-            Integer increment = extractIncrementDeCompteurTemps(message);
-            if (increment != null) {
-                CustomEvent event = new CustomEvent(EventEnum.PROGRESS_BAR_UPDATE, increment);
-                fireCustomEvent(event);
-            }
-            messageBuffer.add(message);
-            if (messageBuffer.size() > MESSAGE_BUFFER_SIZE) {
-                formatAndDisplay();
-                // clear buffer
-                messageBuffer.clear();
+            solverLogView.setLog(log);
+            consolePane.getSelectionModel().select(solverLogTab);
+            if (previous != null) {
+                previous.close();
             }
         });
+        displayMessage("Solver output written to " + logFile.getAbsolutePath());
+    }
+
+    /**
+     * Append lines of the solver output to the log of the run and to the progress of the run, the new lines and
+     * the progress are displayed at the next frame. Each line of the log starts with the time it was read, the
+     * lines of the error stream are marked.<br>
+     * Called by the supervisor of the solver process, one batch at a time.
+     *
+     * @param lines the lines of the solver output
+     */
+    public void displaySolverLines(List<ProcessSupervisor.Line> lines) {
+        SolverMetrics metrics = solverMetrics;
+        SolverLog log = solverLog;
+        for (ProcessSupervisor.Line line : lines) {
+            metrics.accept(line.text(), line.timestamp());
+            if (log != null) {
+                log.append(formatSolverLine(line));
+            }
+        }
+    }
+
+    private static String formatSolverLine(ProcessSupervisor.Line line) {
+        String time = LOG_TIME_FORMAT.format(Instant.ofEpochMilli(line.timestamp()));
+        return line.stream() == ProcessSupervisor.Stream.ERROR
+                ? time + " ERROR " + line.text()
+                : time + " " + line.text();
     }
 
     /**
-     * Flush the buffer to display the messages in the console output
+     * Write the remaining lines of the solver output at the end of a run
      */
     public void flush() {
-        Platform.runLater(this::formatAndDisplay);
+        SolverLog log = solverLog;
+        if (log != null) {
+            log.finish();
+        }
     }
 
     @Override
@@ -98,14 +157,16 @@ public class ConsolePaneController implements Initializable {
         handleContextMenu();
         // handle auto scroll
         handleAutoScroll();
+        // display the solver output once per frame
+        solverOutputRefresher.start();
     }
 
     /**
      * Handles the auto scroll feature
      */
     private void handleAutoScroll() {
-        // autoscroll to bottom when text is added
-        consoleOutput.textProperty().addListener((obs, oldText, newText) -> autoScrollToBottom());
+        // autoscroll to bottom when text is added (the length is not rebuilt from the whole text as the text is)
+        consoleOutput.lengthProperty().addListener((obs, oldLength, newLength) -> autoScrollToBottom());
 
         // do not autoscroll when the mouse is over the console output
         consoleOutput.setOnMouseEntered(e -> autoScrollEnabled.set(false));
@@ -161,10 +222,19 @@ public class ConsolePaneController implements Initializable {
     }
 
     /**
-     * Format and display the messages in the console output<br>
+     * Show the new lines of the solver log, and the progress of the run if it has changed
      */
-    private void formatAndDisplay() {
-        appendText(String.join(CARRIAGE_RETURN, messageBuffer));
+    private void refreshSolverOutput() {
+        SolverMetrics metrics = solverMetrics;
+        long version = metrics.getVersion();
+        if (metrics != shownMetrics || version != shownMetricsVersion) {
+            shownMetrics = metrics;
+            shownMetricsVersion = version;
+            if (version > 0) {
+                fireCustomEvent(new CustomEvent(EventEnum.PROGRESS_BAR_UPDATE, metrics.snapshot()));
+            }
+        }
+        solverLogView.refresh();
     }
 
     private void autoScrollToBottom() {
@@ -182,25 +252,25 @@ public class ConsolePaneController implements Initializable {
         int caretPosition = consoleOutput.getCaretPosition();
         int anchorPosition = consoleOutput.getAnchor();
         consoleOutput.appendText(text);
+        // remove the oldest lines beyond the maximum
+        int removedLength = removeOldestLines();
         // Restore caret/selection or autoscroll
         if (caretPosition != anchorPosition) {
-            consoleOutput.selectRange(anchorPosition, caretPosition);
+            consoleOutput.selectRange(Math.max(0, anchorPosition - removedLength),
+                    Math.max(0, caretPosition - removedLength));
         }
     }
 
     /**
-     * Extract the digit from message if it contains INCREMENT_DE_COMPTEUR_TEMPS
-     *
-     * @param message the message to extract the increment from
-     *                e.g. "Increment de CompteurTemps : 5"
-     * @return the increment extracted from the message
+     * @return the number of characters removed
      */
-    private Integer extractIncrementDeCompteurTemps(String message) {
-        Integer increment = null;
-        if (message.contains(INCREMENT_DE_COMPTEUR_TEMPS)) {
-            String[] split = message.split(":");
-            increment = Integer.valueOf(split[1].trim());
+    private int removeOldestLines() {
+        int excessLines = consoleOutput.getParagraphs().size() - maxLines;
+        if (excessLines <= 0) {
+            return 0;
         }
-        return increment;
+        int removedLength = consoleOutput.getAbsolutePosition(excessLines, 0);
+        consoleOutput.deleteText(0, removedLength);
+        return removedLength;
     }
-}
\ No newline at end of file
+}
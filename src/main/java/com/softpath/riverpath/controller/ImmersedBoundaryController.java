@@ -36,7 +36,7 @@ public class ImmersedBoundaryController extends BaseBoundaryController {
     private Hyperlink importObject;
 
     /**
-     * Import immersed object from .msh file, convert it to .t file and throw an event to display it in mesh view
+     * Import immersed object from .msh or .stl file, convert it to .t file and throw an event to display it in mesh view
      *
      * @param keyEvent the event
      */
@@ -45,12 +45,18 @@ public class ImmersedBoundaryController extends BaseBoundaryController {
         // Create a FileChooser
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Select a File to Import");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Mesh files", "*.msh", "*.stl", "*.STL"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
         // Show the file dialog
         Stage stage = new Stage();
-        // select mesh file .msh
+        // select mesh file .msh or .stl
         File selectedFile = fileChooser.showOpenDialog(stage);
-        // convert msh file to .t file using python program gmsh4mtc.py
-        String selectedFileConvertedT = UtilityClass.convertMshPython(selectedFile);
+        if (selectedFile == null) {
+            return;
+        }
+        // convert msh file to .t file
+        String selectedFileConvertedT = UtilityClass.convertMesh(selectedFile);
         // store it only if the file is imported and converted successfully
         importObject.setText(selectedFileConvertedT);
         setDirty(true);
@@ -58,10 +58,9 @@ public class MenuBarController {
         if (mainController != null) {
             ProjectSetupController projectSetupController = mainController.getProjectSetupController();
             if (projectSetupController != null && projectSetupController.getCurrentProcess() != null
-                    && projectSetupController.getCurrentProcess().isAlive()) {
+                    && projectSetupController.getCurrentProcess().getProcess().isAlive()) {
 
-                // Stop the simulation
-                projectSetupController.getCurrentProcess().descendants().forEach(ProcessHandle::destroy);
+                // Stop the simulation and its child processes
                 projectSetupController.getCurrentProcess().destroy();
                 mainController.displayMessageConsoleOutput("Simulation stopped due to window closing");
             }
@@ -3,19 +3,26 @@ package com.softpath.riverpath.controller;
 import com.softpath.riverpath.custom.pane.ZoomableScrollPane;
 import javafx.fxml.FXML;
 import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.SubScene;
 import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.paint.Color;
+import javafx.scene.transform.NonInvertibleTransformException;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Scale;
+import javafx.scene.transform.Transform;
 import javafx.scene.transform.Translate;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.function.Consumer;
 
 /**
  * Controller for managing 3D mesh display with camera controls.
@@ -39,6 +46,8 @@ public class MeshDisplayController {
     private static final double MOUSE_SPEED = 0.1;
     private static final double ROTATION_SPEED = 2.0;
     private static final double ZOOM_SPEED = 0.1;
+    // a click moving less than this distance (pixels) since the press is a pick, not a drag
+    private static final double PICK_MAX_MOVE = 3.0;
 
     /**
      * Initial distance factor applied to camera positioning.
@@ -51,11 +60,20 @@ public class MeshDisplayController {
     private Node target;
     private Group sceneRoot;
     private PerspectiveCamera camera;
+    @Getter
     private SubScene subScene;
 
     // Mouse tracking for drag operations
     private double mouseOldX;
     private double mouseOldY;
+    private double mousePressedX;
+    private double mousePressedY;
+
+    /**
+     * Called with the ray under the mouse (in the target coordinates) on a single left click
+     */
+    @Setter
+    private Consumer<PickRay> onPick;
 
     // Camera state tracking
     private double initialCameraDistance;
@@ -272,6 +290,8 @@ public class MeshDisplayController {
         subScene.setOnMousePressed(me -> {
             mouseOldX = me.getSceneX();
             mouseOldY = me.getSceneY();
+            mousePressedX = me.getSceneX();
+            mousePressedY = me.getSceneY();
         });
 
         // Handle drag operations (pan or rotate based on mouse button/modifiers)
@@ -306,10 +326,16 @@ public class MeshDisplayController {
             zoom(zoomFactor);
         });
 
-        // Handle double-click for view reset
+        // Handle double-click for view reset, single click without drag for picking
         subScene.setOnMouseClicked(e -> {
             if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() >= 2) {
                 resetView();
+            } else if (e.getButton() == MouseButton.PRIMARY && !e.isShiftDown() && onPick != null
+                    && Math.hypot(e.getSceneX() - mousePressedX, e.getSceneY() - mousePressedY) < PICK_MAX_MOVE) {
+                PickRay ray = computePickRay(e);
+                if (ray != null) {
+                    onPick.accept(ray);
+                }
             }
         });
     }
@@ -334,6 +360,30 @@ public class MeshDisplayController {
         sceneScale.setZ(currentZoom);
     }
 
+    /**
+     * Compute the ray from the camera through the mouse position, in the coordinates of the target
+     *
+     * @param event the mouse event on the sub scene
+     * @return the ray, null if the view is not ready
+     */
+    private PickRay computePickRay(MouseEvent event) {
+        if (target == null || subScene.getWidth() <= 0 || subScene.getHeight() <= 0) {
+            return null;
+        }
+        // ray in the camera coordinates: the eye at the origin, the screen at the focal distance
+        double focal = (subScene.getHeight() / 2) / Math.tan(Math.toRadians(camera.getFieldOfView()) / 2);
+        Point3D direction = new Point3D(event.getX() - subScene.getWidth() / 2,
+                event.getY() - subScene.getHeight() / 2, focal);
+        try {
+            Transform cameraToTarget = target.getLocalToSceneTransform().createInverse()
+                    .createConcatenation(camera.getLocalToSceneTransform());
+            return new PickRay(cameraToTarget.transform(Point3D.ZERO),
+                    cameraToTarget.deltaTransform(direction).normalize(), 1 / focal);
+        } catch (NonInvertibleTransformException e) {
+            return null;
+        }
+    }
+
     private void resetView() {
         currentZoom = 1.1;
         sceneScale.setX(1);
@@ -353,4 +403,14 @@ public class MeshDisplayController {
         scrollablePane.setHvalue(0.5);
         scrollablePane.setVvalue(0.5);
     }
-}
\ No newline at end of file
+
+    /**
+     * A ray from the camera, in the coordinates of the target
+     *
+     * @param origin     the position of the camera
+     * @param direction  the unit direction of the ray
+     * @param pixelAngle the angle of a pixel (radians), a pixel at a distance d from the camera has a size d * pixelAngle
+     */
+    public record PickRay(Point3D origin, Point3D direction, double pixelAngle) {
+    }
+}
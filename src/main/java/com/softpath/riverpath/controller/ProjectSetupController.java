@@ -3,6 +3,13 @@ package com.softpath.riverpath.controller;
 import com.softpath.riverpath.custom.event.CustomEvent;
 import com.softpath.riverpath.custom.event.EventManager;
 import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import com.softpath.riverpath.fileparser.MeshFileWriter;
+import com.softpath.riverpath.fileparser.MeshPartition;
+import com.softpath.riverpath.fileparser.MeshQuality;
+import com.softpath.riverpath.fileparser.NodeReordering;
+import com.softpath.riverpath.fileparser.ResultCatalog;
+import com.softpath.riverpath.fileparser.VtuResult;
+import com.softpath.riverpath.service.ProcessSupervisor;
 import com.softpath.riverpath.service.RunnerService;
 import com.softpath.riverpath.util.UtilityClass;
 import javafx.application.Platform;
@@ -11,29 +18,27 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.control.SplitPane;
+import javafx.scene.shape.MeshView;
 import javafx.stage.FileChooser;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URL;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import static com.softpath.riverpath.custom.event.EventEnum.*;
 import static com.softpath.riverpath.fileparser.MeshFileParser.parseFile2TriangleMesh;
-import static com.softpath.riverpath.util.UtilityClass.convertMshPython;
+import static com.softpath.riverpath.util.UtilityClass.convertMesh;
 import static com.softpath.riverpath.util.UtilityClass.workspaceDirectory;
 
 @NoArgsConstructor
@@ -45,6 +50,10 @@ public class ProjectSetupController implements Initializable {
     private static final String FX_BASE_LIGHTGREEN = "-fx-base: #c1ee90";
 
     private static final String FX_BASE_LIGHTRED = "-fx-base: #ee9090";
+
+    private static final String RESULT_PREFIX = "bulles_";
+    // log file of the solver output of a run in the workspace, followed by the start date
+    private static final String SOLVER_LOG_PREFIX = "cimlib_";
     @FXML
     private Button conditionButton;
     @FXML
@@ -73,11 +82,14 @@ public class ProjectSetupController implements Initializable {
 
     private RunnerService runnerService;
 
+    // the results of the last run
+    private ResultCatalog resultCatalog;
+
     private String domainExtentionT;
     @FXML
     private Button stopButton;
 
-    private Process currentProcess; // To store the current process
+    private ProcessSupervisor currentProcess; // To store the current process
 
     @FXML
     private Button meshingParametersButton;
@@ -99,8 +111,8 @@ public class ProjectSetupController implements Initializable {
         // convert it to triangle mesh
         if (selectedFile != null) {
             UtilityClass.createWorkspace(selectedFile);
-            // convert msh file to .t file using python program gmsh4mtc.py
-            domainExtentionT = convertMshPython(selectedFile);
+            // convert msh file to .t file
+            domainExtentionT = convertMesh(selectedFile);
             // display the mesh
             displayDomain(new File(workspaceDirectory, domainExtentionT));
         }
@@ -130,6 +142,12 @@ public class ProjectSetupController implements Initializable {
         importMSHButton.setStyle(FX_BASE_LIGHTGREEN);
         boundaryButton.setDisable(false);
         mainController.displayMessageConsoleOutput("File imported successfully");
+        // analyze the quality of the domain in background, then report it and highlight the worst elements
+        CompletableFuture.supplyAsync(() -> MeshQuality.analyze(triangleMesh))
+                .thenAccept(quality -> Platform.runLater(() -> {
+                    mainController.displayMessageConsoleOutput(quality.format());
+                    mainController.getRightPaneController().highlightElements(triangleMesh, quality.getWorstTriangles());
+                }));
         // initiate file parser
         runnerService = new RunnerService(leftBottomPaneController, workspaceDirectory);
     }
@@ -176,9 +194,11 @@ public class ProjectSetupController implements Initializable {
 
     @FXML
     private void handleRun(ActionEvent e) {
-        // setup cimlib project
+        boolean nodeOrderingOptimized = leftBottomPaneController.getRunConfigurationController().isNodeOrderingOptimized();
+        String domainMesh = nodeOrderingOptimized ? reorderedFileName(domainExtentionT) : domainExtentionT;
+        // setup cimlib project, from the controls of the panes on the JavaFX thread
         try {
-            runnerService.generateAllMTCFiles(domainExtentionT);
+            runnerService.generateAllMTCFiles(domainMesh);
         } catch (RuntimeException ex) {
             log.error(ex.getMessage(), ex);
             mainController.displayMessageConsoleOutput("Error while setting up the project: " + ex.getMessage());
@@ -187,18 +207,85 @@ public class ProjectSetupController implements Initializable {
         // disable run button and show stop button
         runButton.setDisable(true);
         stopButton.setVisible(true);
-        // run cimlib
+        // renumber the nodes and run cimlib in background, the renumbering of a large mesh takes seconds
         CompletableFuture.runAsync(() -> {
+            if (nodeOrderingOptimized) {
+                try {
+                    optimizeNodeOrdering(domainExtentionT, domainMesh);
+                } catch (RuntimeException ex) {
+                    log.error(ex.getMessage(), ex);
+                    mainController.displayMessageConsoleOutput("Error while setting up the project: " + ex.getMessage());
+                    Platform.runLater(() -> {
+                        stopButton.setVisible(false);
+                        runButton.setDisable(false);
+                    });
+                    return;
+                }
+            }
             // use python programme to convert to .t
             List<String> command = buildCimlibCommanLine();
-            currentProcess = runnerService.startProcess(mainController, workspaceDirectory, command);
+            ConsolePaneController consolePaneController = mainController.getRightPaneController().getConsolePaneController();
+            consolePaneController.openSolverLog(new File(workspaceDirectory, SOLVER_LOG_PREFIX
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".log"));
+            currentProcess = runnerService.startProcess(mainController, workspaceDirectory, command,
+                    consolePaneController::displaySolverLines);
             // log cimblib output
-            runThreadTologCimlibOutput();
+            awaitCimlibOutput();
             // handle cimlib end run
             handleCimblibEndRun();
         });
     }
 
+    /**
+     * @param meshFileName the .t file of the domain mesh
+     * @return the name of the .t file of the domain with its nodes renumbered, {@code <name>_rcm.t}
+     */
+    private static String reorderedFileName(String meshFileName) {
+        return meshFileName.replaceFirst("\\.t$", "") + "_rcm.t";
+    }
+
+    /**
+     * Renumber the nodes of the domain mesh (reverse Cuthill-McKee) in a new file,
+     * the file is reused while it is more recent than the domain mesh
+     *
+     * @param meshFileName      the .t file of the domain mesh in the workspace
+     * @param reorderedFileName the .t file of the renumbered mesh in the workspace
+     */
+    private void optimizeNodeOrdering(String meshFileName, String reorderedFileName) {
+        File meshFile = new File(workspaceDirectory, meshFileName);
+        File reorderedFile = new File(workspaceDirectory, reorderedFileName);
+        if (reorderedFile.lastModified() > meshFile.lastModified()) {
+            return;
+        }
+        NodeReordering.Result result = NodeReordering.reorder(parseFile2TriangleMesh(meshFile));
+        MeshFileWriter.writeTriangleMesh2File(result.mesh(), reorderedFile);
+        mainController.displayMessageConsoleOutput("Node ordering optimized: bandwidth "
+                + result.bandwidthBefore() + " -> " + result.bandwidthAfter());
+    }
+
+    /**
+     * Partition the domain in background for 2, 4, ... parts up to the number of cores, report the balance of
+     * each partition in the console and color the parts for the number of cores in the view
+     *
+     * @param numberOfCores the number of cores of the run
+     */
+    private void previewPartitions(int numberOfCores) {
+        MeshView domainMeshView = mainController.getRightPaneController().getDomainMeshView();
+        if (domainMeshView == null) {
+            return;
+        }
+        CFDTriangleMesh domainMesh = (CFDTriangleMesh) domainMeshView.getMesh();
+        CompletableFuture.runAsync(() -> {
+            mainController.displayMessageConsoleOutput("Partition of the domain (recursive coordinate bisection):");
+            for (int parts = 2; parts < numberOfCores; parts *= 2) {
+                mainController.displayMessageConsoleOutput(MeshPartition.compute(domainMesh, parts).format());
+            }
+            MeshPartition partition = MeshPartition.compute(domainMesh, numberOfCores);
+            mainController.displayMessageConsoleOutput(partition.format());
+            Platform.runLater(() -> mainController.getRightPaneController().displayPartition(domainMesh, partition));
+        });
+    }
+
     /**
      * Handle the end of the cimlib process
      * If the process end correctly, display the result in ParaView
@@ -212,11 +299,12 @@ public class ProjectSetupController implements Initializable {
                     runButton.setDisable(false);
                 });
                 EventManager.fireCustomEvent(new CustomEvent(CIMLIB_PROCESS_END));
-                // if exit ok then display the result in ParaView
+                // if exit ok then read the last result and display the result in ParaView
                 if (exitCode == 0) {
+                    File resultDirectory = new File(workspaceDirectory, "Resultats" + File.separator + "2d");
+                    readResults(resultDirectory);
                     List<String> paraViewcommand = Arrays.asList("paraview.exe", "bulles_..vtu");
-                    UtilityClass.runCommand(new File(workspaceDirectory, "Resultats" + File.separator + "2d"),
-                            paraViewcommand);
+                    UtilityClass.runCommand(resultDirectory, paraViewcommand);
                 } else {
                     // if exit not ok then display error message
                     mainController.displayMessageConsoleOutput("Error while running cimllib");
@@ -232,44 +320,60 @@ public class ProjectSetupController implements Initializable {
     }
 
     /**
-     * Run a thread to log the cimlib output
-     * Wait for the process to end and flush the console
-     * End the process properly
+     * Index the results written by cimlib (bulles_*.pvtu for a parallel run, bulles_*.vtu otherwise),
+     * read the last one, report its fields in the console and color the domain with it
+     *
+     * @param resultDirectory the directory of the results
      */
-    private void runThreadTologCimlibOutput() {
-        // Step 1: Create an ExecutorService with a single thread
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        // Step 2: Submit a Runnable task to the executor
-        Future<?> future = executorService.submit(() -> {
-            ConsolePaneController consolePaneController = mainController.getRightPaneController().getConsolePaneController();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(currentProcess.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    final String output = line;
-                    Platform.runLater(() -> consolePaneController.displayMessageIfNeeded(output));
-                }
-            } catch (IOException ex) {
-                Platform.runLater(() -> consolePaneController.displayMessage("Error reading process output: " + ex.getMessage()));
+    private void readResults(File resultDirectory) {
+        if (resultCatalog != null) {
+            resultCatalog.close();
+            resultCatalog = null;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            ResultCatalog catalog = ResultCatalog.scan(resultDirectory, RESULT_PREFIX,
+                    Runtime.getRuntime().maxMemory() / 4);
+            if (catalog.size() == 0) {
+                mainController.displayMessageConsoleOutput("No result found in " + resultDirectory);
+                return;
             }
-        });
+            resultCatalog = catalog;
+            int last = catalog.size() - 1;
+            ResultCatalog.Step lastStep = catalog.getSteps().get(last);
+            VtuResult result = catalog.getResult(last, lastStep.index().getFieldNames());
+            mainController.displayMessageConsoleOutput(String.format(Locale.ROOT,
+                    "%d results (%.1f MB), result %s read in %d ms: %s",
+                    catalog.size(), catalog.getTotalFileSize() / 1e6, lastStep.file().getName(),
+                    System.currentTimeMillis() - start, result.format()));
+            Platform.runLater(() -> mainController.getRightPaneController().displayResults(catalog));
+        } catch (RuntimeException e) {
+            log.error("Unable to read the results in {}", resultDirectory, e);
+            mainController.displayMessageConsoleOutput("Unable to read the results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait for the end of the cimlib output, read by the supervisor of the process, and flush the console
+     */
+    private void awaitCimlibOutput() {
         try {
-            // Step 3: Wait for the task to complete (future.get will return null)
-            future.get();
-        } catch (Exception ex) {
+            if (currentProcess != null) {
+                currentProcess.awaitOutput();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             mainController.displayMessageConsoleOutput(ex.getMessage());
         } finally {
-            // flush remaining logs
+            // write the remaining lines to the log file
             mainController.getRightPaneController().getConsolePaneController().flush();
-            // Step 4: Shutdown the executor
-            executorService.shutdown();
         }
     }
 
     @FXML
     private void handleStop() {
-        if (currentProcess != null && currentProcess.isAlive()) {
+        if (currentProcess != null && currentProcess.getProcess().isAlive()) {
             // Terminate the process and all its child processes
-            currentProcess.descendants().forEach(ProcessHandle::destroy);
             currentProcess.destroy();
 
             mainController.displayMessageConsoleOutput("Simulation stopped by user");
@@ -301,6 +405,8 @@ public class ProjectSetupController implements Initializable {
         listenAndHandleBoundaryRemoved();
         // register to listen to any modification in the titled panes
         listenAndHandleActionOnPane();
+        // register to listen to a point picked in the mesh view
+        listenAndHandleMeshPointPicked();
     }
 
     /**
@@ -391,6 +497,10 @@ public class ProjectSetupController implements Initializable {
         EventManager.addEventHandler(RUN_CONFIGURATION_VALID, event -> {
             runConfigurationButton.setStyle(FX_BASE_LIGHTGREEN);
             runButton.setDisable(false);
+            int numberOfCores = leftBottomPaneController.getRunConfigurationController().getNumberOfCores();
+            if (numberOfCores > 1) {
+                previewPartitions(numberOfCores);
+            }
         });
     }
 
@@ -411,6 +521,17 @@ public class ProjectSetupController implements Initializable {
         });
     }
 
+    /**
+     * Register a listener to set the origin of the half plane being edited with the point picked in the mesh view
+     */
+    private void listenAndHandleMeshPointPicked() {
+        EventManager.addEventHandler(MESH_POINT_PICKED, event -> {
+            double[] point = (double[]) event.getObject();
+            leftBottomPaneController.getBoundaryDefinitionControllers()
+                    .forEach(controller -> controller.applyPickedOrigin(point));
+        });
+    }
+
     private void handleModificationOrValidationAction() {
         // if any modification in boundary definition then flag the boundary button
         boolean isAnyBoundaryDefInvalid = leftBottomPaneController.getBoundaryDefinitionControllers()
@@ -1,42 +1,77 @@
 package com.softpath.riverpath.controller;
 
+import com.softpath.riverpath.custom.event.CustomEvent;
+import com.softpath.riverpath.custom.event.EventEnum;
+import com.softpath.riverpath.custom.event.EventManager;
+import com.softpath.riverpath.custom.pane.ColorBar;
+import com.softpath.riverpath.custom.pane.Colormap;
+import com.softpath.riverpath.custom.pane.LevelOfDetailMeshView;
+import com.softpath.riverpath.custom.pane.MeshOctree;
+import com.softpath.riverpath.custom.pane.ResultFrame;
+import com.softpath.riverpath.custom.pane.ResultPlayer;
+import com.softpath.riverpath.custom.pane.WireframeRasterView;
 import com.softpath.riverpath.custom.pane.ZoomableScrollPane;
 import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import com.softpath.riverpath.fileparser.MeshPartition;
+import com.softpath.riverpath.fileparser.MeshSpatialIndex;
+import com.softpath.riverpath.fileparser.ResultCatalog;
 import com.softpath.riverpath.model.Coordinates;
 import com.softpath.riverpath.util.ColorObjectHandler;
 import com.softpath.riverpath.util.DomainProperties;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.SplitPane;
+import javafx.scene.control.Slider;
+import javafx.scene.control.TextField;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.control.ToggleGroup;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
 import javafx.scene.shape.DrawMode;
 import javafx.scene.shape.MeshView;
 import javafx.scene.shape.Shape;
+import javafx.scene.shape.TriangleMesh;
 import javafx.scene.transform.Scale;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 @NoArgsConstructor
 @Getter
 @Setter
 public class RightPaneController implements Initializable {
 
+    // a picked point closer than this distance (pixels) to a vertex of the domain is moved on the vertex
+    private static final double SNAP_PIXELS = 8.0;
+    // field colored when the results are displayed, if written by the run
+    private static final String DEFAULT_RESULT_FIELD = "Pression";
+    // playback speeds of the results (steps per second)
+    private static final List<Integer> RESULT_FRAME_RATES = List.of(5, 10, 25, 50);
+    private static final int DEFAULT_RESULT_FRAME_RATE = 25;
+
     private final ColorObjectHandler colorObjectHandler = new ColorObjectHandler();
     @FXML
     private VBox displayBox;
@@ -45,6 +80,30 @@ public class RightPaneController implements Initializable {
     @FXML
     private ToggleButton simpleView;
     @FXML
+    private HBox resultBox;
+    @FXML
+    private ComboBox<String> resultFieldChoice;
+    @FXML
+    private ColorBar colorBar;
+    @FXML
+    private ComboBox<Colormap> colormapChoice;
+    @FXML
+    private CheckBox fixedRangeCheck;
+    @FXML
+    private TextField rangeMinField;
+    @FXML
+    private TextField rangeMaxField;
+    @FXML
+    private Button playButton;
+    @FXML
+    private Slider resultSlider;
+    @FXML
+    private Label resultTimeLabel;
+    @FXML
+    private CheckBox loopCheck;
+    @FXML
+    private ComboBox<Integer> frameRateChoice;
+    @FXML
     private ZoomableScrollPane meshPane;
     @FXML
     private MeshDisplayController meshPaneController;
@@ -57,9 +116,23 @@ public class RightPaneController implements Initializable {
     // Declare the ToggleGroup
     private ToggleGroup displayToggleGroup;
     private MeshView domainMeshView;
+    private MeshOctree domainOctree;
     private Map<String, CFDTriangleMesh> allMeshes = new HashMap<>();
     private Map<String, Group> normalArrows = new HashMap<>();
     private Map<String, Shape> shapes = new HashMap<>();
+    // worst elements of the domain (mesh quality), null if not analyzed
+    private MeshView worstElementsView;
+    // parts of the partition of the domain for a parallel run, null if not partitioned
+    private Group partitionView;
+    // results of the last run and displayed step, null before a run
+    private ResultCatalog resultCatalog;
+    private int resultStep;
+    // the displayed step colored by the selected field, null before it is loaded
+    private ResultFrame resultFrame;
+    // playback of the results, null when paused
+    private ResultPlayer resultPlayer;
+    // incremented for each step to display, a step loaded after a newer request is dropped
+    private int resultRequest;
     private Pane rootPane;
     private StackPane contentPane;
 
@@ -73,9 +146,16 @@ public class RightPaneController implements Initializable {
         domainMeshView = new MeshView(domainMesh);
         domainMeshView.setDrawMode(DrawMode.LINE);
         allMeshes.clear();
+        worstElementsView = null;
+        partitionView = null;
+        clearResults();
         // compute domain properties
         DomainProperties.getInstance().computeDomainProperties(meshPane, domainMeshView);
         DomainProperties.getInstance().set3D(domainMesh.is3D());
+        // spatial hierarchy for the level of detail of the 3D view
+        domainOctree = domainMesh.is3D() ? new MeshOctree(domainMesh) : null;
+        // spatial index for picking, built in background (a pick before the end waits for it)
+        CompletableFuture.runAsync(domainMesh::getSpatialIndex);
         // apply scale to the domain mesh
         applyScale(domainMeshView);
         // initiate fields
@@ -91,6 +171,7 @@ public class RightPaneController implements Initializable {
         rootPane.getChildren().add(mainGroup);
 
         meshPaneController.applyPaneView(rootPane);
+        meshPaneController.setOnPick(this::pickMeshPoint);
         simpleView.setVisible(true);
         meshView.setVisible(true);
     }
@@ -108,19 +189,20 @@ public class RightPaneController implements Initializable {
         // Create the domain border visualization (domain outline in black)
         CFDTriangleMesh domainAsMesh = (CFDTriangleMesh) domainMeshView.getMesh();
         double scaleFactor = DomainProperties.getInstance().getScaleFactor();
-        List<Node> domainLines = domainAsMesh.createColoredBorderLines(scaleFactor, Color.BLACK);
+        Node domainLines = domainAsMesh.createColoredBorderLines(scaleFactor, Color.BLACK);
         // Create a group to hold all visual elements
         Group linesGroup = new Group();
-        linesGroup.getChildren().addAll(domainLines);
+        linesGroup.getChildren().add(domainLines);
         // Iterate over all immersed meshes
         for (CFDTriangleMesh objectMesh : allMeshes.values()) {
             Color objectColor = objectMesh.getColor();
-            List<Node> borderLines = objectMesh.createColoredBorderLines(scaleFactor, objectColor);
+            Node borderLines = objectMesh.createColoredBorderLines(scaleFactor, objectColor);
             //Add each object's borders immediately
-            linesGroup.getChildren().addAll(borderLines);
+            linesGroup.getChildren().add(borderLines);
         }
         addAllShapes(linesGroup);
         linesGroup.getChildren().addAll(normalArrows.values());
+        addOverlays(linesGroup);
         rootPane.getChildren().add(linesGroup);
     }
 
@@ -135,15 +217,22 @@ public class RightPaneController implements Initializable {
 
         // clear all
         rootPane.getChildren().clear();
-        domainMeshView.setDrawMode(DrawMode.LINE);
-        rootPane.getChildren().add(domainMeshView);
         Group meshGroup = new Group();
-        // add immersed objects to the meshGroup
-        addImmersedObjects(meshGroup);
+        if (DomainProperties.getInstance().is3D()) {
+            // the level of detail follows the camera, full resolution only for the visible part when zoomed in
+            double scaleFactor = DomainProperties.getInstance().getScaleFactor();
+            rootPane.getChildren().add(new LevelOfDetailMeshView(domainOctree, scaleFactor, meshPaneController.getSubScene()));
+            // add immersed objects to the meshGroup
+            addImmersedObjects(meshGroup);
+        } else {
+            // 2D: the domain and the objects are rasterized in a single image, lines stay 1 pixel wide
+            rootPane.getChildren().add(createRasterView());
+        }
         // add shapes to the meshGroup
         meshGroup.getChildren().addAll(shapes.values());
         // add normal arrows for half planes
         meshGroup.getChildren().addAll(normalArrows.values());
+        addOverlays(meshGroup);
         rootPane.getChildren().add(meshGroup);
     }
 
@@ -158,7 +247,6 @@ public class RightPaneController implements Initializable {
     private void addObject(String controllerID, CFDTriangleMesh objectMesh) {
         objectMesh.setScale(DomainProperties.getInstance().getScaleFactor());
         objectMesh.setColor(colorObjectHandler.getNextColor());
-        objectMesh.
         allMeshes.put(controllerID, objectMesh);
     }
 
@@ -243,26 +331,368 @@ public class RightPaneController implements Initializable {
      * @param meshGroup the mesh group
      */
     private void addImmersedObjects(Group meshGroup) {
-        // For each mesh, create a MeshView with its own color
+        // For each mesh, create a single wireframe MeshView with its own color (2D and 3D)
         double scaleFactor = DomainProperties.getInstance().getScaleFactor();
         for (CFDTriangleMesh objectMesh : allMeshes.values()) {
-            Color objectColor = objectMesh.getColor();
-            List<Node> objectNodes;
-            if (!objectMesh.is3D()) {
-                // For 2D objects, use createColoredLines to apply coloring.
-                objectNodes = objectMesh.createColoredLines(scaleFactor, objectColor);
-            } else {
-                // For 3D objects, keep the existing logic
-                MeshView objectMeshView = new MeshView(objectMesh);
-                objectMeshView.setDrawMode(DrawMode.LINE);
-                // Apply the scale
-                // ⚠️JAVAFX_INVERTED_AXIS_Y
-                objectMeshView.getTransforms().add(new Scale(scaleFactor, -scaleFactor, scaleFactor));
-                objectNodes = Collections.singletonList(objectMeshView);
+            meshGroup.getChildren().add(objectMesh.createWireframe(scaleFactor, objectMesh.getColor()));
+        }
+    }
+
+    /**
+     * Create the rasterized wireframe of the 2D domain (black) and of the immersed objects (their color)
+     *
+     * @return the view
+     */
+    private WireframeRasterView createRasterView() {
+        double scaleFactor = DomainProperties.getInstance().getScaleFactor();
+        WireframeRasterView rasterView = new WireframeRasterView(meshPaneController.getSubScene(), scaleFactor);
+        rasterView.addMesh((CFDTriangleMesh) domainMeshView.getMesh(), Color.BLACK);
+        for (CFDTriangleMesh objectMesh : allMeshes.values()) {
+            rasterView.addMesh(objectMesh, objectMesh.getColor());
+        }
+        return rasterView;
+    }
+
+    /**
+     * Highlight elements of the domain in red (e.g. the worst elements of the mesh quality analysis),
+     * ignored if another domain is displayed since the elements were computed
+     *
+     * @param domainMesh the domain of the elements
+     * @param triangles  3 vertices of the domain per triangle to fill (the faces of the tetrahedra in 3D)
+     */
+    public void highlightElements(CFDTriangleMesh domainMesh, int[] triangles) {
+        if (!isDisplayedDomain(domainMesh) || triangles.length == 0) {
+            return;
+        }
+        worstElementsView = createFilledView(triangles, Color.RED);
+        refreshDisplay();
+    }
+
+    /**
+     * Color the parts of a partition of the domain: each triangle of the domain (of its hull in 3D)
+     * is filled with the color of its part. Ignored if another domain is displayed since the partition was computed
+     *
+     * @param domainMesh the partitioned domain
+     * @param partition  the partition of the domain
+     */
+    public void displayPartition(CFDTriangleMesh domainMesh, MeshPartition partition) {
+        if (!isDisplayedDomain(domainMesh)) {
+            return;
+        }
+        double[] coordinates = domainMesh.getCoordinates();
+        int[] triangles = domainMesh.getTriangles();
+        int numberOfTriangles = triangles.length / 3;
+        // part of each triangle: the triangle itself is partitioned in 2D, located by its center in 3D
+        int[] triangleParts = new int[numberOfTriangles];
+        for (int triangle = 0; triangle < numberOfTriangles; triangle++) {
+            if (domainMesh.getTetrahedronCount() == 0) {
+                triangleParts[triangle] = partition.getElementParts()[triangle];
+                continue;
+            }
+            double[] center = new double[3];
+            for (int corner = 0; corner < 3; corner++) {
+                for (int axis = 0; axis < 3; axis++) {
+                    center[axis] += coordinates[3 * triangles[3 * triangle + corner] + axis] / 3;
+                }
+            }
+            triangleParts[triangle] = partition.locate(center[0], center[1], center[2]);
+        }
+        partitionView = new Group();
+        for (int part = 0; part < partition.getNumberOfParts(); part++) {
+            int currentPart = part;
+            int[] partTriangles = IntStream.range(0, numberOfTriangles)
+                    .filter(triangle -> triangleParts[triangle] == currentPart)
+                    .flatMap(triangle -> IntStream.of(triangles[3 * triangle], triangles[3 * triangle + 1],
+                            triangles[3 * triangle + 2]))
+                    .toArray();
+            Color color = Color.hsb(360.0 * part / partition.getNumberOfParts(), 0.5, 0.95);
+            partitionView.getChildren().add(createFilledView(partTriangles, color));
+        }
+        refreshDisplay();
+    }
+
+    /**
+     * @return true if a mesh is the displayed domain
+     */
+    private boolean isDisplayedDomain(CFDTriangleMesh domainMesh) {
+        return domainMeshView != null && domainMeshView.getMesh() == domainMesh;
+    }
+
+    /**
+     * Create a view of triangles of the domain filled with a color
+     *
+     * @param triangles 3 vertices of the domain per triangle
+     * @param color     the color
+     * @return the view
+     */
+    private MeshView createFilledView(int[] triangles, Color color) {
+        double[] coordinates = ((CFDTriangleMesh) domainMeshView.getMesh()).getCoordinates();
+        // only the vertices of the triangles are copied, renumbered in order of appearance
+        int[] localVertices = new int[coordinates.length / 3];
+        Arrays.fill(localVertices, -1);
+        float[] points = new float[3 * Math.min(triangles.length, localVertices.length)];
+        int numberOfPoints = 0;
+        int[] faces = new int[2 * triangles.length];
+        for (int i = 0; i < triangles.length; i++) {
+            int vertex = triangles[i];
+            if (localVertices[vertex] < 0) {
+                for (int axis = 0; axis < 3; axis++) {
+                    points[3 * numberOfPoints + axis] = (float) coordinates[3 * vertex + axis];
+                }
+                localVertices[vertex] = numberOfPoints++;
             }
-            // Add to main group
-            meshGroup.getChildren().addAll(objectNodes);
+            // texture index is always 0
+            faces[2 * i] = localVertices[vertex];
         }
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points, 0, 3 * numberOfPoints);
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces);
+        MeshView filledView = new MeshView(mesh);
+        filledView.setCullFace(CullFace.NONE);
+        filledView.setMaterial(new PhongMaterial(color));
+        applyScale(filledView);
+        return filledView;
+    }
+
+    /**
+     * Display the results of a run: the last step colored by the pressure (or by the first field)
+     *
+     * @param catalog the results of the run
+     */
+    public void displayResults(ResultCatalog catalog) {
+        if (domainMeshView == null || catalog.size() == 0) {
+            return;
+        }
+        stopResultPlayer();
+        resultCatalog = catalog;
+        resultFrame = null;
+        resultStep = catalog.size() - 1;
+        resultSlider.setMax(resultStep);
+        resultSlider.setValue(resultStep);
+        List<String> names = catalog.getSteps().get(resultStep).index().getFieldNames();
+        resultFieldChoice.getItems().setAll(names);
+        setResultControlsVisible(!names.isEmpty());
+        resultFieldChoice.setValue(names.contains(DEFAULT_RESULT_FIELD) ? DEFAULT_RESULT_FIELD
+                : names.isEmpty() ? null : names.get(0));
+        displayResultStep(resultStep);
+    }
+
+    /**
+     * Color the domain by the selected field at a step of the results, with the selected color map, over the fixed
+     * range or the range of the field at this step. The step is loaded in background, the view is built only when
+     * the geometry changes, otherwise only its texture coordinates are replaced. The next step is prefetched once
+     * the step is displayed.
+     *
+     * @param step the index of the step in the results
+     */
+    public void displayResultStep(int step) {
+        String name = resultFieldChoice.getValue();
+        if (resultCatalog == null || name == null) {
+            return;
+        }
+        stopResultPlayer();
+        ResultCatalog catalog = resultCatalog;
+        int request = ++resultRequest;
+        resultStep = step;
+        ResultFrame previous = resultFrame;
+        double scaleFactor = DomainProperties.getInstance().getScaleFactor();
+        double[] range = fixedRange();
+        Colormap colormap = colormapChoice.getValue();
+        CompletableFuture.supplyAsync(() -> ResultFrame.prepare(catalog, step, name, range, colormap, previous,
+                        scaleFactor))
+                .whenComplete((frame, error) -> Platform.runLater(() -> {
+                    if (request != resultRequest) {
+                        return;
+                    }
+                    if (error != null) {
+                        consolePaneController.displayMessage("Unable to display the result " + name + ": "
+                                + error.getMessage());
+                        return;
+                    }
+                    showResultFrame(frame);
+                    catalog.prefetch(step + 1, name);
+                }));
+    }
+
+    /**
+     * Play the steps of the results from the displayed step (from the first one if the last step is displayed),
+     * or pause the playback
+     */
+    public void toggleResultPlayback() {
+        if (resultPlayer != null) {
+            stopResultPlayer();
+            return;
+        }
+        if (resultCatalog == null || resultFrame == null || resultFrame.step() != resultStep) {
+            return;
+        }
+        resultRequest++;
+        ResultPlayer player = new ResultPlayer(resultCatalog, resultFrame,
+                DomainProperties.getInstance().getScaleFactor(), frameRateChoice.getValue(), this::showResultFrame);
+        player.setLooping(loopCheck.isSelected());
+        player.setOnFinished(this::stopResultPlayer);
+        player.setOnError(error -> {
+            stopResultPlayer();
+            consolePaneController.displayMessage("Unable to play the results: " + error.getMessage());
+        });
+        resultPlayer = player;
+        playButton.setText("⏸");
+        player.start();
+    }
+
+    /**
+     * Display a step ready to display, on the JavaFX thread
+     */
+    private void showResultFrame(ResultFrame frame) {
+        frame.view().setTexCoords(frame.texCoords());
+        if (frame.view().getColormap() != frame.colormap()) {
+            frame.view().setColormap(frame.colormap());
+        }
+        colorBar.update(frame.fieldName(), frame.range()[0], frame.range()[1], frame.colormap());
+        if (!fixedRangeCheck.isSelected()) {
+            // the automatic range is the starting point of a fixed range
+            rangeMinField.setText(String.format(Locale.ROOT, "%.4g", frame.range()[0]));
+            rangeMaxField.setText(String.format(Locale.ROOT, "%.4g", frame.range()[1]));
+        }
+        resultStep = frame.step();
+        resultSlider.setValue(frame.step());
+        ResultCatalog.Step step = resultCatalog.getSteps().get(frame.step());
+        resultTimeLabel.setText(Double.isNaN(step.time()) ? "step " + step.number()
+                : String.format(Locale.ROOT, "t = %.4g s", step.time()));
+        ResultFrame previous = resultFrame;
+        resultFrame = frame;
+        if (previous == null || frame.view() != previous.view()) {
+            refreshDisplay();
+        }
+    }
+
+    /**
+     * Pause the playback of the results and report its frame rate
+     */
+    private void stopResultPlayer() {
+        if (resultPlayer == null) {
+            return;
+        }
+        ResultPlayer player = resultPlayer;
+        resultPlayer = null;
+        player.dispose();
+        playButton.setText("▶");
+        if (player.getDisplayedFrames() > 0) {
+            consolePaneController.displayMessage(String.format(Locale.ROOT, "Played %d steps, %d skipped, %s",
+                    player.getDisplayedFrames(), player.getSkippedFrames(), resultCatalog.formatCacheStatistics()));
+        }
+    }
+
+    /**
+     * @return the min and max of the range fields if the range is fixed, null for the automatic range (also if
+     * the fields are not a valid range, which is reported)
+     */
+    private double[] fixedRange() {
+        if (!fixedRangeCheck.isSelected()) {
+            return null;
+        }
+        try {
+            double min = Double.parseDouble(rangeMinField.getText().trim());
+            double max = Double.parseDouble(rangeMaxField.getText().trim());
+            if (min < max) {
+                return new double[]{min, max};
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        consolePaneController.displayMessage("Invalid color range " + rangeMinField.getText() + " - "
+                + rangeMaxField.getText() + ", the range of the field is used");
+        return null;
+    }
+
+    private void clearResults() {
+        stopResultPlayer();
+        resultCatalog = null;
+        resultFrame = null;
+        resultRequest++;
+        setResultControlsVisible(false);
+    }
+
+    private void setResultControlsVisible(boolean visible) {
+        resultBox.setVisible(visible);
+        resultBox.setManaged(visible);
+    }
+
+    /**
+     * Display again the current view (mesh or borderlines)
+     */
+    private void refreshDisplay() {
+        if (simpleView.isSelected()) {
+            displayBorderlines();
+        } else {
+            displayMesh();
+        }
+    }
+
+    private void addOverlays(Group group) {
+        if (resultFrame != null) {
+            group.getChildren().add(resultFrame.view());
+        }
+        if (partitionView != null) {
+            group.getChildren().add(partitionView);
+        }
+        if (worstElementsView != null) {
+            group.getChildren().add(worstElementsView);
+        }
+    }
+
+    /**
+     * Find the point of the domain under the mouse and fire it (mesh coordinates) in a
+     * {@link EventEnum#MESH_POINT_PICKED} event. The point is snapped to the nearest vertex of the domain
+     * when it is closer than {@value #SNAP_PIXELS} pixels on the screen.
+     * <ul>
+     *     <li>2D: intersection of the ray with the plane z = 0, ignored outside the domain</li>
+     *     <li>3D: first triangle of the domain hit by the ray</li>
+     * </ul>
+     *
+     * @param ray the ray under the mouse in the coordinates of the root pane
+     */
+    private void pickMeshPoint(MeshDisplayController.PickRay ray) {
+        if (domainMeshView == null) {
+            return;
+        }
+        CFDTriangleMesh domainMesh = (CFDTriangleMesh) domainMeshView.getMesh();
+        MeshSpatialIndex spatialIndex = domainMesh.getSpatialIndex();
+        double scaleFactor = DomainProperties.getInstance().getScaleFactor();
+        // ⚠️JAVAFX_INVERTED_AXIS_Y
+        double[] origin = {ray.origin().getX() / scaleFactor, -ray.origin().getY() / scaleFactor,
+                ray.origin().getZ() / scaleFactor};
+        double[] direction = {ray.direction().getX(), -ray.direction().getY(), ray.direction().getZ()};
+        double distance;
+        if (domainMesh.is3D()) {
+            MeshSpatialIndex.Hit hit = spatialIndex.pick(origin, direction);
+            if (hit == null) {
+                return;
+            }
+            distance = hit.distance();
+        } else {
+            distance = direction[2] == 0 ? -1 : -origin[2] / direction[2];
+            if (distance < 0) {
+                return;
+            }
+        }
+        double[] point = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            point[axis] = origin[axis] + distance * direction[axis];
+        }
+        double[] coordinates = domainMesh.getCoordinates();
+        int vertex = spatialIndex.findNearestVertex(point[0], point[1], point[2]);
+        double vertexDistance = Math.sqrt(Math.pow(coordinates[3 * vertex] - point[0], 2)
+                + Math.pow(coordinates[3 * vertex + 1] - point[1], 2)
+                + Math.pow(coordinates[3 * vertex + 2] - point[2], 2));
+        // the ray is a unit vector in the mesh coordinates, the scale does not change the angles
+        if (vertexDistance <= SNAP_PIXELS * distance * ray.pixelAngle()) {
+            System.arraycopy(coordinates, 3 * vertex, point, 0, 3);
+        } else if (!domainMesh.is3D() && spatialIndex.findContainingElement(point[0], point[1], 0) < 0) {
+            return;
+        }
+        EventManager.fireCustomEvent(new CustomEvent(EventEnum.MESH_POINT_PICKED, point));
     }
 
     private void applyScale(MeshView meshView) {
@@ -298,5 +728,43 @@ public class RightPaneController implements Initializable {
                 displayBorderlines();
             }
         });
+        // color the displayed step by the new field
+        resultFieldChoice.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null && oldVal != null) {
+                displayResultStep(resultStep);
+            }
+        });
+        // color map and range of the results
+        colormapChoice.getItems().setAll(Colormap.values());
+        colormapChoice.setValue(Colormap.COOL_TO_WARM);
+        colormapChoice.valueProperty().addListener((obs, oldVal, newVal) -> displayResultStep(resultStep));
+        fixedRangeCheck.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            rangeMinField.setDisable(!newVal);
+            rangeMaxField.setDisable(!newVal);
+            displayResultStep(resultStep);
+        });
+        rangeMinField.setOnAction(event -> displayResultStep(resultStep));
+        rangeMaxField.setOnAction(event -> displayResultStep(resultStep));
+        // playback of the results
+        frameRateChoice.getItems().setAll(RESULT_FRAME_RATES);
+        frameRateChoice.setValue(DEFAULT_RESULT_FRAME_RATE);
+        frameRateChoice.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (resultPlayer != null && newVal != null) {
+                resultPlayer.setFramesPerSecond(newVal);
+            }
+        });
+        loopCheck.selectedProperty().addListener((obs, oldVal, newVal) -> {
+            if (resultPlayer != null) {
+                resultPlayer.setLooping(newVal);
+            }
+        });
+        playButton.setOnAction(event -> toggleResultPlayback());
+        // the slider follows the playback, a step chosen by the user is displayed
+        resultSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            int step = (int) Math.round(newVal.doubleValue());
+            if (resultCatalog != null && step != resultStep) {
+                displayResultStep(step);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.softpath.riverpath.custom.pane.BoundaryTitledPane;
 import com.softpath.riverpath.util.UtilityClass;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.TextField;
@@ -34,12 +35,21 @@ public class RunConfigurationController {
     @FXML
     private TextField coresField;
 
+    @FXML
+    private CheckBox optimizeNodeOrdering;
+
     @FXML
     private Button chooseButton;
 
     @Getter
     private int numberOfCores;
 
+    /**
+     * Renumber the nodes of the domain mesh (reverse Cuthill-McKee) before running cimlib
+     */
+    @Getter
+    private boolean nodeOrderingOptimized;
+
     @FXML
     public void initialize() {
         // Manages the visibility of the core selector
@@ -68,6 +78,7 @@ public class RunConfigurationController {
         String coresText = coresField.getText();
         // Determines the number of cores
         this.numberOfCores = serialMode.isSelected() ? 1 : Integer.parseInt(coresText);
+        this.nodeOrderingOptimized = optimizeNodeOrdering.isSelected();
         EventManager.fireCustomEvent(new CustomEvent(RUN_CONFIGURATION_VALID));
     }
 
@@ -23,5 +23,6 @@ public enum EventEnum {
     PROGRESS_BAR_UPDATE,
     TITLE_PANE_MODIFIED,
     TITLE_PANE_VALIDATED,
-    TITLE_PANE_BOUNDARY_DEF_CREATED
+    TITLE_PANE_BOUNDARY_DEF_CREATED,
+    MESH_POINT_PICKED
 }
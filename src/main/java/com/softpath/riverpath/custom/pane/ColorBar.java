@@ -0,0 +1,44 @@
+package com.softpath.riverpath.custom.pane;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+
+import java.util.Locale;
+
+/**
+ * Horizontal legend of a colored field: its name, the min value, the color map and the max value
+ */
+public final class ColorBar extends HBox {
+
+    private static final double BAR_WIDTH = 160;
+    private static final double BAR_HEIGHT = 12;
+
+    private final Label title = new Label();
+    private final Label minLabel = new Label();
+    private final Label maxLabel = new Label();
+    private final ImageView bar = new ImageView();
+
+    public ColorBar() {
+        super(4);
+        setAlignment(Pos.CENTER_LEFT);
+        bar.setFitWidth(BAR_WIDTH);
+        bar.setFitHeight(BAR_HEIGHT);
+        bar.setPreserveRatio(false);
+        getChildren().addAll(title, minLabel, bar, maxLabel);
+    }
+
+    /**
+     * @param name     the name of the field
+     * @param min      the value of the first color
+     * @param max      the value of the last color
+     * @param colormap the color map
+     */
+    public void update(String name, double min, double max, Colormap colormap) {
+        title.setText(name);
+        minLabel.setText(String.format(Locale.ROOT, "%.4g", min));
+        maxLabel.setText(String.format(Locale.ROOT, "%.4g", max));
+        bar.setImage(colormap.getImage());
+    }
+}
@@ -0,0 +1,70 @@
+package com.softpath.riverpath.custom.pane;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Color maps of the scalar fields, a linear interpolation between control colors
+ */
+public enum Colormap {
+
+    // the default map of ParaView (diverging blue - white - red)
+    COOL_TO_WARM("Cool to warm", Color.rgb(59, 76, 192), Color.rgb(221, 221, 221), Color.rgb(180, 4, 38)),
+    RAINBOW("Rainbow", Color.BLUE, Color.CYAN, Color.LIME, Color.YELLOW, Color.RED),
+    GRAYSCALE("Grayscale", Color.BLACK, Color.WHITE);
+
+    // width of the image of the map (texels)
+    public static final int IMAGE_WIDTH = 256;
+
+    private final String label;
+    private final Color[] colors;
+    // created with the map: the views of the result player get it from its worker threads
+    private final Image image;
+
+    Colormap(String label, Color... colors) {
+        this.label = label;
+        this.colors = colors;
+        this.image = createImage();
+    }
+
+    /**
+     * @param t the position in the map, from 0 to 1
+     * @return the color at this position
+     */
+    public Color colorAt(double t) {
+        double position = Math.max(0, Math.min(1, t)) * (colors.length - 1);
+        int index = Math.min((int) position, colors.length - 2);
+        return colors[index].interpolate(colors[index + 1], position - index);
+    }
+
+    /**
+     * @return the image of the map, {@value #IMAGE_WIDTH} x 1 texels
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    private Image createImage() {
+        WritableImage writableImage = new WritableImage(IMAGE_WIDTH, 1);
+        PixelWriter writer = writableImage.getPixelWriter();
+        for (int x = 0; x < IMAGE_WIDTH; x++) {
+            writer.setColor(x, 0, colorAt(x / (IMAGE_WIDTH - 1.0)));
+        }
+        return writableImage;
+    }
+
+    /**
+     * @param t the position in the map, from 0 to 1
+     * @return the texture coordinate of the center of the texel of this position (the ends are not blended)
+     */
+    public static float textureCoordinate(double t) {
+        return (float) ((0.5 + Math.max(0, Math.min(1, t)) * (IMAGE_WIDTH - 1)) / IMAGE_WIDTH);
+    }
+}
@@ -0,0 +1,212 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rasterize the edges of 2D meshes into square tiles of pixels.
+ * <p>
+ * The pixels are defined by a resolution (pixels per unit of the view) and the position of the pixel (0, 0)
+ * in the view: tile (col, row) holds the pixels [col * TILE_SIZE, (col + 1) * TILE_SIZE[ x [row * TILE_SIZE, ...[.
+ * The lines are 1 pixel wide whatever the resolution, and a line crossing several tiles is drawn
+ * seamlessly since each tile draws the same pixels of the line.
+ * This class is immutable, tiles can be drawn by several threads.
+ * </p>
+ */
+final class EdgeRasterizer {
+
+    static final int TILE_SIZE = 256;
+
+    // x, y of each vertex in the view coordinates (scaled, y inverted)
+    private final double[] points;
+    // 2 vertices per edge, the edges of the layers one after the other
+    private final int[] edges;
+    // end (exclusive) of each layer in edges
+    private final int[] layerEnds;
+    // ARGB color of each layer
+    private final int[] layerColors;
+
+    /**
+     * @param meshes the meshes to draw, the last one is drawn on top
+     * @param colors the color of each mesh
+     * @param scale  the scale of the view
+     */
+    EdgeRasterizer(List<CFDTriangleMesh> meshes, List<Color> colors, double scale) {
+        int numberOfPoints = 0;
+        int numberOfEdges = 0;
+        for (CFDTriangleMesh mesh : meshes) {
+            numberOfPoints += mesh.getVertexCount();
+            numberOfEdges += mesh.getEdges().length / 2;
+        }
+        points = new double[2 * numberOfPoints];
+        edges = new int[2 * numberOfEdges];
+        layerEnds = new int[meshes.size()];
+        layerColors = new int[meshes.size()];
+        int pointOffset = 0;
+        int edgeOffset = 0;
+        for (int layer = 0; layer < meshes.size(); layer++) {
+            CFDTriangleMesh mesh = meshes.get(layer);
+            double[] coordinates = mesh.getCoordinates();
+            // ⚠️JAVAFX_INVERTED_AXIS_Y
+            for (int vertex = 0; vertex < mesh.getVertexCount(); vertex++) {
+                points[2 * (pointOffset + vertex)] = coordinates[3 * vertex] * scale;
+                points[2 * (pointOffset + vertex) + 1] = -coordinates[3 * vertex + 1] * scale;
+            }
+            int[] meshEdges = mesh.getEdges();
+            for (int i = 0; i < meshEdges.length; i++) {
+                edges[2 * edgeOffset + i] = meshEdges[i] + pointOffset;
+            }
+            pointOffset += mesh.getVertexCount();
+            edgeOffset += meshEdges.length / 2;
+            layerEnds[layer] = edgeOffset;
+            layerColors[layer] = toArgb(colors.get(layer));
+        }
+    }
+
+    /**
+     * @return true if there is no edge to draw
+     */
+    boolean isEmpty() {
+        return edges.length == 0;
+    }
+
+    /**
+     * Find the edges which may cross each tile (their bounding box crosses the tile)
+     *
+     * @param resolution the number of pixels per unit of the view
+     * @param originX    x of the pixel (0, 0) in the view
+     * @param originY    y of the pixel (0, 0) in the view
+     * @param tiles      column and row of each tile
+     * @return the edges (ascending) of each tile
+     */
+    int[][] binEdges(double resolution, double originX, double originY, int[] tiles) {
+        int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+        for (int i = 0; i < tiles.length; i += 2) {
+            minCol = Math.min(minCol, tiles[i]);
+            maxCol = Math.max(maxCol, tiles[i]);
+            minRow = Math.min(minRow, tiles[i + 1]);
+            maxRow = Math.max(maxRow, tiles[i + 1]);
+        }
+        int numberOfTiles = tiles.length / 2;
+        int[][] tileEdges = new int[numberOfTiles][];
+        if (numberOfTiles == 0) {
+            return tileEdges;
+        }
+        // (col, row) in the bounding window of the tiles => index of the tile, -1 if not requested
+        int windowCols = maxCol - minCol + 1;
+        int[] lookup = new int[windowCols * (maxRow - minRow + 1)];
+        Arrays.fill(lookup, -1);
+        for (int tile = 0; tile < numberOfTiles; tile++) {
+            lookup[(tiles[2 * tile + 1] - minRow) * windowCols + tiles[2 * tile] - minCol] = tile;
+        }
+        // first pass counts the edges of each tile, second pass fills them
+        int[] counts = new int[numberOfTiles];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int edge = 0; edge < edges.length / 2; edge++) {
+                double x1 = (points[2 * edges[2 * edge]] - originX) * resolution;
+                double y1 = (points[2 * edges[2 * edge] + 1] - originY) * resolution;
+                double x2 = (points[2 * edges[2 * edge + 1]] - originX) * resolution;
+                double y2 = (points[2 * edges[2 * edge + 1] + 1] - originY) * resolution;
+                int firstCol = Math.max(minCol, (int) Math.floor(Math.min(x1, x2) / TILE_SIZE));
+                int lastCol = Math.min(maxCol, (int) Math.floor(Math.max(x1, x2) / TILE_SIZE));
+                int firstRow = Math.max(minRow, (int) Math.floor(Math.min(y1, y2) / TILE_SIZE));
+                int lastRow = Math.min(maxRow, (int) Math.floor(Math.max(y1, y2) / TILE_SIZE));
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int col = firstCol; col <= lastCol; col++) {
+                        int tile = lookup[(row - minRow) * windowCols + col - minCol];
+                        if (tile < 0) {
+                            continue;
+                        }
+                        if (pass == 0) {
+                            counts[tile]++;
+                        } else {
+                            tileEdges[tile][counts[tile]++] = edge;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int tile = 0; tile < numberOfTiles; tile++) {
+                    tileEdges[tile] = new int[counts[tile]];
+                    counts[tile] = 0;
+                }
+            }
+        }
+        return tileEdges;
+    }
+
+    /**
+     * Draw a tile
+     *
+     * @param tileEdges  the edges crossing the tile (ascending)
+     * @param resolution the number of pixels per unit of the view
+     * @param originX    x of the pixel (0, 0) in the view
+     * @param originY    y of the pixel (0, 0) in the view
+     * @param col        the column of the tile
+     * @param row        the row of the tile
+     * @return the ARGB pixels of the tile, transparent where there is no edge
+     */
+    int[] drawTile(int[] tileEdges, double resolution, double originX, double originY, int col, int row) {
+        int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+        int tileX = col * TILE_SIZE;
+        int tileY = row * TILE_SIZE;
+        int layer = 0;
+        for (int edge : tileEdges) {
+            while (edge >= layerEnds[layer]) {
+                layer++;
+            }
+            // pixel coordinates relative to the tile
+            double x1 = (points[2 * edges[2 * edge]] - originX) * resolution - tileX;
+            double y1 = (points[2 * edges[2 * edge] + 1] - originY) * resolution - tileY;
+            double x2 = (points[2 * edges[2 * edge + 1]] - originX) * resolution - tileX;
+            double y2 = (points[2 * edges[2 * edge + 1] + 1] - originY) * resolution - tileY;
+            drawLine(pixels, x1, y1, x2, y2, layerColors[layer]);
+        }
+        return pixels;
+    }
+
+    /**
+     * Draw the pixels whose center is the closest to the line along its major axis, only the pixels
+     * inside the tile are written. A line shorter than a pixel is drawn as the pixel of its middle.
+     */
+    private static void drawLine(int[] pixels, double x1, double y1, double x2, double y2, int color) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        boolean alongX = Math.abs(dx) >= Math.abs(dy);
+        double start = alongX ? x1 : y1;
+        double end = alongX ? x2 : y2;
+        double minor = alongX ? y1 : x1;
+        double slope = alongX ? dy / dx : dx / dy;
+        // pixels whose center is between both ends along the major axis
+        int first = (int) Math.ceil(Math.min(start, end) - 0.5);
+        int last = (int) Math.floor(Math.max(start, end) - 0.5);
+        if (first > last || (dx == 0 && dy == 0)) {
+            setPixel(pixels, (int) Math.floor((x1 + x2) / 2), (int) Math.floor((y1 + y2) / 2), color);
+            return;
+        }
+        for (int major = Math.max(first, 0); major <= Math.min(last, TILE_SIZE - 1); major++) {
+            int other = (int) Math.floor(minor + (major + 0.5 - start) * slope);
+            if (alongX) {
+                setPixel(pixels, major, other, color);
+            } else {
+                setPixel(pixels, other, major, color);
+            }
+        }
+    }
+
+    private static void setPixel(int[] pixels, int x, int y, int color) {
+        if (x >= 0 && x < TILE_SIZE && y >= 0 && y < TILE_SIZE) {
+            pixels[y * TILE_SIZE + x] = color;
+        }
+    }
+
+    private static int toArgb(Color color) {
+        // opaque colors are the same in ARGB and premultiplied ARGB
+        return 0xFF000000 | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
+}
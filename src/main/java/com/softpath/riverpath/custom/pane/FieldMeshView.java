@@ -0,0 +1,118 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import com.softpath.riverpath.fileparser.VtuResult;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.Scale;
+import lombok.Getter;
+
+import java.util.stream.IntStream;
+
+/**
+ * Filled view of a mesh colored by a scalar field (the magnitude of a vector field).
+ * <p>
+ * Each vertex has its own texture coordinate in the image of a {@link Colormap}: the faces are written once, and
+ * a new field or a new range only replaces the texture coordinates. The colors are interpolated in the color map
+ * inside the triangles. The map is a self illumination map, the colors do not depend on the lights.
+ * </p>
+ */
+public final class FieldMeshView extends MeshView {
+
+    // chunk of vertices of the parallel computation of the texture coordinates
+    private static final int VERTICES_PER_CHUNK = 1 << 14;
+
+    private final TriangleMesh mesh = new TriangleMesh();
+    private final int numberOfVertices;
+    @Getter
+    private Colormap colormap;
+
+    /**
+     * @param geometry the mesh of the field (its triangles are filled, the hull for a volume mesh)
+     * @param scale    the scale of the mesh
+     * @param colormap the color map
+     */
+    public FieldMeshView(CFDTriangleMesh geometry, double scale, Colormap colormap) {
+        double[] coordinates = geometry.getCoordinates();
+        int[] triangles = geometry.getTriangles();
+        numberOfVertices = geometry.getVertexCount();
+        float[] points = new float[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            points[i] = (float) coordinates[i];
+        }
+        // the texture index of a vertex is the vertex index
+        int[] faces = new int[2 * triangles.length];
+        for (int i = 0; i < triangles.length; i++) {
+            faces[2 * i] = triangles[i];
+            faces[2 * i + 1] = triangles[i];
+        }
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(new float[2 * numberOfVertices]);
+        mesh.getFaces().setAll(faces);
+        setMesh(mesh);
+        setCullFace(CullFace.NONE);
+        // ⚠️JAVAFX_INVERTED_AXIS_Y
+        getTransforms().add(new Scale(scale, -scale, scale));
+        setColormap(colormap);
+    }
+
+    /**
+     * @param colormap the new color map, on the JavaFX thread once the view is displayed
+     */
+    public void setColormap(Colormap colormap) {
+        this.colormap = colormap;
+        PhongMaterial material = new PhongMaterial(Color.BLACK);
+        material.setSpecularColor(Color.BLACK);
+        material.setSelfIlluminationMap(colormap.getImage());
+        setMaterial(material);
+    }
+
+    /**
+     * Compute the texture coordinates of a field, can be called from any thread
+     *
+     * @param values the value of each vertex
+     * @param min    the value of the first color of the map
+     * @param max    the value of the last color of the map
+     * @return u, v for each vertex, NaN values get the first color
+     */
+    public static float[] computeTexCoords(double[] values, double min, double max) {
+        float[] texCoords = new float[2 * values.length];
+        double inverseRange = max > min ? 1 / (max - min) : 0;
+        int numberOfChunks = (values.length + VERTICES_PER_CHUNK - 1) / VERTICES_PER_CHUNK;
+        IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+            int end = Math.min(values.length, (chunk + 1) * VERTICES_PER_CHUNK);
+            for (int vertex = chunk * VERTICES_PER_CHUNK; vertex < end; vertex++) {
+                double t = (values[vertex] - min) * inverseRange;
+                texCoords[2 * vertex] = Colormap.textureCoordinate(Double.isNaN(t) ? 0 : t);
+                texCoords[2 * vertex + 1] = 0.5f;
+            }
+        });
+        return texCoords;
+    }
+
+    /**
+     * @param field a point field
+     * @return the value (the magnitude of a vector) of each vertex
+     */
+    public static double[] magnitudes(VtuResult.Field field) {
+        double[] values = new double[field.numberOfTuples()];
+        IntStream.range(0, values.length).parallel().forEach(tuple -> values[tuple] = field.magnitude(tuple));
+        return values;
+    }
+
+    /**
+     * Replace the texture coordinates, on the JavaFX thread
+     *
+     * @param texCoords u, v for each vertex (see {@link #computeTexCoords(double[], double, double)})
+     */
+    public void setTexCoords(float[] texCoords) {
+        if (texCoords.length != 2 * numberOfVertices) {
+            throw new IllegalArgumentException("Expected " + numberOfVertices + " texture coordinates, got "
+                    + texCoords.length / 2);
+        }
+        mesh.getTexCoords().setAll(texCoords);
+    }
+}
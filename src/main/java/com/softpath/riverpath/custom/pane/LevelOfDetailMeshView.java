@@ -0,0 +1,181 @@
+package com.softpath.riverpath.custom.pane;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.WeakInvalidationListener;
+import javafx.geometry.Point3D;
+import javafx.scene.Camera;
+import javafx.scene.Group;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.SubScene;
+import javafx.scene.shape.DrawMode;
+import javafx.scene.shape.MeshView;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Transform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wireframe of a mesh drawn with a level of detail adapted to the camera, from a {@link MeshOctree}.
+ * <p>
+ * Each time the view moves (pan, zoom, rotation), the nodes of the octree are projected on the screen:
+ * the nodes outside the screen are skipped, a node is drawn with its decimated mesh when its clustering
+ * cells are smaller than {@value #MAX_CELL_PIXELS} pixels, otherwise its children are used, down to the
+ * leaves at full resolution. The number of triangles drawn depends on the screen size, not on the mesh size.
+ * The meshes not built yet are built on a worker, the previous nodes are displayed in the meantime.
+ * </p>
+ */
+public final class LevelOfDetailMeshView extends Group {
+
+    private static final double MAX_CELL_PIXELS = 1.5;
+
+    private final MeshOctree octree;
+    private final SubScene subScene;
+    private final Map<MeshOctree.Node, MeshView> meshViews = new HashMap<>();
+    private boolean refreshScheduled;
+    // incremented for each selection, a selection waiting for its meshes is dropped if a newer one exists
+    private int selection;
+    // kept as a field, the sub scene only holds a weak reference
+    private final InvalidationListener viewListener = observable -> scheduleRefresh();
+
+    /**
+     * @param octree   the octree of the mesh
+     * @param scale    the scale of the mesh
+     * @param subScene the sub scene displaying the view (with a perspective camera)
+     */
+    public LevelOfDetailMeshView(MeshOctree octree, double scale, SubScene subScene) {
+        this.octree = octree;
+        this.subScene = subScene;
+        // ⚠️JAVAFX_INVERTED_AXIS_Y
+        getTransforms().add(new Scale(scale, -scale, scale));
+        // the coarsest level gives the final bounds at once (the sub scene centers its camera on them)
+        getChildren().add(getMeshView(octree.getRoot()));
+        localToSceneTransformProperty().addListener(viewListener);
+        sceneProperty().addListener(viewListener);
+        WeakInvalidationListener weakListener = new WeakInvalidationListener(viewListener);
+        subScene.widthProperty().addListener(weakListener);
+        subScene.heightProperty().addListener(weakListener);
+        subScene.getCamera().translateZProperty().addListener(weakListener);
+    }
+
+    /**
+     * Several changes of the view in the same pulse give a single refresh
+     */
+    private void scheduleRefresh() {
+        // validate the transform, the listener is called only once until the next validation
+        getLocalToSceneTransform();
+        if (!refreshScheduled) {
+            refreshScheduled = true;
+            Platform.runLater(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        refreshScheduled = false;
+        Transform toCamera = computeLocalToCamera();
+        if (toCamera == null) {
+            return;
+        }
+        List<MeshOctree.Node> nodes = new ArrayList<>();
+        select(octree.getRoot(), toCamera, nodes);
+        List<MeshOctree.Node> missing = nodes.stream().filter(node -> !node.isMeshReady()).toList();
+        int currentSelection = ++selection;
+        if (missing.isEmpty()) {
+            show(nodes);
+            return;
+        }
+        CompletableFuture.runAsync(() -> missing.parallelStream().forEach(MeshOctree.Node::getMesh))
+                .thenRun(() -> Platform.runLater(() -> {
+                    if (currentSelection == selection) {
+                        refresh();
+                    }
+                }));
+    }
+
+    private void show(List<MeshOctree.Node> nodes) {
+        List<MeshView> views = nodes.stream().map(this::getMeshView).toList();
+        // the views of the nodes not displayed anymore are released, their meshes stay in the octree
+        meshViews.values().retainAll(views);
+        getChildren().setAll(views);
+    }
+
+    private MeshView getMeshView(MeshOctree.Node node) {
+        return meshViews.computeIfAbsent(node, key -> {
+            MeshView meshView = new MeshView(key.getMesh());
+            meshView.setDrawMode(DrawMode.LINE);
+            return meshView;
+        });
+    }
+
+    /**
+     * Select the nodes to draw in the subtree of a node
+     */
+    private void select(MeshOctree.Node node, Transform toCamera, List<MeshOctree.Node> nodes) {
+        double screenSize = computeScreenSize(node, toCamera);
+        if (screenSize < 0) {
+            // outside the screen
+            return;
+        }
+        if (node.isLeaf() || screenSize / MeshOctree.GRID <= MAX_CELL_PIXELS) {
+            nodes.add(node);
+            return;
+        }
+        for (MeshOctree.Node child : node.getChildren()) {
+            select(child, toCamera, nodes);
+        }
+    }
+
+    /**
+     * Project the corners of the bounding box of a node on the screen
+     *
+     * @return the largest side of the projection in pixels, infinite if the box crosses the camera plane,
+     * -1 if the box is outside the screen
+     */
+    private double computeScreenSize(MeshOctree.Node node, Transform toCamera) {
+        double width = subScene.getWidth();
+        double height = subScene.getHeight();
+        double focal = (height / 2) / Math.tan(Math.toRadians(((PerspectiveCamera) subScene.getCamera()).getFieldOfView()) / 2);
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        double[] min = node.getMin();
+        double[] max = node.getMax();
+        for (int corner = 0; corner < 8; corner++) {
+            Point3D point = toCamera.transform((corner & 1) == 0 ? min[0] : max[0],
+                    (corner & 2) == 0 ? min[1] : max[1], (corner & 4) == 0 ? min[2] : max[2]);
+            if (point.getZ() <= 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double x = width / 2 + point.getX() * focal / point.getZ();
+            double y = height / 2 + point.getY() * focal / point.getZ();
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        if (maxX < 0 || minX > width || maxY < 0 || minY > height) {
+            return -1;
+        }
+        return Math.max(maxX - minX, maxY - minY);
+    }
+
+    /**
+     * @return the transform from the local coordinates (the mesh) to the camera coordinates, null if unknown
+     */
+    private Transform computeLocalToCamera() {
+        Camera camera = subScene.getCamera();
+        if (getScene() == null || subScene.getWidth() <= 0 || subScene.getHeight() <= 0
+                || !(camera instanceof PerspectiveCamera)) {
+            return null;
+        }
+        try {
+            return camera.getLocalToSceneTransform().createInverse().createConcatenation(getLocalToSceneTransform());
+        } catch (NonInvertibleTransformException e) {
+            return null;
+        }
+    }
+}
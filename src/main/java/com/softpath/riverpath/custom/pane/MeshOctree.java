@@ -0,0 +1,280 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Spatial hierarchy of the triangles of a mesh, used to display a level of detail adapted to the view.
+ * <p>
+ * The triangles are split by the position of their center in 8 octants (4 quadrants for a plane mesh)
+ * until a node holds at most {@value #LEAF_SIZE} triangles. Each node gives a mesh, built on first use:
+ * <ul>
+ *     <li>leaf: the triangles of the node at full resolution</li>
+ *     <li>other nodes: the triangles of the node decimated by vertex clustering on a grid of
+ *     {@value #GRID} cells along the longest side of the node (the triangles collapsed in a cell are dropped)</li>
+ * </ul>
+ * The hierarchy is built once for a mesh, in parallel for the large nodes, and can be shared by several views.
+ * </p>
+ */
+public final class MeshOctree {
+
+    static final int GRID = 32;
+    private static final int LEAF_SIZE = 1 << 14;
+    private static final int MAX_DEPTH = 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final double[] coordinates;
+    private final int[] triangles;
+    // triangle indexes, the triangles of a node are contiguous
+    private final int[] order;
+    private final Node root;
+
+    /**
+     * Build the hierarchy of a mesh
+     *
+     * @param mesh the mesh
+     */
+    public MeshOctree(CFDTriangleMesh mesh) {
+        coordinates = mesh.getCoordinates();
+        triangles = mesh.getTriangles();
+        int numberOfTriangles = triangles.length / 3;
+        order = new int[numberOfTriangles];
+        Arrays.setAll(order, i -> i);
+        float[] centers = new float[3 * numberOfTriangles];
+        IntStream.range(0, numberOfTriangles).parallel().forEach(triangle -> {
+            for (int axis = 0; axis < 3; axis++) {
+                centers[3 * triangle + axis] = (float) ((coordinates[3 * triangles[3 * triangle] + axis]
+                        + coordinates[3 * triangles[3 * triangle + 1] + axis]
+                        + coordinates[3 * triangles[3 * triangle + 2] + axis]) / 3);
+            }
+        });
+        root = build(centers, 0, numberOfTriangles, 0);
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    private Node build(float[] centers, int start, int end, int depth) {
+        Node node = new Node(start, end);
+        float[] centerMin = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] centerMax = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = start; i < end; i++) {
+            int triangle = order[i];
+            for (int axis = 0; axis < 3; axis++) {
+                centerMin[axis] = Math.min(centerMin[axis], centers[3 * triangle + axis]);
+                centerMax[axis] = Math.max(centerMax[axis], centers[3 * triangle + axis]);
+                for (int corner = 0; corner < 3; corner++) {
+                    double value = coordinates[3 * triangles[3 * triangle + corner] + axis];
+                    node.min[axis] = Math.min(node.min[axis], value);
+                    node.max[axis] = Math.max(node.max[axis], value);
+                }
+            }
+        }
+        if (end - start <= LEAF_SIZE || depth == MAX_DEPTH) {
+            return node;
+        }
+        // octant of each triangle, an axis without extent is not split (quadrants of a plane mesh)
+        int[] octants = new int[end - start];
+        int[] counts = new int[8];
+        for (int i = start; i < end; i++) {
+            int octant = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                float middle = (centerMin[axis] + centerMax[axis]) / 2;
+                if (centerMax[axis] > centerMin[axis] && centers[3 * order[i] + axis] > middle) {
+                    octant |= 1 << axis;
+                }
+            }
+            octants[i - start] = octant;
+            counts[octant]++;
+        }
+        int[] starts = new int[9];
+        for (int octant = 0; octant < 8; octant++) {
+            starts[octant + 1] = starts[octant] + counts[octant];
+        }
+        if (Arrays.stream(counts).anyMatch(count -> count == end - start)) {
+            // all the centers are at the same place
+            return node;
+        }
+        int[] sorted = new int[end - start];
+        int[] next = Arrays.copyOf(starts, 8);
+        for (int i = start; i < end; i++) {
+            sorted[next[octants[i - start]]++] = order[i];
+        }
+        System.arraycopy(sorted, 0, order, start, sorted.length);
+        int[] nonEmpty = IntStream.range(0, 8).filter(octant -> counts[octant] > 0).toArray();
+        IntStream octantStream = Arrays.stream(nonEmpty);
+        if (end - start > PARALLEL_THRESHOLD) {
+            octantStream = octantStream.parallel();
+        }
+        node.children = octantStream
+                .mapToObj(octant -> build(centers, start + starts[octant], start + starts[octant + 1], depth + 1))
+                .toArray(Node[]::new);
+        return node;
+    }
+
+    /**
+     * Build the mesh of a node: full resolution for a leaf, decimated otherwise
+     */
+    private TriangleMesh buildMesh(Node node) {
+        return node.isLeaf() ? buildLeafMesh(node) : buildDecimatedMesh(node);
+    }
+
+    private TriangleMesh buildLeafMesh(Node node) {
+        int[] vertices = new int[3 * (node.end - node.start)];
+        for (int i = node.start; i < node.end; i++) {
+            System.arraycopy(triangles, 3 * order[i], vertices, 3 * (i - node.start), 3);
+        }
+        // local index of a vertex = its position in the sorted unique vertices
+        int[] unique = Arrays.stream(vertices).sorted().distinct().toArray();
+        float[] points = new float[3 * unique.length];
+        for (int i = 0; i < unique.length; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                points[3 * i + axis] = (float) coordinates[3 * unique[i] + axis];
+            }
+        }
+        int[] faces = new int[2 * vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            // texture index is always 0
+            faces[2 * i] = Arrays.binarySearch(unique, vertices[i]);
+        }
+        return toMesh(points, points.length, faces, faces.length);
+    }
+
+    private TriangleMesh buildDecimatedMesh(Node node) {
+        double cellSize = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            cellSize = Math.max(cellSize, (node.max[axis] - node.min[axis]) / GRID);
+        }
+        if (cellSize == 0) {
+            cellSize = 1;
+        }
+        int cells = GRID + 1;
+        // cell => cluster, -1 if empty
+        int[] clusters = new int[cells * cells * cells];
+        Arrays.fill(clusters, -1);
+        double[] sums = new double[3 * 64];
+        int[] sizes = new int[64];
+        int numberOfClusters = 0;
+        int[] faces = new int[6 * Math.min(node.end - node.start, 2 * cells * cells * cells)];
+        int facesSize = 0;
+        Set<Long> keptTriangles = new HashSet<>();
+        int[] triangleClusters = new int[3];
+        for (int i = node.start; i < node.end; i++) {
+            for (int corner = 0; corner < 3; corner++) {
+                int vertex = triangles[3 * order[i] + corner];
+                int cell = 0;
+                for (int axis = 2; axis >= 0; axis--) {
+                    int index = (int) ((coordinates[3 * vertex + axis] - node.min[axis]) / cellSize);
+                    cell = cell * cells + Math.min(index, GRID);
+                }
+                if (clusters[cell] < 0) {
+                    if (numberOfClusters == sizes.length) {
+                        sizes = Arrays.copyOf(sizes, 2 * sizes.length);
+                        sums = Arrays.copyOf(sums, 2 * sums.length);
+                    }
+                    clusters[cell] = numberOfClusters++;
+                }
+                int cluster = clusters[cell];
+                for (int axis = 0; axis < 3; axis++) {
+                    sums[3 * cluster + axis] += coordinates[3 * vertex + axis];
+                }
+                sizes[cluster]++;
+                triangleClusters[corner] = cluster;
+            }
+            int cluster1 = triangleClusters[0], cluster2 = triangleClusters[1], cluster3 = triangleClusters[2];
+            if (cluster1 == cluster2 || cluster2 == cluster3 || cluster3 == cluster1) {
+                continue;
+            }
+            // the same triangle of clusters is kept once, whatever its orientation
+            int[] sortedClusters = {cluster1, cluster2, cluster3};
+            Arrays.sort(sortedClusters);
+            long key = ((long) sortedClusters[0] << 42) | ((long) sortedClusters[1] << 21) | sortedClusters[2];
+            if (keptTriangles.add(key)) {
+                if (facesSize + 6 > faces.length) {
+                    faces = Arrays.copyOf(faces, 2 * faces.length);
+                }
+                faces[facesSize] = cluster1;
+                faces[facesSize + 2] = cluster2;
+                faces[facesSize + 4] = cluster3;
+                facesSize += 6;
+            }
+        }
+        // each cluster is placed at the mean of its vertices
+        float[] points = new float[3 * numberOfClusters];
+        for (int cluster = 0; cluster < numberOfClusters; cluster++) {
+            for (int axis = 0; axis < 3; axis++) {
+                points[3 * cluster + axis] = (float) (sums[3 * cluster + axis] / sizes[cluster]);
+            }
+        }
+        return toMesh(points, points.length, faces, facesSize);
+    }
+
+    private static TriangleMesh toMesh(float[] points, int pointsSize, int[] faces, int facesSize) {
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points, 0, pointsSize);
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces, 0, facesSize);
+        return mesh;
+    }
+
+    /**
+     * A node of the hierarchy: the triangles order[start, end[ and their bounding box
+     */
+    final class Node {
+        private final int start;
+        private final int end;
+        private final double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        private final double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        // null for a leaf
+        private Node[] children;
+        private volatile TriangleMesh mesh;
+
+        private Node(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+
+        Node[] getChildren() {
+            return children;
+        }
+
+        double[] getMin() {
+            return min;
+        }
+
+        double[] getMax() {
+            return max;
+        }
+
+        boolean isMeshReady() {
+            return mesh != null;
+        }
+
+        /**
+         * @return the mesh of the node, built on first call
+         */
+        TriangleMesh getMesh() {
+            TriangleMesh nodeMesh = mesh;
+            if (nodeMesh == null) {
+                synchronized (this) {
+                    nodeMesh = mesh;
+                    if (nodeMesh == null) {
+                        nodeMesh = buildMesh(this);
+                        mesh = nodeMesh;
+                    }
+                }
+            }
+            return nodeMesh;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.fileparser.ResultCatalog;
+import com.softpath.riverpath.fileparser.VtuResult;
+
+/**
+ * A step of the results colored by a field, ready to display: only its texture coordinates remain to be set in its
+ * view on the JavaFX thread
+ *
+ * @param step      the index of the step in the results
+ * @param geometry  the geometry of the step
+ * @param view      the view of the geometry
+ * @param fieldName the name of the field
+ * @param range     the min and max of the color map
+ * @param colormap  the color map
+ * @param texCoords the texture coordinates of the field in the view
+ */
+public record ResultFrame(int step, VtuResult geometry, FieldMeshView view, String fieldName, double[] range,
+                          Colormap colormap, float[] texCoords) {
+
+    /**
+     * Load and color a step, out of the JavaFX thread. The view of the previous frame is reused when the geometry
+     * is the same instance (see {@link ResultCatalog#getGeometry(int)}), otherwise a new view is built. The color
+     * map of a reused view is replaced when the frame is displayed.
+     *
+     * @param catalog   the results
+     * @param step      the index of the step in the results
+     * @param fieldName the name of the field
+     * @param range     the min and max of the color map, null for the range of the field at this step
+     * @param colormap  the color map
+     * @param previous  the frame displayed before, null if none
+     * @param scale     the scale of a new view
+     * @return the frame
+     */
+    public static ResultFrame prepare(ResultCatalog catalog, int step, String fieldName, double[] range,
+                                      Colormap colormap, ResultFrame previous, double scale) {
+        VtuResult geometry = catalog.getGeometry(step);
+        VtuResult.Field field = catalog.getField(step, fieldName);
+        if (!catalog.getSteps().get(step).index().isPointData(fieldName)) {
+            field = geometry.toPointData(field);
+        }
+        double[] frameRange = range != null ? range : field.range();
+        float[] texCoords = FieldMeshView.computeTexCoords(FieldMeshView.magnitudes(field), frameRange[0],
+                frameRange[1]);
+        FieldMeshView view = previous != null && previous.geometry() == geometry ? previous.view()
+                : new FieldMeshView(geometry.toTriangleMesh(), scale, colormap);
+        return new ResultFrame(step, geometry, view, fieldName, frameRange, colormap, texCoords);
+    }
+}
@@ -0,0 +1,219 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.fileparser.ResultCatalog;
+import javafx.animation.AnimationTimer;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Playback of the steps of the results at a number of frames per second.
+ * <p>
+ * Worker threads load and color the next {@value #FRAMES_AHEAD} steps in advance (see
+ * {@link ResultFrame#prepare}); on each pulse the JavaFX thread only displays the frame of the current time if it is
+ * ready. The playback follows the clock: when a frame is late the displayed frame is kept, and the frames passed
+ * meanwhile are skipped to catch up. The range of the color map is the one of the first frame, so the colors of the
+ * steps can be compared.
+ * </p>
+ * Must be used on the JavaFX thread, {@link #dispose()} stops it and its workers.
+ */
+public class ResultPlayer extends AnimationTimer {
+
+    // number of steps prepared in advance
+    private static final int FRAMES_AHEAD = 8;
+
+    private final ResultCatalog catalog;
+    private final double scale;
+    private final Consumer<ResultFrame> display;
+    private final ExecutorService workers;
+    // frames in preparation or ready, by step
+    private final Map<Integer, CompletableFuture<ResultFrame>> frames = new HashMap<>();
+    @Getter
+    private ResultFrame displayedFrame;
+    @Getter
+    private double framesPerSecond;
+    @Getter
+    @Setter
+    private boolean looping;
+    // number of steps passed without being displayed
+    @Getter
+    private int skippedFrames;
+    @Getter
+    private int displayedFrames;
+    // called when the last step is displayed without looping
+    @Setter
+    private Runnable onFinished = () -> {
+    };
+    // called when a step cannot be prepared, the playback is stopped
+    @Setter
+    private Consumer<Throwable> onError = error -> {
+    };
+    // position (in steps) at the time origin of the playback, the origin is -1 before the first pulse
+    private double startPosition;
+    private long startTime = -1;
+    private long lastTime;
+
+    /**
+     * @param catalog         the results
+     * @param firstFrame      the displayed frame, the playback starts after it, with its field and its range
+     * @param scale           the scale of the views built for a new geometry
+     * @param framesPerSecond the number of steps per second
+     * @param display         displays a frame, on the JavaFX thread
+     */
+    public ResultPlayer(ResultCatalog catalog, ResultFrame firstFrame, double scale, double framesPerSecond,
+                        Consumer<ResultFrame> display) {
+        this.catalog = catalog;
+        this.displayedFrame = firstFrame;
+        this.startPosition = firstFrame.step();
+        this.scale = scale;
+        this.framesPerSecond = framesPerSecond;
+        this.display = display;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "result-player");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Change the speed, the playback goes on from the current position
+     *
+     * @param framesPerSecond the number of steps per second
+     */
+    public void setFramesPerSecond(double framesPerSecond) {
+        if (startTime >= 0) {
+            startPosition = position(lastTime);
+            startTime = lastTime;
+        }
+        this.framesPerSecond = framesPerSecond;
+    }
+
+    @Override
+    public void start() {
+        // the clock starts at the first pulse
+        startTime = -1;
+        // from the first step if the last one is displayed
+        startPosition = !looping && displayedFrame.step() == catalog.size() - 1 ? 0 : displayedFrame.step();
+        super.start();
+    }
+
+    @Override
+    public void handle(long now) {
+        if (startTime < 0) {
+            startTime = now;
+        }
+        lastTime = now;
+        int size = catalog.size();
+        long position = (long) position(now);
+        int target = (int) (looping ? position % size : Math.min(position, size - 1));
+        prepare(target);
+        // the frame of the current time, or the latest ready frame before it
+        for (int distance = 0; distance < FRAMES_AHEAD; distance++) {
+            int step = target - distance;
+            if (step < 0) {
+                step += looping ? size : 0;
+            }
+            if (step < 0 || step == displayedFrame.step()) {
+                break;
+            }
+            CompletableFuture<ResultFrame> frame = frames.get(step);
+            if (frame != null && frame.isDone()) {
+                if (frame.isCompletedExceptionally()) {
+                    dispose();
+                    onError.accept(cause(frame));
+                    return;
+                }
+                show(frame.join(), size);
+                break;
+            }
+        }
+        if (!looping && target == size - 1 && displayedFrame.step() == target) {
+            dispose();
+            onFinished.run();
+        }
+    }
+
+    /**
+     * Stop the playback and the preparation of the frames, the player cannot be started again
+     */
+    public void dispose() {
+        stop();
+        frames.values().forEach(frame -> frame.cancel(false));
+        frames.clear();
+        workers.shutdownNow();
+    }
+
+    private double position(long now) {
+        return startPosition + (now - startTime) * 1e-9 * framesPerSecond;
+    }
+
+    /**
+     * Start the preparation of the frames from a step, and drop the frames out of this window
+     */
+    private void prepare(int first) {
+        int size = catalog.size();
+        // the nearest steps first, the workers take them in this order
+        Set<Integer> window = new LinkedHashSet<>();
+        for (int i = 0; i < FRAMES_AHEAD && (looping || first + i < size); i++) {
+            window.add((first + i) % size);
+        }
+        Iterator<Map.Entry<Integer, CompletableFuture<ResultFrame>>> iterator = frames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<ResultFrame>> frame = iterator.next();
+            // a ready frame before the window may still be displayed when the frame of the current time is late
+            if (!window.contains(frame.getKey()) && !isBetween(frame.getKey(), displayedFrame.step(), first, size)) {
+                frame.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+        ResultFrame reference = displayedFrame;
+        for (int step : window) {
+            frames.computeIfAbsent(step, s -> CompletableFuture.supplyAsync(() -> ResultFrame.prepare(catalog, s,
+                    reference.fieldName(), reference.range(), reference.colormap(), reference, scale), workers));
+        }
+    }
+
+    /**
+     * @return true if a step is after a step and before or at another one, in the playback order
+     */
+    private static boolean isBetween(int step, int from, int to, int size) {
+        int distance = Math.floorMod(step - from, size);
+        return distance > 0 && distance <= Math.floorMod(to - from, size);
+    }
+
+    private void show(ResultFrame frame, int size) {
+        int previous = displayedFrame.step();
+        skippedFrames += Math.floorMod(frame.step() - previous, size) - 1;
+        displayedFrames++;
+        displayedFrame = frame;
+        // the frames up to the displayed one will not be displayed
+        frames.entrySet().removeIf(entry -> {
+            boolean passed = isBetween(entry.getKey(), previous, frame.step(), size);
+            if (passed) {
+                entry.getValue().cancel(false);
+            }
+            return passed;
+        });
+        display.accept(frame);
+    }
+
+    private static Throwable cause(CompletableFuture<ResultFrame> frame) {
+        try {
+            frame.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+}
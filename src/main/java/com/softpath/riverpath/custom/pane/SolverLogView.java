@@ -0,0 +1,179 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.util.SolverLog;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * View of a {@link SolverLog}: the lines are read from the log file only when their cells are visible, a few
+ * hundred lines around the visible ones are kept in memory. The view follows the end of the log while the last
+ * line is visible. A text can be searched from the selected line, and a line number can be reached.
+ */
+public final class SolverLogView extends VBox {
+
+    // height of a line (pixels), fixed so the list does not measure its lines
+    private static final double LINE_HEIGHT = 20;
+    // number of lines read together from the file
+    private static final int CACHED_LINES = 256;
+
+    private final TextField searchField = new TextField();
+    private final TextField lineField = new TextField();
+    private final Label status = new Label();
+    private final ListView<String> lineList = new ListView<>();
+    private SolverLog log;
+    private LogLines lines;
+    // incremented for each search, the result of an older search is dropped
+    private int searchRequest;
+
+    public SolverLogView() {
+        super(4);
+        searchField.setPromptText("Search");
+        searchField.setOnAction(event -> findNext());
+        Button findButton = new Button("Find next");
+        findButton.setOnAction(event -> findNext());
+        lineField.setPromptText("Line");
+        lineField.setPrefColumnCount(8);
+        lineField.setOnAction(event -> goToLine());
+        HBox toolBar = new HBox(4, searchField, findButton, lineField, status);
+        toolBar.setAlignment(Pos.CENTER_LEFT);
+        lineList.setFixedCellSize(LINE_HEIGHT);
+        VBox.setVgrow(lineList, Priority.ALWAYS);
+        getChildren().addAll(toolBar, lineList);
+    }
+
+    /**
+     * @param log the log to display, null for none
+     */
+    public void setLog(SolverLog log) {
+        this.log = log;
+        searchRequest++;
+        lines = new LogLines(log);
+        lineList.setItems(lines);
+        status.setText(log == null ? "" : log.getFile().getName());
+        refresh();
+    }
+
+    /**
+     * Add the lines written since the last call, on the JavaFX thread
+     */
+    public void refresh() {
+        int count = log == null ? 0 : log.getLineCount();
+        if (count == lines.size()) {
+            return;
+        }
+        boolean followEnd = isLastLineVisible();
+        lines.grow(count);
+        if (followEnd) {
+            lineList.scrollTo(count - 1);
+        }
+    }
+
+    private boolean isLastLineVisible() {
+        IndexedCell<?> lastCell = lineList.lookup(".virtual-flow") instanceof VirtualFlow<?> flow
+                ? flow.getLastVisibleCell() : null;
+        return lastCell == null || lastCell.getIndex() >= lines.size() - 1;
+    }
+
+    /**
+     * Search the text of the search field in background, from the line after the selected one
+     */
+    private void findNext() {
+        String text = searchField.getText();
+        if (log == null || text.isEmpty()) {
+            return;
+        }
+        SolverLog searchedLog = log;
+        int request = ++searchRequest;
+        int first = lineList.getSelectionModel().getSelectedIndex() + 1;
+        long start = System.currentTimeMillis();
+        status.setText("Searching...");
+        CompletableFuture.supplyAsync(() -> searchedLog.find(text, first))
+                .whenComplete((line, error) -> Platform.runLater(() -> {
+                    if (request != searchRequest) {
+                        return;
+                    }
+                    if (error != null) {
+                        status.setText("Search failed: " + error.getMessage());
+                    } else if (line < 0) {
+                        status.setText("Not found after line " + first);
+                    } else {
+                        status.setText(String.format(Locale.ROOT, "Line %d (%d ms)", line + 1, System.currentTimeMillis() - start));
+                        showLine(line);
+                    }
+                }));
+    }
+
+    /**
+     * Select the line of the line field (from 1)
+     */
+    private void goToLine() {
+        try {
+            int line = Integer.parseInt(lineField.getText().trim()) - 1;
+            if (line >= 0 && line < lines.size()) {
+                showLine(line);
+            } else {
+                status.setText("The log has " + lines.size() + " lines");
+            }
+        } catch (NumberFormatException e) {
+            status.setText("Invalid line number " + lineField.getText());
+        }
+    }
+
+    private void showLine(int line) {
+        refresh();
+        lineList.getSelectionModel().clearAndSelect(line);
+        lineList.scrollTo(Math.max(0, line - 2));
+    }
+
+    /**
+     * The lines of a log known by the view, read on demand by windows of {@value #CACHED_LINES} lines
+     */
+    private static final class LogLines extends ObservableListBase<String> {
+
+        private final SolverLog log;
+        private int size;
+        private int cacheStart;
+        private List<String> cache = List.of();
+
+        private LogLines(SolverLog log) {
+            this.log = log;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < cacheStart || index >= cacheStart + cache.size()) {
+                // the window is centered on the line, for the scroll in both directions
+                cacheStart = Math.max(0, index - CACHED_LINES / 2);
+                cache = log.readLines(cacheStart, CACHED_LINES);
+            }
+            return index - cacheStart < cache.size() ? cache.get(index - cacheStart) : "";
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private void grow(int newSize) {
+            int oldSize = size;
+            size = newSize;
+            beginChange();
+            nextAdd(oldSize, newSize);
+            endChange();
+        }
+    }
+}
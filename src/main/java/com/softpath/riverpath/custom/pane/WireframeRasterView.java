@@ -0,0 +1,401 @@
+package com.softpath.riverpath.custom.pane;
+
+import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.WeakInvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Camera;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.SubScene;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.softpath.riverpath.custom.pane.EdgeRasterizer.TILE_SIZE;
+
+/**
+ * Wireframe of 2D meshes rasterized off the FX thread, an alternative to a {@link javafx.scene.shape.MeshView}
+ * in line mode for meshes with millions of edges.
+ * <p>
+ * The view covers the visible part of the sub scene (plus one tile of margin) with a {@link WritableImage}
+ * backed by a {@link PixelBuffer}, at the resolution of the screen so the lines are always 1 pixel wide.
+ * The image is split in tiles drawn by a pool of workers:
+ * <ul>
+ *     <li>pan: the tiles still visible are moved, only the new tiles are drawn</li>
+ *     <li>zoom: the current image is scaled, all tiles are drawn again at the new resolution once
+ *     the zoom is over, and the new image replaces the current one when complete</li>
+ * </ul>
+ * The view is expected at z = 0 in the sub scene, with the coordinates of the scaled meshes (y inverted).
+ * </p>
+ */
+public final class WireframeRasterView extends ImageView {
+
+    private static final Duration ZOOM_DELAY = Duration.millis(150);
+    // the image never exceeds MAX_TILES x MAX_TILES tiles (tilted view)
+    private static final int MAX_TILES = 16;
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "WireframeRaster");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final SubScene subScene;
+    private final double scale;
+    private final List<CFDTriangleMesh> meshes = new ArrayList<>();
+    private final List<Color> colors = new ArrayList<>();
+    private EdgeRasterizer rasterizer;
+    // image displayed, and image being drawn after a zoom
+    private Frame frame;
+    private Frame pendingFrame;
+    // incremented for each new frame, the tiles of older frames are dropped (read by the workers)
+    private volatile int generation;
+    private final Queue<Tile> drawnTiles = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final PauseTransition zoomDelay = new PauseTransition(ZOOM_DELAY);
+    // kept as a field, the sub scene only holds a weak reference
+    private final InvalidationListener viewListener = observable -> update();
+
+    /**
+     * @param subScene the sub scene displaying the view (with a perspective camera)
+     * @param scale    the scale of the meshes
+     */
+    public WireframeRasterView(SubScene subScene, double scale) {
+        this.subScene = subScene;
+        this.scale = scale;
+        setMouseTransparent(true);
+        zoomDelay.setOnFinished(event -> render());
+        // any transform of the parents (pan, zoom, rotation) changes the local to scene transform
+        localToSceneTransformProperty().addListener(viewListener);
+        sceneProperty().addListener(viewListener);
+        WeakInvalidationListener weakListener = new WeakInvalidationListener(viewListener);
+        subScene.widthProperty().addListener(weakListener);
+        subScene.heightProperty().addListener(weakListener);
+        subScene.getCamera().translateZProperty().addListener(weakListener);
+    }
+
+    /**
+     * Add a mesh to draw, the last one is drawn on top
+     *
+     * @param mesh  the 2D mesh
+     * @param color the color of its edges
+     */
+    public void addMesh(CFDTriangleMesh mesh, Color color) {
+        meshes.add(mesh);
+        colors.add(color);
+        rasterizer = null;
+        if (frame == null) {
+            placeOnMeshes();
+        }
+        render();
+    }
+
+    /**
+     * Until the first image is drawn, a transparent image covers the meshes so that the view has its final
+     * bounds: the sub scene centers its camera on them, which is needed to compute the visible area.
+     */
+    private void placeOnMeshes() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (CFDTriangleMesh mesh : meshes) {
+            double[] coordinates = mesh.getCoordinates();
+            for (int i = 0; i < coordinates.length; i += 3) {
+                minX = Math.min(minX, coordinates[i]);
+                maxX = Math.max(maxX, coordinates[i]);
+                minY = Math.min(minY, coordinates[i + 1]);
+                maxY = Math.max(maxY, coordinates[i + 1]);
+            }
+        }
+        if (minX > maxX) {
+            return;
+        }
+        setImage(new WritableImage(1, 1));
+        // ⚠️JAVAFX_INVERTED_AXIS_Y
+        setX(minX * scale);
+        setY(-maxY * scale);
+        setFitWidth(Math.max(maxX - minX, Double.MIN_NORMAL) * scale);
+        setFitHeight(Math.max(maxY - minY, Double.MIN_NORMAL) * scale);
+    }
+
+    /**
+     * Called when the view may have moved: the image is moved after a pan, drawn again after a zoom
+     */
+    private void update() {
+        // validate the transform, the listener is called only once until the next validation
+        getLocalToSceneTransform();
+        Bounds visible = computeVisibleBounds();
+        if (visible == null || meshes.isEmpty()) {
+            return;
+        }
+        double resolution = subScene.getWidth() / visible.getWidth();
+        if (frame == null) {
+            render();
+        } else if (pendingFrame != null || Math.abs(resolution / frame.resolution - 1) > 1e-6) {
+            zoomDelay.playFromStart();
+        } else {
+            pan(visible);
+        }
+    }
+
+    /**
+     * Draw a new image at the current resolution, displayed once all its tiles are drawn
+     */
+    private void render() {
+        zoomDelay.stop();
+        Bounds visible = computeVisibleBounds();
+        if (visible == null || meshes.isEmpty()) {
+            return;
+        }
+        if (rasterizer == null) {
+            rasterizer = new EdgeRasterizer(meshes, colors, scale);
+        }
+        double resolution = subScene.getWidth() / visible.getWidth();
+        Frame newFrame = new Frame(resolution, visible.getMinX(), visible.getMinY(),
+                Math.min(MAX_TILES, (int) Math.ceil(subScene.getWidth() / TILE_SIZE) + 2),
+                Math.min(MAX_TILES, (int) Math.ceil(visible.getHeight() * resolution / TILE_SIZE) + 2));
+        // one tile of margin before the visible area
+        newFrame.firstCol = -1;
+        newFrame.firstRow = -1;
+        generation++;
+        pendingFrame = newFrame;
+        int[] tiles = new int[2 * newFrame.cols * newFrame.rows];
+        for (int row = 0; row < newFrame.rows; row++) {
+            for (int col = 0; col < newFrame.cols; col++) {
+                tiles[2 * (row * newFrame.cols + col)] = newFrame.firstCol + col;
+                tiles[2 * (row * newFrame.cols + col) + 1] = newFrame.firstRow + row;
+            }
+        }
+        newFrame.remainingTiles = tiles.length / 2;
+        drawTiles(newFrame, tiles);
+    }
+
+    /**
+     * Move the image on the visible area: the tiles still in the image are moved, the others are drawn
+     */
+    private void pan(Bounds visible) {
+        double tileSize = TILE_SIZE / frame.resolution;
+        int firstCol = (int) Math.floor((visible.getMinX() - frame.originX) / tileSize) - 1;
+        int firstRow = (int) Math.floor((visible.getMinY() - frame.originY) / tileSize) - 1;
+        int shiftCols = firstCol - frame.firstCol;
+        int shiftRows = firstRow - frame.firstRow;
+        if (shiftCols == 0 && shiftRows == 0) {
+            return;
+        }
+        Frame current = frame;
+        current.pixelBuffer.updateBuffer(buffer -> {
+            shiftPixels(current, shiftCols, shiftRows);
+            return null;
+        });
+        // the tiles which were not in the image
+        int[] tiles = new int[2 * current.cols * current.rows];
+        int size = 0;
+        for (int row = 0; row < current.rows; row++) {
+            for (int col = 0; col < current.cols; col++) {
+                int oldCol = col + shiftCols;
+                int oldRow = row + shiftRows;
+                if (oldCol < 0 || oldCol >= current.cols || oldRow < 0 || oldRow >= current.rows) {
+                    tiles[size++] = firstCol + col;
+                    tiles[size++] = firstRow + row;
+                }
+            }
+        }
+        current.firstCol = firstCol;
+        current.firstRow = firstRow;
+        place(current);
+        drawTiles(current, Arrays.copyOf(tiles, size));
+    }
+
+    /**
+     * Move the pixels of the image by whole tiles, the uncovered tiles are cleared
+     */
+    private static void shiftPixels(Frame frame, int shiftCols, int shiftRows) {
+        int width = frame.cols * TILE_SIZE;
+        int height = frame.rows * TILE_SIZE;
+        int[] pixels = new int[width * height];
+        int shiftX = shiftCols * TILE_SIZE;
+        int shiftY = shiftRows * TILE_SIZE;
+        IntBuffer buffer = frame.buffer;
+        // pixel (x, y) of the new image is the pixel (x + shiftX, y + shiftY) of the old one
+        int fromX = Math.max(0, -shiftX);
+        int toX = Math.min(width, width - shiftX);
+        for (int y = Math.max(0, -shiftY); y < Math.min(height, height - shiftY) && fromX < toX; y++) {
+            buffer.get((y + shiftY) * width + fromX + shiftX, pixels, y * width + fromX, toX - fromX);
+        }
+        buffer.put(0, pixels);
+    }
+
+    /**
+     * Bin the edges on a worker, then draw each tile on a worker
+     */
+    private void drawTiles(Frame target, int[] tiles) {
+        int tilesGeneration = generation;
+        EdgeRasterizer tilesRasterizer = rasterizer;
+        WORKERS.execute(() -> {
+            if (tilesGeneration != generation) {
+                return;
+            }
+            int[][] tileEdges = tilesRasterizer.binEdges(target.resolution, target.originX, target.originY, tiles);
+            for (int tile = 0; tile < tileEdges.length; tile++) {
+                int col = tiles[2 * tile];
+                int row = tiles[2 * tile + 1];
+                int[] edges = tileEdges[tile];
+                WORKERS.execute(() -> {
+                    if (tilesGeneration == generation) {
+                        int[] pixels = tilesRasterizer.drawTile(edges, target.resolution, target.originX, target.originY, col, row);
+                        publish(new Tile(target, tilesGeneration, col, row, pixels));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * The drawn tiles are copied in the image on the FX thread, by batch
+     */
+    private void publish(Tile tile) {
+        drawnTiles.add(tile);
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::copyDrawnTiles);
+        }
+    }
+
+    private void copyDrawnTiles() {
+        drainScheduled.set(false);
+        Tile tile;
+        while ((tile = drawnTiles.poll()) != null) {
+            if (tile.generation != generation) {
+                continue;
+            }
+            Frame target = tile.frame;
+            int col = tile.col - target.firstCol;
+            int row = tile.row - target.firstRow;
+            if (col < 0 || col >= target.cols || row < 0 || row >= target.rows) {
+                // moved out of the image since it was requested
+                continue;
+            }
+            Tile copied = tile;
+            Runnable copy = () -> {
+                int width = target.cols * TILE_SIZE;
+                for (int y = 0; y < TILE_SIZE; y++) {
+                    target.buffer.put((row * TILE_SIZE + y) * width + col * TILE_SIZE, copied.pixels, y * TILE_SIZE, TILE_SIZE);
+                }
+            };
+            if (target == frame) {
+                target.pixelBuffer.updateBuffer(buffer -> {
+                    copy.run();
+                    return new Rectangle2D(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+                });
+            } else {
+                // not displayed yet
+                copy.run();
+                if (--target.remainingTiles == 0) {
+                    frame = target;
+                    pendingFrame = null;
+                    setImage(target.image);
+                    place(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Place the image in the view coordinates
+     */
+    private void place(Frame frame) {
+        double tileSize = TILE_SIZE / frame.resolution;
+        setX(frame.originX + frame.firstCol * tileSize);
+        setY(frame.originY + frame.firstRow * tileSize);
+        setFitWidth(frame.cols * tileSize);
+        setFitHeight(frame.rows * tileSize);
+    }
+
+    /**
+     * Intersect the rays of the camera through the corners of the sub scene with the plane z = 0 of this view
+     *
+     * @return the visible area in the coordinates of this view, null if it is unknown
+     */
+    private Bounds computeVisibleBounds() {
+        double width = subScene.getWidth();
+        double height = subScene.getHeight();
+        Camera camera = subScene.getCamera();
+        if (getScene() == null || width <= 0 || height <= 0 || !(camera instanceof PerspectiveCamera perspective)) {
+            return null;
+        }
+        // vertical field of view, the eye is at the origin of the camera looking at +z
+        double focal = (height / 2) / Math.tan(Math.toRadians(perspective.getFieldOfView()) / 2);
+        Point3D eye = sceneToLocal(camera.localToScene(Point3D.ZERO));
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int corner = 0; corner < 4; corner++) {
+            Point3D target = sceneToLocal(camera.localToScene(
+                    (corner % 2) * width - width / 2, (corner / 2) * height - height / 2, focal));
+            if (eye == null || target == null) {
+                return null;
+            }
+            Point3D direction = target.subtract(eye);
+            double distance = -eye.getZ() / direction.getZ();
+            if (!(distance > 0) || Double.isInfinite(distance)) {
+                // the plane is not in front of the camera
+                return null;
+            }
+            minX = Math.min(minX, eye.getX() + distance * direction.getX());
+            maxX = Math.max(maxX, eye.getX() + distance * direction.getX());
+            minY = Math.min(minY, eye.getY() + distance * direction.getY());
+            maxY = Math.max(maxY, eye.getY() + distance * direction.getY());
+        }
+        return maxX > minX && maxY > minY ? new BoundingBox(minX, minY, maxX - minX, maxY - minY) : null;
+    }
+
+    /**
+     * An image made of cols x rows tiles, the first tile being (firstCol, firstRow)
+     */
+    private static final class Frame {
+        private final double resolution;
+        private final double originX;
+        private final double originY;
+        private final int cols;
+        private final int rows;
+        private final IntBuffer buffer;
+        private final PixelBuffer<IntBuffer> pixelBuffer;
+        private final WritableImage image;
+        private int firstCol;
+        private int firstRow;
+        private int remainingTiles;
+
+        private Frame(double resolution, double originX, double originY, int cols, int rows) {
+            this.resolution = resolution;
+            this.originX = originX;
+            this.originY = originY;
+            this.cols = cols;
+            this.rows = rows;
+            int width = cols * TILE_SIZE;
+            int height = rows * TILE_SIZE;
+            buffer = ByteBuffer.allocateDirect(4 * width * height).order(ByteOrder.nativeOrder()).asIntBuffer();
+            pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+            image = new WritableImage(pixelBuffer);
+        }
+    }
+
+    private record Tile(Frame frame, int generation, int col, int row, int[] pixels) {
+    }
+}
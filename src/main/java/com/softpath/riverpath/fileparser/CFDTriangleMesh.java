@@ -1,43 +1,52 @@
 package com.softpath.riverpath.fileparser;
 
-import javafx.geometry.Point3D;
 import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
-import javafx.scene.shape.Cylinder;
-import javafx.scene.shape.Line;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
 import javafx.scene.shape.TriangleMesh;
-import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Scale;
-import javafx.scene.transform.Translate;
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
 
 /**
  * Class to store metadata of a mesh
+ * <p>
+ * Vertices and elements are stored in primitive arrays (struct of arrays). The JavaFX points and faces
+ * are only the rendering copy of these arrays and are filled once by the {@link Builder}.
+ * </p>
  *
  * @author rhajou
  */
 @EqualsAndHashCode(callSuper = true)
 public class CFDTriangleMesh extends TriangleMesh {
-    // map vertex id to 3D point
+    // stroke width of the 2D border, in pixels at zoom 1
+    private static final double BORDER_STROKE_WIDTH = 1.0;
+    // radius of the 3D border tubes, in pixels at zoom 1
+    private static final double TUBE_RADIUS = 0.1;
+    // x, y, z of each vertex as read in the mesh file (z = 0 in 2D)
     @Getter
-    private final Map<Integer, Point3D> vertexMap = new HashMap<>();
-    // list of triangles / faces in the mesh
+    private double[] coordinates = new double[0];
+    // 3 vertices (0-based) per triangle / face in the mesh
     @Getter
-    private final List<MyTriangle> triangles = new ArrayList<>();
+    private int[] triangles = new int[0];
+    // 2 vertices (0-based) per border line
     @Getter
-    private final List<MyTriangle> borderLines = new ArrayList<>();
+    private int[] borderLines = new int[0];
+    // 4 vertices (0-based) per tetrahedron of a volume mesh (not rendered, the triangles are its boundary)
+    @Getter
+    private int[] tetrahedra = new int[0];
     @Getter
     @Setter
     private double scale;
@@ -45,43 +54,65 @@ public class CFDTriangleMesh extends TriangleMesh {
     @Setter
     private Color color;
     private boolean is3D = false;
+    // border edges (2 vertices per edge), computed on first use
+    @EqualsAndHashCode.Exclude
+    private volatile int[] borderEdges;
+    // edges of the triangles without duplicates (2 vertices per edge), computed on first use
+    @EqualsAndHashCode.Exclude
+    private volatile int[] edges;
+    // spatial index for picking and point location, built on first use
+    @EqualsAndHashCode.Exclude
+    private volatile MeshSpatialIndex spatialIndex;
+    // tubes of the 3D border edges and their radius, computed on first use
+    @EqualsAndHashCode.Exclude
+    private TriangleMesh borderTubes;
+    @EqualsAndHashCode.Exclude
+    private double borderTubesRadius;
 
     /**
-     * Add a point to the mesh
-     * Add the point to the vertex map
+     * Create a builder to bulk load a mesh
      *
-     * @param point    the point coordinates to add
-     * @param vertexId vertex ID
+     * @return a new builder
      */
-    public void addPoint(Point3D point, int vertexId) {
-        getPoints().addAll((float) point.getX(), (float) point.getY(), (float) point.getZ());
-        vertexMap.put(vertexId, new Point3D(point.getX(), point.getY(), point.getZ()));
-        if (point.getZ() != 0) {
-            is3D = true;
-        }
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * Add a borderline. This will help us later to identify easily the border of the mesh
-     *
-     * @param vertex1 first vertex of the line
-     * @param vertex2 second vertex of the line
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return coordinates.length / 3;
+    }
+
+    /**
+     * @return the number of triangles / faces
+     */
+    public int getTriangleCount() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * @return the number of border lines
      */
-    public void addBorderLine(int vertex1, int vertex2) {
-        // it's a border line and not a triangle => back to vertext1
-        borderLines.add(new MyTriangle(vertex1, vertex2, vertex1));
+    public int getBorderLineCount() {
+        return borderLines.length / 2;
     }
 
     /**
-     * Add a triangle / face to the mesh based on 3 vertices
+     * @return the number of tetrahedra
+     */
+    public int getTetrahedronCount() {
+        return tetrahedra.length / 4;
+    }
+
+    /**
+     * Count the edges of the triangles which are not shared by exactly 2 triangles
      *
-     * @param vertex1 first vertex of the triangle
-     * @param vertex2 second vertex of the triangle
-     * @param vertex3 third vertex of the triangle
+     * @return 0 for a closed (watertight) surface
      */
-    public void addTriangleAndLines(int vertex1, int vertex2, int vertex3) {
-        getFaces().addAll(vertex1, 0, vertex2, 0, vertex3, 0);
-        triangles.add(new MyTriangle(vertex1, vertex2, vertex3));
+    public int countOpenEdges() {
+        return MeshTopology.countOpenEdges(triangles);
     }
 
     /**
@@ -91,174 +122,185 @@ public class CFDTriangleMesh extends TriangleMesh {
      * @return the new mesh with the new object
      */
     public CFDTriangleMesh merge(CFDTriangleMesh objectMesh) {
-        // clone this object
-        CFDTriangleMesh combinedMesh = new CFDTriangleMesh();
-        // add all points of the current object
-        combinedMesh.getPoints().addAll(this.getPoints());
-        // add all vertex map of the current object
-        combinedMesh.getVertexMap().putAll(this.getVertexMap());
-        // add all triangles / faces of the current object
-        combinedMesh.getFaces().addAll(this.getFaces());
-        // add texCoords of the current object
-        combinedMesh.getTexCoords().addAll(this.getTexCoords());
-
-        int nbVertex = vertexMap.size();
-        objectMesh.getVertexMap().forEach((key, value) ->
-                combinedMesh.getVertexMap().put(key + nbVertex, value));
-        combinedMesh.getTexCoords().addAll(objectMesh.getTexCoords());
-
-        objectMesh.getTriangles().forEach(triangle -> {
-            combinedMesh.addTriangleAndLines(
-                    triangle.getVertex1() + nbVertex,
-                    triangle.getVertex2() + nbVertex,
-                    triangle.getVertex3() + nbVertex
-            );
-        });
-        return combinedMesh;
+        int nbVertex = getVertexCount();
+        return builder()
+                .coordinates(concat(coordinates, objectMesh.getCoordinates()))
+                .triangles(concat(triangles, offset(objectMesh.getTriangles(), nbVertex)))
+                .borderLines(concat(borderLines, offset(objectMesh.getBorderLines(), nbVertex)))
+                .tetrahedra(concat(tetrahedra, offset(objectMesh.getTetrahedra(), nbVertex)))
+                .build();
     }
 
-    /**
-     * Parse borderlines represented as triangles and create colored lines
-     *
-     * @return the lines
-     */
-    private Set<EdgeKey> detectBorderEdges() {
-        // Finding the limits of volume
-        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
-        double minZ = Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
-
-        for (Point3D point : vertexMap.values()) {
-            minX = Math.min(minX, point.getX());
-            maxX = Math.max(maxX, point.getX());
-            minY = Math.min(minY, point.getY());
-            maxY = Math.max(maxY, point.getY());
-            minZ = Math.min(minZ, point.getZ());
-            maxZ = Math.max(maxZ, point.getZ());
-        }
+    private static double[] concat(double[] first, double[] second) {
+        double[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
 
-        Set<EdgeKey> borderEdges = new HashSet<>();
-        double tolerance = 0.001; // Tolérance pour la comparaison des flottants
+    private static int[] concat(int[] first, int[] second) {
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
 
-        // For each triangle
-        for (MyTriangle triangle : triangles) {
-            checkAndAddBorderEdge(triangle.vertex1, triangle.vertex2, minX, maxX, minY, maxY, minZ, maxZ, tolerance, borderEdges);
-            checkAndAddBorderEdge(triangle.vertex2, triangle.vertex3, minX, maxX, minY, maxY, minZ, maxZ, tolerance, borderEdges);
-            checkAndAddBorderEdge(triangle.vertex3, triangle.vertex1, minX, maxX, minY, maxY, minZ, maxZ, tolerance, borderEdges);
+    private static int[] offset(int[] vertices, int offset) {
+        int[] result = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            result[i] = vertices[i] + offset;
         }
-
-        return borderEdges;
+        return result;
     }
 
-    private void checkAndAddBorderEdge(int v1, int v2, double minX, double maxX, double minY, double maxY,
-                                       double minZ, double maxZ, double tolerance, Set<EdgeKey> borderEdges) {
-        Point3D p1 = vertexMap.get(v1);
-        Point3D p2 = vertexMap.get(v2);
-
-        // An edge is on the contour if its two points are on the same outer face.
-        boolean isOnXFace = (Math.abs(p1.getX() - minX) < tolerance && Math.abs(p2.getX() - minX) < tolerance) ||
-                (Math.abs(p1.getX() - maxX) < tolerance && Math.abs(p2.getX() - maxX) < tolerance);
-
-        boolean isOnYFace = (Math.abs(p1.getY() - minY) < tolerance && Math.abs(p2.getY() - minY) < tolerance) ||
-                (Math.abs(p1.getY() - maxY) < tolerance && Math.abs(p2.getY() - maxY) < tolerance);
-
-        boolean isOnZFace = (Math.abs(p1.getZ() - minZ) < tolerance && Math.abs(p2.getZ() - minZ) < tolerance) ||
-                (Math.abs(p1.getZ() - maxZ) < tolerance && Math.abs(p2.getZ() - maxZ) < tolerance);
+    /**
+     * Fill the JavaFX arrays from the primitive arrays, each observable array is set with a single call
+     */
+    private void load() {
+        float[] points = new float[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            points[i] = (float) coordinates[i];
+        }
+        for (int i = 2; i < coordinates.length && !is3D; i += 3) {
+            is3D = coordinates[i] != 0;
+        }
+        int[] faces = new int[triangles.length * 2];
+        for (int i = 0; i < triangles.length; i++) {
+            // texture index is always 0
+            faces[2 * i] = triangles[i];
+        }
+        getPoints().setAll(points);
+        getTexCoords().setAll(1, 1);
+        getFaces().setAll(faces);
+    }
 
-        if (isOnXFace || isOnYFace || isOnZFace) {
-            borderEdges.add(new EdgeKey(v1, v2));
+    /**
+     * Get the border of the mesh, an edge or a face is on the border if it is used by only one element:
+     * <ul>
+     *     <li>2D: the border lines of the mesh file, or the edges used by only one triangle</li>
+     *     <li>volume mesh: the edges of the boundary faces (the rendered triangles)</li>
+     *     <li>surface mesh: the edges used by only one triangle, or all its edges if the surface is closed</li>
+     * </ul>
+     * The edges are computed once and cached in the mesh.
+     *
+     * @return 2 vertices (0-based) per border edge
+     */
+    public int[] getBorderEdges() {
+        int[] edges = borderEdges;
+        if (edges == null) {
+            if (borderLines.length > 0) {
+                edges = borderLines;
+            } else if (tetrahedra.length > 0) {
+                edges = getEdges();
+            } else {
+                edges = MeshTopology.boundaryEdges(triangles);
+                if (edges.length == 0 && is3D) {
+                    edges = getEdges();
+                }
+            }
+            borderEdges = edges;
         }
+        return edges;
     }
 
     /**
-     * Parse all triangles and create lines
+     * Get the edges of the triangles, each edge shared by several triangles is listed once.
+     * The edges are computed once and cached in the mesh.
      *
-     * @param scale the scale of the line
-     * @param color the line color
-     * @return the lines
+     * @return 2 vertices (0-based) per edge
      */
-    public List<Node> createColoredLines(double scale, Color color) {
-        List<Node> lines = new ArrayList<>();
-        triangles.forEach(triangle -> {
-            lines.add(createLine(triangle.getVertex1(), triangle.getVertex2(), scale, color));
-            lines.add(createLine(triangle.getVertex2(), triangle.getVertex3(), scale, color));
-            lines.add(createLine(triangle.getVertex3(), triangle.getVertex1(), scale, color));
-        });
-        return lines;
+    public int[] getEdges() {
+        int[] uniqueEdges = edges;
+        if (uniqueEdges == null) {
+            uniqueEdges = MeshTopology.uniqueEdges(triangles);
+            edges = uniqueEdges;
+        }
+        return uniqueEdges;
     }
 
-    public List<Node> createColoredBorderLines(double scale, Color color) {
-        List<Node> lines = new ArrayList<>();
-        if (is3D) {
-            Set<EdgeKey> borderEdges = detectBorderEdges();
-            for (EdgeKey edge : borderEdges) {
-                lines.add(createLine3D(edge.v1, edge.v2, scale, color));
+    /**
+     * Get the spatial index of the mesh (nearest vertex, containing element, picking).
+     * The index is built once, in parallel, and cached in the mesh.
+     *
+     * @return the spatial index
+     */
+    public MeshSpatialIndex getSpatialIndex() {
+        MeshSpatialIndex index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    index = new MeshSpatialIndex(this);
+                    spatialIndex = index;
+                }
             }
-        } else {
-            borderLines.forEach(
-                    triangle -> lines.add(createLine(triangle.getVertex1(), triangle.getVertex2(), scale, color))
-            );
         }
-        return lines;
+        return index;
     }
 
-    private Node createLine3D(int vertex1, int vertex2, double scale, Color color) {
-        Point3D point1 = getVertexCoordinates(vertex1);
-        Point3D point2 = getVertexCoordinates(vertex2);
-
-        // Create a 3D line using a thin cylinder
-        Cylinder line3D = new Cylinder(0.1, 1); // Rayon très fin
-        line3D.setMaterial(new PhongMaterial(color));
-
-        // Calculate the center point and length
-        Point3D midpoint = point1.midpoint(point2);
-        Point3D direction = point2.subtract(point1);
-        double length = direction.magnitude();
-
-        // Calculate rotation
-        Point3D yAxis = new Point3D(0, 1, 0);
-        Point3D rotationAxis = yAxis.crossProduct(direction);
-        double angle = Math.acos(yAxis.dotProduct(direction.normalize()));
-
-        // Apply transformations
-        line3D.getTransforms().addAll(
-                new Translate(midpoint.getX() * scale, -midpoint.getY() * scale, midpoint.getZ() * scale),
-                new Rotate(-Math.toDegrees(angle), rotationAxis),
-                new Scale(1, length * scale, 1)
-        );
-
-        return line3D;
+    /**
+     * Create the wireframe of the mesh as a single node: the triangles are drawn as lines by the 3D pipeline
+     * instead of one {@link javafx.scene.shape.Line} node per edge
+     *
+     * @param scale the scale of the mesh
+     * @param color the line color
+     * @return the mesh view
+     */
+    public MeshView createWireframe(double scale, Color color) {
+        MeshView meshView = new MeshView(this);
+        meshView.setDrawMode(DrawMode.LINE);
+        // 2D triangles look down, they must be drawn whatever their orientation
+        meshView.setCullFace(CullFace.NONE);
+        meshView.setMaterial(new PhongMaterial(color));
+        // ⚠️JAVAFX_INVERTED_AXIS_Y
+        meshView.getTransforms().add(new Scale(scale, -scale, scale));
+        return meshView;
     }
 
-    private Line createLine(int vertex1, int vertex2, double scale, Color color) {
-        Point3D point1 = getVertexCoordinates(vertex1);
-        Point3D point2 = getVertexCoordinates(vertex2);
-
-        Line line = new Line(
-                point1.getX() * scale, -point1.getY() * scale,
-                point2.getX() * scale, -point2.getY() * scale
-        );
-        line.setStroke(color);
-
-        double distance = Math.sqrt(
-                Math.pow((point1.getX() - point2.getX()) * scale, 2) +
-                        Math.pow((point1.getY() - point2.getY()) * scale, 2) +
-                        Math.pow((point1.getZ() - point2.getZ()) * scale, 2)
-        );
-
-        double baseStrokeWidth = 0.1;
-        line.setStrokeWidth(baseStrokeWidth * distance);
-        return line;
+    /**
+     * Create the border edges of the mesh with the given color
+     * <ul>
+     *     <li>2D: a single path, consecutive edges sharing a vertex are chained</li>
+     *     <li>3D: a single mesh of thin tubes sharing one material</li>
+     * </ul>
+     *
+     * @param scale the scale of the line
+     * @param color the line color
+     * @return the node holding all the border edges
+     * @see #getBorderEdges()
+     */
+    public Node createColoredBorderLines(double scale, Color color) {
+        int[] edges = getBorderEdges();
+        if (is3D) {
+            MeshView tubes = new MeshView(getBorderTubes(edges, TUBE_RADIUS / scale));
+            tubes.setCullFace(CullFace.NONE);
+            tubes.setMaterial(new PhongMaterial(color));
+            // ⚠️JAVAFX_INVERTED_AXIS_Y
+            tubes.getTransforms().add(new Scale(scale, -scale, scale));
+            return tubes;
+        }
+        List<PathElement> elements = new ArrayList<>();
+        int lastVertex = -1;
+        for (int i = 0; i < edges.length; i += 2) {
+            if (edges[i] != lastVertex) {
+                elements.add(new MoveTo(coordinates[3 * edges[i]] * scale, -coordinates[3 * edges[i] + 1] * scale));
+            }
+            lastVertex = edges[i + 1];
+            elements.add(new LineTo(coordinates[3 * lastVertex] * scale, -coordinates[3 * lastVertex + 1] * scale));
+        }
+        Path path = new Path(elements);
+        path.setStroke(color);
+        path.setStrokeWidth(BORDER_STROKE_WIDTH);
+        return path;
     }
 
     /**
-     * Get the 3D point of a vertex
-     *
-     * @param vertex the vertex
-     * @return the 3D point
+     * The tubes are built once for a given radius (i.e. a given scale) and shared by the views
      */
-    private Point3D getVertexCoordinates(int vertex) {
-        return vertexMap.get(vertex);
+    private synchronized TriangleMesh getBorderTubes(int[] edges, double radius) {
+        if (borderTubes == null || borderTubesRadius != radius) {
+            borderTubes = TubeMeshBuilder.build(coordinates, edges, radius);
+            borderTubesRadius = radius;
+        }
+        return borderTubes;
     }
 
     public boolean is3D() {
@@ -266,44 +308,127 @@ public class CFDTriangleMesh extends TriangleMesh {
     }
 
     /**
-     * Define a triangle object with 3 vertices
-     *
-     * @author rhajou
+     * Builder to load a mesh in bulk (primitive arrays) or element by element.
+     * The JavaFX arrays of the mesh are filled only once when {@link #build()} is called.
      */
-    @Getter
-    @AllArgsConstructor
-    private static class MyTriangle {
-        private final int vertex1;
-        private final int vertex2;
-        private final int vertex3;
-    }
+    public static final class Builder {
+        private double[] coordinates = new double[0];
+        private int coordinatesSize;
+        private int[] triangles = new int[0];
+        private int trianglesSize;
+        private int[] borderLines = new int[0];
+        private int borderLinesSize;
+        private int[] tetrahedra = new int[0];
+
+        private Builder() {
+        }
 
-    @Getter
-    private static class EdgeKey {
-        private final int v1, v2;
-
-        public EdgeKey(int v1, int v2) {
-            // Toujours stocker dans l'ordre pour assurer l'unicité
-            if (v1 < v2) {
-                this.v1 = v1;
-                this.v2 = v2;
-            } else {
-                this.v1 = v2;
-                this.v2 = v1;
-            }
+        /**
+         * @param coordinates x, y, z of each vertex
+         * @return this builder
+         */
+        public Builder coordinates(double[] coordinates) {
+            this.coordinates = coordinates;
+            this.coordinatesSize = coordinates.length;
+            return this;
+        }
+
+        /**
+         * @param triangles 3 vertices (0-based) per triangle
+         * @return this builder
+         */
+        public Builder triangles(int[] triangles) {
+            this.triangles = triangles;
+            this.trianglesSize = triangles.length;
+            return this;
+        }
+
+        /**
+         * @param borderLines 2 vertices (0-based) per border line
+         * @return this builder
+         */
+        public Builder borderLines(int[] borderLines) {
+            this.borderLines = borderLines;
+            this.borderLinesSize = borderLines.length;
+            return this;
+        }
+
+        /**
+         * @param tetrahedra 4 vertices (0-based) per tetrahedron
+         * @return this builder
+         */
+        public Builder tetrahedra(int[] tetrahedra) {
+            this.tetrahedra = tetrahedra;
+            return this;
+        }
+
+        /**
+         * Append a vertex, its index is the number of vertices already added
+         *
+         * @return this builder
+         */
+        public Builder addVertex(double x, double y, double z) {
+            coordinates = ensureCapacity(coordinates, coordinatesSize + 3);
+            coordinates[coordinatesSize++] = x;
+            coordinates[coordinatesSize++] = y;
+            coordinates[coordinatesSize++] = z;
+            return this;
+        }
+
+        /**
+         * Append a triangle / face based on 3 vertices (0-based)
+         *
+         * @return this builder
+         */
+        public Builder addTriangle(int vertex1, int vertex2, int vertex3) {
+            triangles = ensureCapacity(triangles, trianglesSize + 3);
+            triangles[trianglesSize++] = vertex1;
+            triangles[trianglesSize++] = vertex2;
+            triangles[trianglesSize++] = vertex3;
+            return this;
+        }
+
+        /**
+         * Append a borderline. This will help us later to identify easily the border of the mesh
+         *
+         * @return this builder
+         */
+        public Builder addBorderLine(int vertex1, int vertex2) {
+            borderLines = ensureCapacity(borderLines, borderLinesSize + 2);
+            borderLines[borderLinesSize++] = vertex1;
+            borderLines[borderLinesSize++] = vertex2;
+            return this;
+        }
+
+        /**
+         * Build the mesh, the arrays given to the builder are owned by the mesh afterwards
+         *
+         * @return the mesh
+         */
+        public CFDTriangleMesh build() {
+            CFDTriangleMesh mesh = new CFDTriangleMesh();
+            mesh.coordinates = trim(coordinates, coordinatesSize);
+            mesh.triangles = trim(triangles, trianglesSize);
+            mesh.borderLines = trim(borderLines, borderLinesSize);
+            mesh.tetrahedra = tetrahedra;
+            mesh.load();
+            return mesh;
+        }
+
+        private static double[] ensureCapacity(double[] array, int capacity) {
+            return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, 2 * array.length));
+        }
+
+        private static int[] ensureCapacity(int[] array, int capacity) {
+            return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, 2 * array.length));
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            EdgeKey edgeKey = (EdgeKey) o;
-            return v1 == edgeKey.v1 && v2 == edgeKey.v2;
+        private static double[] trim(double[] array, int size) {
+            return size == array.length ? array : Arrays.copyOf(array, size);
         }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(v1, v2);
+        private static int[] trim(int[] array, int size) {
+            return size == array.length ? array : Arrays.copyOf(array, size);
         }
     }
 }
\ No newline at end of file
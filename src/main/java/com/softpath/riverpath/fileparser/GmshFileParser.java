@@ -0,0 +1,261 @@
+package com.softpath.riverpath.fileparser;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class to read a gmsh .msh file (ASCII, format 2.2 and 4.x) and convert it to a mesh / .t file.
+ * <p>
+ * Java version of gmsh4mtc.py: only triangles and tetrahedra are kept, a plane mesh is reduced to 2D
+ * with normals looking down, the boundary edges (2D) or faces (3D) are detected and the unused nodes are removed.
+ * The file is memory mapped and tokenized without creating a String per line.
+ * </p>
+ */
+public class GmshFileParser {
+
+    private static final String EXTENSION = "msh";
+    // gmsh element types
+    private static final int TRIANGLE = 2;
+    private static final int TETRAHEDRON = 4;
+
+    /**
+     * Check if a file can be read by this parser (ASCII .msh file of format 2 or 4)
+     *
+     * @param file the file
+     * @return true if the file is supported
+     */
+    public static boolean isSupported(File file) {
+        if (!FilenameUtils.isExtension(file.getName(), EXTENSION) || file.length() > Integer.MAX_VALUE) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII)) {
+            String keyword = reader.readLine();
+            String format = reader.readLine();
+            if (keyword == null || format == null || !keyword.strip().equals("$MeshFormat")) {
+                return false;
+            }
+            String[] tokens = format.strip().split("\\s+");
+            int majorVersion = (int) Double.parseDouble(tokens[0]);
+            return (majorVersion == 2 || majorVersion == 4) && tokens.length > 1 && tokens[1].equals("0");
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read a .msh file and convert it to a mesh
+     *
+     * @param file the .msh file
+     * @return the mesh (tetrahedra and boundary faces in 3D, triangles and border lines in 2D)
+     */
+    public static CFDTriangleMesh parseFile2TriangleMesh(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            GmshContent content = new GmshContent(new MeshFileTokenizer(buffer, 0, buffer.limit()));
+            content.read();
+            return content.toMesh();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read gmsh file " + file, e);
+        }
+    }
+
+    /**
+     * Convert a .msh file to a .t file
+     *
+     * @param mshFile the .msh file
+     * @param tFile   the .t file to write
+     * @return the converted mesh
+     */
+    public static CFDTriangleMesh convertFile2T(File mshFile, File tFile) {
+        CFDTriangleMesh mesh = parseFile2TriangleMesh(mshFile);
+        MeshFileWriter.writeTriangleMesh2File(mesh, tFile);
+        return mesh;
+    }
+
+    /**
+     * Nodes and elements read in a .msh file, vertices are indexes of nodes in reading order
+     */
+    private static class GmshContent {
+        private final MeshFileTokenizer tokenizer;
+        private double version;
+        private double[] coordinates = new double[0];
+        private int numberOfNodes;
+        // node tag => node index, -1 for unknown tags
+        private int[] tagToIndex = new int[0];
+        private final IntArrayBuilder triangles = new IntArrayBuilder(1 << 10);
+        private final IntArrayBuilder tetrahedra = new IntArrayBuilder(1 << 10);
+
+        private GmshContent(MeshFileTokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        private void read() {
+            while (!tokenizer.isEndOfInput()) {
+                // only keywords are decoded, the lines of other sections are skipped
+                if (tokenizer.peek() == '$') {
+                    switch (tokenizer.nextToken()) {
+                        case "$MeshFormat" -> {
+                            tokenizer.nextLine();
+                            version = tokenizer.nextDouble();
+                        }
+                        case "$Nodes" -> {
+                            tokenizer.nextLine();
+                            readNodes();
+                        }
+                        case "$Elements" -> {
+                            tokenizer.nextLine();
+                            readElements();
+                        }
+                        default -> {
+                            // other sections are ignored
+                        }
+                    }
+                }
+                tokenizer.nextLine();
+            }
+        }
+
+        private void readNodes() {
+            if (version < 4) {
+                int count = tokenizer.nextInt();
+                tokenizer.nextLine();
+                ensureNodeCapacity(count, count);
+                for (int i = 0; i < count; i++) {
+                    readNode(tokenizer.nextInt());
+                }
+                return;
+            }
+            int numberOfBlocks = tokenizer.nextInt();
+            int count = tokenizer.nextInt();
+            // format 4.1 gives the max tag, format 4.0 does not
+            int maxTag = tokenizer.isEndOfLine() ? count : Math.max(count, skipAndReadLast(2));
+            tokenizer.nextLine();
+            ensureNodeCapacity(count, maxTag);
+            for (int block = 0; block < numberOfBlocks; block++) {
+                tokenizer.nextInt();
+                tokenizer.nextInt();
+                tokenizer.nextInt();
+                int numberOfNodesInBlock = tokenizer.nextInt();
+                tokenizer.nextLine();
+                if (version < 4.1) {
+                    // tag x y z on each line
+                    for (int i = 0; i < numberOfNodesInBlock; i++) {
+                        readNode(tokenizer.nextInt());
+                    }
+                } else {
+                    // the tags of the block and then the coordinates of the block
+                    int[] tags = new int[numberOfNodesInBlock];
+                    for (int i = 0; i < numberOfNodesInBlock; i++) {
+                        tags[i] = tokenizer.nextInt();
+                        tokenizer.nextLine();
+                    }
+                    for (int tag : tags) {
+                        readNode(tag);
+                    }
+                }
+            }
+        }
+
+        private void readNode(int tag) {
+            if (tag >= tagToIndex.length || 3 * numberOfNodes == coordinates.length) {
+                ensureNodeCapacity(1, tag);
+            }
+            tagToIndex[tag] = numberOfNodes;
+            int offset = 3 * numberOfNodes++;
+            coordinates[offset] = tokenizer.nextDouble();
+            coordinates[offset + 1] = tokenizer.nextDouble();
+            coordinates[offset + 2] = tokenizer.nextDouble();
+            // parametric coordinates are ignored
+            tokenizer.nextLine();
+        }
+
+        private void ensureNodeCapacity(int additionalNodes, int maxTag) {
+            int capacity = 3 * (numberOfNodes + additionalNodes);
+            if (capacity > coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, Math.max(capacity, 2 * coordinates.length));
+            }
+            if (maxTag >= tagToIndex.length) {
+                int oldLength = tagToIndex.length;
+                tagToIndex = Arrays.copyOf(tagToIndex, Math.max(maxTag + 1, 2 * oldLength));
+                Arrays.fill(tagToIndex, oldLength, tagToIndex.length, -1);
+            }
+        }
+
+        private void readElements() {
+            if (version < 4) {
+                int count = tokenizer.nextInt();
+                tokenizer.nextLine();
+                for (int i = 0; i < count; i++) {
+                    tokenizer.nextInt();
+                    int type = tokenizer.nextInt();
+                    int numberOfTags = tokenizer.nextInt();
+                    skipAndReadLast(numberOfTags);
+                    readElement(type);
+                }
+                return;
+            }
+            int numberOfBlocks = tokenizer.nextInt();
+            tokenizer.nextLine();
+            for (int block = 0; block < numberOfBlocks; block++) {
+                tokenizer.nextInt();
+                tokenizer.nextInt();
+                int type = tokenizer.nextInt();
+                int numberOfElementsInBlock = tokenizer.nextInt();
+                tokenizer.nextLine();
+                for (int i = 0; i < numberOfElementsInBlock; i++) {
+                    tokenizer.nextInt();
+                    readElement(type);
+                }
+            }
+        }
+
+        /**
+         * Read the nodes of an element (the element tag is already read)
+         */
+        private void readElement(int type) {
+            if (type == TRIANGLE) {
+                for (int i = 0; i < 3; i++) {
+                    triangles.add(toIndex(tokenizer.nextInt()));
+                }
+            } else if (type == TETRAHEDRON) {
+                for (int i = 0; i < 4; i++) {
+                    tetrahedra.add(toIndex(tokenizer.nextInt()));
+                }
+            }
+            // other elements (points, lines, quadrangles...) are ignored
+            tokenizer.nextLine();
+        }
+
+        private int toIndex(int tag) {
+            int index = tag >= 0 && tag < tagToIndex.length ? tagToIndex[tag] : -1;
+            if (index < 0) {
+                throw new IllegalStateException("Unknown node " + tag + " in gmsh elements");
+            }
+            return index;
+        }
+
+        /**
+         * Skip integers of the current line and return the last one
+         */
+        private int skipAndReadLast(int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                value = tokenizer.nextInt();
+            }
+            return value;
+        }
+
+        private CFDTriangleMesh toMesh() {
+            return MtcMeshConverter.toMesh(Arrays.copyOf(coordinates, 3 * numberOfNodes), triangles.toArray(), tetrahedra.toArray());
+        }
+    }
+}
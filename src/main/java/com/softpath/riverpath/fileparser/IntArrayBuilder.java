@@ -0,0 +1,34 @@
+package com.softpath.riverpath.fileparser;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints (no boxing)
+ */
+final class IntArrayBuilder {
+
+    private int[] values;
+    private int size;
+
+    IntArrayBuilder(int initialCapacity) {
+        values = new int[Math.max(initialCapacity, 16)];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * values.length);
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the values with the exact size
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,245 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+/**
+ * Binary copy (.tbin) of a parsed .t file, written next to it.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ *  0  int    magic "TBIN"
+ *  4  int    version
+ *  8  long   size of the .t file
+ * 16  long   last modification time of the .t file (ms)
+ * 24  long   content hash of the .t file
+ * 32  int    number of vertices
+ * 36  int    number of triangles
+ * 40  int    number of border lines
+ * 44  int    number of tetrahedra
+ * 48  double minX, minY, minZ, maxX, maxY, maxZ
+ * 96  double coordinates[3 * vertices]
+ *     int    triangles[3 * triangles]
+ *     int    borderLines[2 * border lines]
+ *     int    tetrahedra[4 * tetrahedra]
+ * </pre>
+ * The cache is used only if size, modification time and content hash still match the .t file.
+ * </p>
+ */
+@Slf4j
+final class MeshBinaryCache {
+
+    static final String EXTENSION = "tbin";
+    private static final int MAGIC = 0x4E494254; // "TBIN" read as little-endian int
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 96;
+    private static final int BUFFER_SIZE = 1 << 23;
+    // the hash of a file is computed by chunks of fixed size (in parallel) and then combined in order
+    private static final int HASH_CHUNK_SIZE = 1 << 24;
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+    private MeshBinaryCache() {
+    }
+
+    /**
+     * Get the cache file of a .t file
+     *
+     * @param meshFile the .t file
+     * @return the .tbin file (may not exist)
+     */
+    static File getCacheFile(File meshFile) {
+        return new File(meshFile.getParentFile(), FilenameUtils.getBaseName(meshFile.getName()) + "." + EXTENSION);
+    }
+
+    /**
+     * Load the mesh from the cache of a .t file
+     *
+     * @param meshFile the .t file
+     * @return the mesh or null if there is no valid cache
+     */
+    static CFDTriangleMesh read(File meshFile) {
+        File cacheFile = getCacheFile(meshFile);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            Path source = meshFile.toPath();
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getLong(8) != Files.size(source)
+                    || header.getLong(16) != Files.getLastModifiedTime(source).toMillis()) {
+                return null;
+            }
+            int vertexCount = header.getInt(32);
+            int triangleCount = header.getInt(36);
+            int borderLineCount = header.getInt(40);
+            int tetrahedronCount = header.getInt(44);
+            long expectedSize = HEADER_SIZE + 24L * vertexCount + 12L * triangleCount + 8L * borderLineCount
+                    + 16L * tetrahedronCount;
+            if (channel.size() != expectedSize || header.getLong(24) != hash(source)) {
+                return null;
+            }
+            double[] coordinates = new double[3 * vertexCount];
+            int[] triangles = new int[3 * triangleCount];
+            int[] borderLines = new int[2 * borderLineCount];
+            int[] tetrahedra = new int[4 * tetrahedronCount];
+            long position = HEADER_SIZE;
+            position = readBlock(channel, position, 8L * coordinates.length, block -> block.asDoubleBuffer().get(coordinates));
+            position = readBlock(channel, position, 4L * triangles.length, block -> block.asIntBuffer().get(triangles));
+            position = readBlock(channel, position, 4L * borderLines.length, block -> block.asIntBuffer().get(borderLines));
+            readBlock(channel, position, 4L * tetrahedra.length, block -> block.asIntBuffer().get(tetrahedra));
+            return CFDTriangleMesh.builder()
+                    .coordinates(coordinates)
+                    .tetrahedra(tetrahedra)
+                    .triangles(triangles)
+                    .borderLines(borderLines)
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring mesh cache {}", cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the cache of a .t file. A failure is only logged since the cache is optional.
+     *
+     * @param meshFile the .t file
+     * @param mesh     the mesh parsed from the .t file
+     */
+    static void write(File meshFile, CFDTriangleMesh mesh) {
+        File cacheFile = getCacheFile(meshFile);
+        Path source = meshFile.toPath();
+        double[] coordinates = mesh.getCoordinates();
+        int[] triangles = mesh.getTriangles();
+        int[] borderLines = mesh.getBorderLines();
+        int[] tetrahedra = mesh.getTetrahedra();
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(Files.size(source))
+                    .putLong(Files.getLastModifiedTime(source).toMillis())
+                    .putLong(hash(source))
+                    .putInt(mesh.getVertexCount())
+                    .putInt(mesh.getTriangleCount())
+                    .putInt(mesh.getBorderLineCount())
+                    .putInt(mesh.getTetrahedronCount());
+            for (double bound : boundingBox(coordinates)) {
+                buffer.putDouble(bound);
+            }
+            for (double coordinate : coordinates) {
+                if (buffer.remaining() < Double.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putDouble(coordinate);
+            }
+            for (int[] block : new int[][]{triangles, borderLines, tetrahedra}) {
+                for (int vertex : block) {
+                    if (buffer.remaining() < Integer.BYTES) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putInt(vertex);
+                }
+            }
+            flush(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to write mesh cache {}", cacheFile, e);
+            cacheFile.delete();
+        }
+    }
+
+    /**
+     * Compute a 64 bits content hash of a file. The file is mapped by chunks hashed in parallel.
+     *
+     * @param path the file
+     * @return the hash
+     * @throws IOException if the file can't be read
+     */
+    static long hash(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int numberOfChunks = (int) ((size + HASH_CHUNK_SIZE - 1) / HASH_CHUNK_SIZE);
+            long[] chunkHashes = new long[numberOfChunks];
+            LongStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+                long offset = chunk * HASH_CHUNK_SIZE;
+                try {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                            Math.min(HASH_CHUNK_SIZE, size - offset));
+                    chunkHashes[(int) chunk] = hashChunk(buffer.order(ByteOrder.LITTLE_ENDIAN));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            long hash = size * PRIME_3;
+            for (long chunkHash : chunkHashes) {
+                hash = mix(hash * PRIME_1 + chunkHash);
+            }
+            return hash;
+        }
+    }
+
+    private static long hashChunk(ByteBuffer buffer) {
+        int length = buffer.limit();
+        long hash = length * PRIME_2;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            hash = Long.rotateLeft(hash ^ (buffer.getLong(i) * PRIME_1), 31) * PRIME_2;
+        }
+        for (; i < length; i++) {
+            hash = Long.rotateLeft(hash ^ ((buffer.get(i) & 0xFF) * PRIME_3), 11) * PRIME_1;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static double[] boundingBox(double[] coordinates) {
+        double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE,
+                -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < coordinates.length; i++) {
+            box[i % 3] = Math.min(box[i % 3], coordinates[i]);
+            box[3 + i % 3] = Math.max(box[3 + i % 3], coordinates[i]);
+        }
+        return box;
+    }
+
+    private static long readBlock(FileChannel channel, long position, long size, Consumer<ByteBuffer> reader) throws IOException {
+        if (size > 0) {
+            MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            reader.accept(block.order(ByteOrder.LITTLE_ENDIAN));
+        }
+        return position + size;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,11 +1,17 @@
 package com.softpath.riverpath.fileparser;
 
-import javafx.geometry.Point3D;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Class to parse .t and transform the content to MeshStructure object
@@ -14,14 +20,272 @@ import java.util.Scanner;
  */
 public class MeshFileParser {
 
+    // x, y and z for each node (z = 0 in 2D)
+    private static final int COORDINATES_PER_NODE = 3;
+    // the 4 vertices of a tetrahedron, the 3 vertices of a triangle (followed by 0 in 3D)
+    // or the 2 vertices of a border line followed by 0
+    private static final int VERTICES_PER_ELEMENT = 4;
+    // below this size a chunk is not worth a task
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    // more chunks than workers to balance lines of different lengths (nodes vs elements)
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * How the .t file is read
+     */
+    public enum ParsingMode {
+        /**
+         * Line by line with a {@link Scanner} (legacy mode)
+         */
+        SCANNER,
+        /**
+         * The file is memory mapped and tokenized byte by byte into primitive arrays
+         */
+        MAPPED,
+        /**
+         * Same as {@link #MAPPED} but the file is split in chunks at line boundaries which are parsed
+         * concurrently on the fork/join pool
+         */
+        PARALLEL
+    }
+
     /**
-     * Parse a .t file and return a MeshStructure object
+     * Parse a .t file and return a MeshStructure object.
+     * The binary cache (.tbin) of the file is used when it is still valid, otherwise the file is parsed
+     * and the cache is (re)written for the next time.
      *
      * @param file the file to parse
      * @return a MeshStructure object
      */
     public static CFDTriangleMesh parseFile2TriangleMesh(File file) {
-        CFDTriangleMesh triangleMesh = new CFDTriangleMesh();
+        CFDTriangleMesh cachedMesh = MeshBinaryCache.read(file);
+        if (cachedMesh != null) {
+            return cachedMesh;
+        }
+        CFDTriangleMesh triangleMesh = parseFile2TriangleMesh(file, ParsingMode.PARALLEL);
+        MeshBinaryCache.write(file, triangleMesh);
+        return triangleMesh;
+    }
+
+    /**
+     * Parse a .t file with the given mode and return a MeshStructure object
+     *
+     * @param file the file to parse
+     * @param mode the parsing mode
+     * @return a MeshStructure object
+     */
+    public static CFDTriangleMesh parseFile2TriangleMesh(File file, ParsingMode mode) {
+        return switch (mode) {
+            case SCANNER -> parseWithScanner(file);
+            case MAPPED -> parseMapped(file, false);
+            case PARALLEL -> parseMapped(file, true);
+        };
+    }
+
+    /**
+     * Memory map the .t file and decode nodes and elements directly from the bytes
+     *
+     * @param file     the file to parse
+     * @param parallel true to parse the chunks of the file concurrently
+     * @return the mesh
+     */
+    private static CFDTriangleMesh parseMapped(File file, boolean parallel) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // a single mapping is limited to 2GB
+                return parseWithScanner(file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int limit = MeshFileTokenizer.trimEnd(buffer, 0, (int) size);
+            MeshFileTokenizer tokenizer = new MeshFileTokenizer(buffer, 0, limit);
+            // Read metadata from the first line
+            int numberOfPoints = tokenizer.nextInt();
+            tokenizer.nextLine();
+            if (parallel) {
+                return parseBodyInParallel(buffer, tokenizer.getPosition(), limit, numberOfPoints);
+            }
+            return parseBody(buffer, tokenizer, limit, numberOfPoints);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Parse nodes then elements sequentially
+     *
+     * @param buffer         the file content
+     * @param tokenizer      the tokenizer positioned after the header line
+     * @param limit          the end of the content
+     * @param numberOfPoints the number of nodes given by the header
+     * @return the mesh
+     */
+    private static CFDTriangleMesh parseBody(ByteBuffer buffer, MeshFileTokenizer tokenizer, int limit,
+                                             int numberOfPoints) {
+        // Read 3D coordinates
+        double[] coordinates = new double[numberOfPoints * COORDINATES_PER_NODE];
+        for (int node = 0; node < numberOfPoints && !tokenizer.isEndOfInput(); node++) {
+            readNode(tokenizer, coordinates, node);
+        }
+        // all the remaining lines are elements
+        int numberOfElements = MeshFileTokenizer.countLines(buffer, tokenizer.getPosition(), limit);
+        int[] elements = new int[numberOfElements * VERTICES_PER_ELEMENT];
+        for (int element = 0; element < numberOfElements; element++) {
+            readElement(tokenizer, elements, element);
+        }
+        return buildMesh(coordinates, elements);
+    }
+
+    /**
+     * Parse nodes and elements concurrently.
+     * <ol>
+     *   <li>the body is split in chunks starting at line boundaries</li>
+     *   <li>the lines of each chunk are counted in parallel, a prefix sum gives the first line of each chunk</li>
+     *   <li>each chunk is parsed in parallel: a line before numberOfPoints is a node, the other ones are
+     *   elements. Every chunk writes a disjoint slice of the preallocated arrays</li>
+     * </ol>
+     *
+     * @param buffer         the file content
+     * @param from           the beginning of the body (after the header line)
+     * @param limit          the end of the content
+     * @param numberOfPoints the number of nodes given by the header
+     * @return the mesh
+     */
+    private static CFDTriangleMesh parseBodyInParallel(ByteBuffer buffer, int from, int limit, int numberOfPoints) {
+        int[] chunkStarts = splitAtLineBoundaries(buffer, from, limit);
+        int numberOfChunks = chunkStarts.length - 1;
+        // firstLines[c] = index of the first line of chunk c, firstLines[numberOfChunks] = number of lines
+        int[] firstLines = new int[numberOfChunks + 1];
+        IntStream.range(0, numberOfChunks).parallel().forEach(chunk ->
+                firstLines[chunk + 1] = MeshFileTokenizer.countLines(buffer, chunkStarts[chunk], chunkStarts[chunk + 1]));
+        for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+            firstLines[chunk + 1] += firstLines[chunk];
+        }
+        int numberOfElements = Math.max(0, firstLines[numberOfChunks] - numberOfPoints);
+        double[] coordinates = new double[numberOfPoints * COORDINATES_PER_NODE];
+        int[] elements = new int[numberOfElements * VERTICES_PER_ELEMENT];
+        IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+            MeshFileTokenizer tokenizer = new MeshFileTokenizer(buffer, chunkStarts[chunk], chunkStarts[chunk + 1]);
+            for (int line = firstLines[chunk]; !tokenizer.isEndOfInput(); line++) {
+                if (line < numberOfPoints) {
+                    readNode(tokenizer, coordinates, line);
+                } else {
+                    readElement(tokenizer, elements, line - numberOfPoints);
+                }
+            }
+        });
+        return buildMesh(coordinates, elements);
+    }
+
+    /**
+     * Split a byte range in chunks, every chunk (except the first one) starts right after a '\n'
+     *
+     * @param buffer the file content
+     * @param from   start of the range
+     * @param limit  end of the range
+     * @return the chunk starts followed by the limit
+     */
+    private static int[] splitAtLineBoundaries(ByteBuffer buffer, int from, int limit) {
+        int workers = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_WORKER;
+        int numberOfChunks = (int) Math.max(1, Math.min(workers, (long) (limit - from) / MIN_CHUNK_SIZE));
+        int[] chunkStarts = new int[numberOfChunks + 1];
+        chunkStarts[0] = from;
+        for (int chunk = 1; chunk < numberOfChunks; chunk++) {
+            int start = Math.max(chunkStarts[chunk - 1], (int) (from + (long) (limit - from) * chunk / numberOfChunks));
+            while (start < limit && buffer.get(start - 1) != '\n') {
+                start++;
+            }
+            chunkStarts[chunk] = start;
+        }
+        chunkStarts[numberOfChunks] = limit;
+        return chunkStarts;
+    }
+
+    /**
+     * Build the mesh from the parsed arrays, elements are split into tetrahedra, triangles and border lines.
+     * For a volume mesh the triangles are the hull derived from the tetrahedra (faces used by only one
+     * tetrahedron), so only the boundary is rendered.
+     *
+     * @param coordinates x, y, z of each node
+     * @param elements    the element lines as written in the file
+     * @return the mesh
+     */
+    private static CFDTriangleMesh buildMesh(double[] coordinates, int[] elements) {
+        int numberOfTetrahedra = 0;
+        int numberOfBorderLines = 0;
+        for (int i = 0; i < elements.length; i += VERTICES_PER_ELEMENT) {
+            if (elements[i + 3] != 0) {
+                numberOfTetrahedra++;
+            } else if (elements[i + 2] == 0) {
+                numberOfBorderLines++;
+            }
+        }
+        int numberOfTriangles = elements.length / VERTICES_PER_ELEMENT - numberOfTetrahedra - numberOfBorderLines;
+        int[] tetrahedra = new int[numberOfTetrahedra * 4];
+        int[] triangles = new int[numberOfTriangles * 3];
+        int[] borderLines = new int[numberOfBorderLines * 2];
+        int tetrahedron = 0;
+        int triangle = 0;
+        int borderLine = 0;
+        for (int i = 0; i < elements.length; i += VERTICES_PER_ELEMENT) {
+            if (elements[i + 3] != 0) {
+                for (int j = 0; j < 4; j++) {
+                    tetrahedra[tetrahedron++] = elements[i + j] - 1;
+                }
+            } else if (elements[i + 2] == 0) {
+                // it's a border line and not a triangle
+                borderLines[borderLine++] = elements[i] - 1;
+                borderLines[borderLine++] = elements[i + 1] - 1;
+            } else {
+                triangles[triangle++] = elements[i] - 1;
+                triangles[triangle++] = elements[i + 1] - 1;
+                triangles[triangle++] = elements[i + 2] - 1;
+            }
+        }
+        if (numberOfTetrahedra > 0) {
+            triangles = MeshTopology.boundaryFaces(tetrahedra);
+        }
+        return CFDTriangleMesh.builder()
+                .coordinates(coordinates)
+                .tetrahedra(tetrahedra)
+                .triangles(triangles)
+                .borderLines(borderLines)
+                .build();
+    }
+
+    /**
+     * Read a node line (2 or 3 coordinates) in the coordinates array
+     *
+     * @param tokenizer   the tokenizer positioned at the beginning of the line
+     * @param coordinates the coordinates array
+     * @param node        the node index
+     */
+    private static void readNode(MeshFileTokenizer tokenizer, double[] coordinates, int node) {
+        int offset = node * COORDINATES_PER_NODE;
+        for (int i = 0; i < COORDINATES_PER_NODE && !tokenizer.isEndOfLine(); i++) {
+            coordinates[offset + i] = tokenizer.nextDouble();
+        }
+        tokenizer.nextLine();
+    }
+
+    /**
+     * Read the vertices of an element line as written in the file (1-based, 0 if absent)
+     *
+     * @param tokenizer the tokenizer positioned at the beginning of the line
+     * @param elements  the elements array
+     * @param element   the element index
+     */
+    private static void readElement(MeshFileTokenizer tokenizer, int[] elements, int element) {
+        int offset = element * VERTICES_PER_ELEMENT;
+        for (int i = 0; i < VERTICES_PER_ELEMENT && !tokenizer.isEndOfLine(); i++) {
+            elements[offset + i] = tokenizer.nextInt();
+        }
+        tokenizer.nextLine();
+    }
+
+    private static CFDTriangleMesh parseWithScanner(File file) {
+        double[] coordinates;
+        IntArrayBuilder elements = new IntArrayBuilder(1 << 10);
         try (Scanner scanner = new Scanner(file)) {
             // Read metadata from the first line
             int numberOfPoints = scanner.nextInt();
@@ -29,48 +293,36 @@ public class MeshFileParser {
             scanner.nextInt();
             // Skip first line
             scanner.nextLine();
+            coordinates = new double[numberOfPoints * COORDINATES_PER_NODE];
             int currentLine = 0;
             // Read 3D coordinates from the remaining lines
             while (scanner.hasNextLine() && currentLine < numberOfPoints) {
                 String line = scanner.nextLine();
-                // Split the line into x and y coordinates
-                String[] coordinates = line.split(StringUtils.SPACE);
-                double zCoordinates;
-                if (coordinates.length < 3) {
-                    zCoordinates = 0;
-                } else {
-                    zCoordinates = Double.parseDouble(coordinates[2]);
+                // Split the line into x, y and z coordinates (z = 0 in 2D)
+                String[] values = line.strip().split(StringUtils.SPACE);
+                for (int i = 0; i < Math.min(values.length, COORDINATES_PER_NODE); i++) {
+                    coordinates[currentLine * COORDINATES_PER_NODE + i] = Double.parseDouble(values[i]);
                 }
-                Point3D point = new Point3D(Double.parseDouble(coordinates[0]),
-                        Double.parseDouble(coordinates[1]),
-                        zCoordinates);
-                triangleMesh.addPoint(point, currentLine);
                 currentLine++;
             }
-            // handle faces of triangle mesh
-            handleFaces(scanner, triangleMesh);
-            triangleMesh.getTexCoords().addAll(1, 1);
+            // handle elements of the mesh
+            handleFaces(scanner, elements);
         } catch (FileNotFoundException e) {
             throw new RuntimeException(e);
         }
-        return triangleMesh;
+        return buildMesh(coordinates, elements.toArray());
     }
 
-    private static void handleFaces(Scanner scanner, CFDTriangleMesh triangleMesh) {
+    private static void handleFaces(Scanner scanner, IntArrayBuilder elements) {
         while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            // Split the line into id1, id2 and id3
-            String[] coordinates = line.split(StringUtils.SPACE);
-            int vertex1 = Integer.parseInt(coordinates[0]) - 1;
-            int vertex2 = Integer.parseInt(coordinates[1]) - 1;
-            int vertex3 = Integer.parseInt(coordinates[2]) - 1;
-            // Process the coordinates as needed
-            if (vertex3 == -1) {
-                // it's a border line and not a triangle => back to vertext1
-                triangleMesh.addBorderLine(vertex1, vertex2);
-            } else {
-                // create a triangle face
-                triangleMesh.addTriangleAndLines(vertex1, vertex2, vertex3);
+            String line = scanner.nextLine().strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            // Split the line into the vertices of the element, 0 if absent
+            String[] vertices = line.split(StringUtils.SPACE);
+            for (int i = 0; i < VERTICES_PER_ELEMENT; i++) {
+                elements.add(i < vertices.length ? Integer.parseInt(vertices[i]) : 0);
             }
         }
     }
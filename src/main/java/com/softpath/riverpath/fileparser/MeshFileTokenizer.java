@@ -0,0 +1,379 @@
+package com.softpath.riverpath.fileparser;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer working directly on the bytes of a .t file (typically a memory mapped buffer).
+ * <p>
+ * Integers and doubles are decoded in place, so parsing a mesh does not create any String.
+ * Blanks are spaces, tabs and carriage returns; a line ends with '\n'.
+ * </p>
+ */
+final class MeshFileTokenizer {
+
+    // exact powers of ten representable as double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_EXACT_POWER = POWERS_OF_TEN.length - 1;
+    // an unsigned long holds 19 decimal digits without overflow
+    private static final int MAX_SIGNIFICAND_DIGITS = 19;
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    // decimal exponents of the table of powers of five, the values beyond are 0 or infinite
+    private static final int SMALLEST_POWER_OF_FIVE = -342;
+    private static final int LARGEST_POWER_OF_FIVE = 308;
+    // 5^q normalized to 128 bits (the highest bit set), high and low 64 bits, for q from SMALLEST_POWER_OF_FIVE
+    private static final long[] POWERS_OF_FIVE = powersOfFive();
+    // bits of the product of the significand by the power of five not needed to round the 53 bits of a double
+    private static final long PRECISION_MASK = -1L >>> 55;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    /**
+     * @param buffer   the bytes to parse (only absolute reads are used, the buffer can be shared)
+     * @param position the first byte to parse
+     * @param limit    the end (exclusive) of the bytes to parse
+     */
+    MeshFileTokenizer(ByteBuffer buffer, int position, int limit) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return true if there is no more token on the current line
+     */
+    boolean isEndOfLine() {
+        skipBlanks();
+        return position >= limit || buffer.get(position) == '\n';
+    }
+
+    /**
+     * @return true if there is no more byte to parse
+     */
+    boolean isEndOfInput() {
+        return position >= limit;
+    }
+
+    /**
+     * Move to the beginning of the next line
+     */
+    void nextLine() {
+        while (position < limit && buffer.get(position++) != '\n') {
+            // skip the remaining of the line
+        }
+    }
+
+    /**
+     * @return the first byte of the next token of the current line, '\n' at the end of the line
+     */
+    byte peek() {
+        skipBlanks();
+        return position < limit ? buffer.get(position) : (byte) '\n';
+    }
+
+    /**
+     * Read the next token of the current line as a String (to be used only for keywords like "$Nodes")
+     *
+     * @return the token, empty at the end of the line
+     */
+    String nextToken() {
+        skipBlanks();
+        int start = position;
+        byte b;
+        while (position < limit && (b = buffer.get(position)) != '\n' && !isWhitespace(b)) {
+            position++;
+        }
+        byte[] token = new byte[position - start];
+        buffer.get(start, token);
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Skip the next token of the current line
+     */
+    void skipToken() {
+        skipBlanks();
+        byte b;
+        while (position < limit && (b = buffer.get(position)) != '\n' && !isWhitespace(b)) {
+            position++;
+        }
+    }
+
+    /**
+     * Decode the next integer of the current line
+     *
+     * @return the integer value
+     */
+    int nextInt() {
+        skipBlanks();
+        int start = position;
+        boolean negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+        int value = 0;
+        int digitsStart = position;
+        byte b;
+        while (position < limit && isDigit(b = buffer.get(position))) {
+            value = value * 10 + (b - '0');
+            position++;
+        }
+        if (position == digitsStart) {
+            throw new NumberFormatException("Invalid integer at offset " + start);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decode the next floating point number of the current line.
+     * <p>
+     * The first 19 significant digits are decoded in place. A significand below 2^53 with a small decimal exponent
+     * is converted by a single exact division or multiplication, any other one by the Eisel-Lemire algorithm (a
+     * 128-bit product with a power of five). When more than 19 digits are truncated (e.g. {@code 123.4560000000000031}
+     * written with 16 decimals by gmsh4mtc), the truncated significand and its successor are converted, they round to
+     * the same double except in rare ambiguous cases. Only these cases and the subnormal numbers are decoded by
+     * {@link Double#parseDouble(String)}. In all cases the result is correctly rounded.
+     * </p>
+     *
+     * @return the double value
+     */
+    double nextDouble() {
+        skipBlanks();
+        int start = position;
+        boolean negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+        long significand = 0;
+        int significandDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        // a non zero digit did not fit in the significand
+        boolean truncated = false;
+        byte b;
+        // integer part
+        while (position < limit && isDigit(b = buffer.get(position))) {
+            anyDigit = true;
+            if (significandDigits < MAX_SIGNIFICAND_DIGITS) {
+                significand = significand * 10 + (b - '0');
+                if (significand != 0) {
+                    significandDigits++;
+                }
+            } else {
+                // digit beyond the long capacity
+                truncated |= b != '0';
+                exponent++;
+            }
+            position++;
+        }
+        // fractional part
+        if (position < limit && buffer.get(position) == '.') {
+            position++;
+            while (position < limit && isDigit(b = buffer.get(position))) {
+                anyDigit = true;
+                if (significandDigits < MAX_SIGNIFICAND_DIGITS) {
+                    significand = significand * 10 + (b - '0');
+                    if (significand != 0) {
+                        significandDigits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated |= b != '0';
+                }
+                position++;
+            }
+        }
+        if (!anyDigit) {
+            throw new NumberFormatException("Invalid number at offset " + start);
+        }
+        // exponent part
+        if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            exponent += nextExponent(start);
+        }
+        double value;
+        if (significand == 0) {
+            value = 0;
+        } else if (!truncated && Math.abs(exponent) <= MAX_EXACT_POWER
+                && Long.compareUnsigned(significand, MAX_EXACT_SIGNIFICAND) < 0) {
+            // both operands are exact => a single correctly rounded operation
+            value = exponent < 0 ? significand / POWERS_OF_TEN[-exponent] : significand * POWERS_OF_TEN[exponent];
+        } else {
+            value = eiselLemire(significand, exponent);
+            // the digits beyond the 19th are between the truncated significand and its successor
+            if (truncated && value != eiselLemire(significand + 1, exponent)) {
+                value = Double.NaN;
+            }
+            if (Double.isNaN(value)) {
+                // rare ambiguous or subnormal case, decoded by the JDK
+                byte[] token = new byte[position - start];
+                buffer.get(start, token);
+                return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Count the lines between two offsets of a buffer. A last line without '\n' is counted.
+     *
+     * @param buffer the bytes
+     * @param from   start offset (inclusive)
+     * @param to     end offset (exclusive)
+     * @return the number of lines
+     */
+    static int countLines(ByteBuffer buffer, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                lines++;
+            }
+        }
+        if (to > from && buffer.get(to - 1) != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Ignore the trailing blank bytes of a buffer (empty last lines for example)
+     *
+     * @param buffer the bytes
+     * @param from   start offset (inclusive)
+     * @param to     end offset (exclusive)
+     * @return the new end offset
+     */
+    static int trimEnd(ByteBuffer buffer, int from, int to) {
+        while (to > from && isWhitespace(buffer.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private int nextExponent(int start) {
+        boolean negative = false;
+        if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+        int value = 0;
+        int digitsStart = position;
+        byte b;
+        while (position < limit && isDigit(b = buffer.get(position))) {
+            // clamp absurd exponents, the value is anyway 0 or infinite
+            if (value < 10_000) {
+                value = value * 10 + (b - '0');
+            }
+            position++;
+        }
+        if (position == digitsStart) {
+            throw new NumberFormatException("Invalid exponent at offset " + start);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Eisel-Lemire conversion (as in fast_float, Lemire 2021, without fallback after Mushtak and Lemire 2023)
+     *
+     * @param significand a non zero unsigned significand
+     * @param exponent    the decimal exponent
+     * @return the correctly rounded positive double, NaN for a subnormal number
+     */
+    private static double eiselLemire(long significand, int exponent) {
+        if (exponent < SMALLEST_POWER_OF_FIVE) {
+            return 0;
+        }
+        if (exponent > LARGEST_POWER_OF_FIVE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int leadingZeros = Long.numberOfLeadingZeros(significand);
+        long normalized = significand << leadingZeros;
+        int index = 2 * (exponent - SMALLEST_POWER_OF_FIVE);
+        // 64 x 128 bits product, the low 64 bits of the power are needed only if the high product is not enough
+        long high = Math.unsignedMultiplyHigh(normalized, POWERS_OF_FIVE[index]);
+        long low = normalized * POWERS_OF_FIVE[index];
+        if ((high & PRECISION_MASK) == PRECISION_MASK) {
+            long secondHigh = Math.unsignedMultiplyHigh(normalized, POWERS_OF_FIVE[index + 1]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0) {
+                high++;
+            }
+        }
+        int upperBit = (int) (high >>> 63);
+        int shift = upperBit + 9;
+        long mantissa = high >>> shift;
+        // binary exponent of the result: floor(exponent * log2(10)) + 63, biased
+        int power2 = (((152170 + 65536) * exponent) >> 16) + 63 + upperBit - leadingZeros + 1023;
+        if (power2 <= 0) {
+            return Double.NaN;
+        }
+        // exactly halfway between two doubles: round to even
+        if (Long.compareUnsigned(low, 1) <= 0 && exponent >= -4 && exponent <= 23 && (mantissa & 3) == 1
+                && mantissa << shift == high) {
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 2L << 52) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        if (power2 >= 0x7FF) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.longBitsToDouble(mantissa & ~(1L << 52) | (long) power2 << 52);
+    }
+
+    /**
+     * @return the 128-bit approximations of the powers of five, truncated for q >= 0 and rounded up for q < 0
+     */
+    private static long[] powersOfFive() {
+        long[] powers = new long[2 * (LARGEST_POWER_OF_FIVE - SMALLEST_POWER_OF_FIVE + 1)];
+        BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = SMALLEST_POWER_OF_FIVE; q <= LARGEST_POWER_OF_FIVE; q++) {
+            BigInteger power = BigInteger.valueOf(5).pow(Math.abs(q));
+            BigInteger value;
+            if (q < 0) {
+                // 2^b / 5^-q with at least 128 significant bits, plus one
+                int bits = power.bitLength();
+                value = BigInteger.ONE.shiftLeft(q >= -27 ? bits + 127 : 2 * bits + 128).divide(power)
+                        .add(BigInteger.ONE);
+            } else {
+                value = power;
+            }
+            value = value.bitLength() > 128 ? value.shiftRight(value.bitLength() - 128)
+                    : value.shiftLeft(128 - value.bitLength());
+            int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+            powers[index] = value.shiftRight(64).longValue();
+            powers[index + 1] = value.and(mask).longValue();
+        }
+        return powers;
+    }
+
+    private void skipBlanks() {
+        byte b;
+        while (position < limit && ((b = buffer.get(position)) == ' ' || b == '\t' || b == '\r')) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
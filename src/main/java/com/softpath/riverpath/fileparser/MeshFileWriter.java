@@ -0,0 +1,204 @@
+package com.softpath.riverpath.fileparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Class to write a mesh to a .t file (same layout as gmsh4mtc.py)
+ * <pre>
+ * nbNodes dim nbElements dim+1
+ * x y [z]          for each node (z only in 3D)
+ * a b c d          for each tetrahedron
+ * a b c [0]        for each triangle / boundary face (0 only in 3D)
+ * a b 0            for each border line (2D)
+ * </pre>
+ * Vertices are written 1-based, coordinates with the shortest decimal representation which reads back
+ * to the same double ({@link Double#toString(double)}).
+ * <p>
+ * The lines are formatted into byte arrays by chunks in parallel, a batch of chunks at a time, and the chunks
+ * are written in order through a direct buffer to a file channel.
+ * </p>
+ */
+public class MeshFileWriter {
+
+    private static final int BUFFER_SIZE = 1 << 22;
+    private static final int LINES_PER_CHUNK = 1 << 14;
+    // number of chunks formatted in memory before being written, per worker
+    private static final int CHUNKS_PER_WORKER = 4;
+    // below this absolute value an integer coordinate is written by the fast path (same text as Double.toString)
+    private static final double PLAIN_INTEGER_LIMIT = 1e7;
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+            100_000_000, 1_000_000_000};
+
+    /**
+     * Format a line in a buffer
+     */
+    @FunctionalInterface
+    private interface LineFormatter {
+        void format(AsciiBuffer buffer, int line);
+    }
+
+    /**
+     * Write a mesh to a .t file
+     *
+     * @param mesh the mesh
+     * @param file the .t file
+     */
+    public static void writeTriangleMesh2File(CFDTriangleMesh mesh, File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            boolean is3D = mesh.is3D();
+            int dimension = is3D ? 3 : 2;
+            int numberOfElements = mesh.getTetrahedronCount() + mesh.getTriangleCount() + mesh.getBorderLineCount();
+            String header = mesh.getVertexCount() + " " + dimension + " " + numberOfElements + " " + (dimension + 1) + "\n";
+            put(channel, buffer, header.getBytes(StandardCharsets.US_ASCII), header.length());
+            double[] coordinates = mesh.getCoordinates();
+            writeLines(channel, buffer, mesh.getVertexCount(), (line, node) -> {
+                line.appendDouble(coordinates[3 * node]).append(' ');
+                line.appendDouble(coordinates[3 * node + 1]).append(' ');
+                if (is3D) {
+                    line.appendDouble(coordinates[3 * node + 2]).append(' ');
+                }
+                line.append('\n');
+            });
+            writeElements(channel, buffer, mesh.getTetrahedra(), 4, false);
+            writeElements(channel, buffer, mesh.getTriangles(), 3, is3D);
+            writeElements(channel, buffer, mesh.getBorderLines(), 2, true);
+            flush(channel, buffer);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write mesh file " + file, e);
+        }
+    }
+
+    private static void writeElements(FileChannel channel, ByteBuffer buffer, int[] elements, int verticesPerElement,
+                                      boolean endWithZero) throws IOException {
+        writeLines(channel, buffer, elements.length / verticesPerElement, (line, element) -> {
+            for (int j = 0; j < verticesPerElement; j++) {
+                line.appendInt(elements[verticesPerElement * element + j] + 1).append(' ');
+            }
+            if (endWithZero) {
+                line.append('0').append(' ');
+            }
+            line.append('\n');
+        });
+    }
+
+    /**
+     * Format lines by chunks in parallel and write them in order
+     *
+     * @param numberOfLines the number of lines
+     * @param formatter     the formatter of a line
+     */
+    private static void writeLines(FileChannel channel, ByteBuffer buffer, int numberOfLines,
+                                   LineFormatter formatter) throws IOException {
+        int numberOfChunks = (numberOfLines + LINES_PER_CHUNK - 1) / LINES_PER_CHUNK;
+        int chunksPerBatch = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_WORKER;
+        for (int batch = 0; batch < numberOfChunks; batch += chunksPerBatch) {
+            AsciiBuffer[] chunks = IntStream.range(batch, Math.min(numberOfChunks, batch + chunksPerBatch))
+                    .parallel()
+                    .mapToObj(chunk -> {
+                        AsciiBuffer chunkBuffer = new AsciiBuffer();
+                        int end = Math.min(numberOfLines, (chunk + 1) * LINES_PER_CHUNK);
+                        for (int line = chunk * LINES_PER_CHUNK; line < end; line++) {
+                            formatter.format(chunkBuffer, line);
+                        }
+                        return chunkBuffer;
+                    })
+                    .toArray(AsciiBuffer[]::new);
+            for (AsciiBuffer chunk : chunks) {
+                put(channel, buffer, chunk.bytes, chunk.size);
+            }
+        }
+    }
+
+    /**
+     * Copy bytes to the buffer, the buffer is written to the channel each time it is full
+     */
+    private static void put(FileChannel channel, ByteBuffer buffer, byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(buffer.remaining(), length - offset);
+            buffer.put(bytes, offset, count);
+            offset += count;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Growable array of ASCII bytes with the formatting of numbers, without intermediate strings for the integers
+     */
+    private static final class AsciiBuffer {
+        private byte[] bytes = new byte[1 << 16];
+        private int size;
+
+        private AsciiBuffer append(char c) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) c;
+            return this;
+        }
+
+        private AsciiBuffer appendInt(int value) {
+            ensureCapacity(11);
+            if (value < 0) {
+                bytes[size++] = '-';
+                value = -value;
+            }
+            // digits are written from the lowest, at the end of the number
+            int end = size + digitCount(value);
+            int position = end;
+            do {
+                int quotient = value / 10;
+                bytes[--position] = (byte) ('0' + value - 10 * quotient);
+                value = quotient;
+            } while (value != 0);
+            size = end;
+            return this;
+        }
+
+        private static int digitCount(int value) {
+            int count = 1;
+            while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+                count++;
+            }
+            return count;
+        }
+
+        private AsciiBuffer appendDouble(double value) {
+            // fast path for the integer coordinates, "-0.0" is left to Double.toString
+            if (value == Math.rint(value) && Math.abs(value) < PLAIN_INTEGER_LIMIT
+                    && (value != 0 || Double.doubleToRawLongBits(value) == 0)) {
+                return appendInt((int) value).append('.').append('0');
+            }
+            String text = Double.toString(value);
+            ensureCapacity(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                bytes[size++] = (byte) text.charAt(i);
+            }
+            return this;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + extra, 2 * bytes.length));
+            }
+        }
+    }
+}
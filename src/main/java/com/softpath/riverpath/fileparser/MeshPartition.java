@@ -0,0 +1,312 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Partition of the elements of a mesh (tetrahedra of a volume mesh, triangles otherwise) for a parallel run,
+ * by recursive coordinate bisection (RCB).
+ * <p>
+ * The elements are split at the weighted median of their centers along the longest side of the box of the
+ * centers, each side receiving a number of parts proportional to its number of elements, until one part is left.
+ * The cuts are planes, so any point can be located in a part. The quality of the partition is measured by:
+ * <ul>
+ *     <li>the imbalance: largest part / mean part (1 is perfect)</li>
+ *     <li>the interface nodes: nodes shared by several parts (exchanged between the processes)</li>
+ *     <li>the edge cut: faces (edges in 2D) between elements of different parts</li>
+ * </ul>
+ * </p>
+ */
+@Getter
+public final class MeshPartition {
+
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+    // local vertices of the faces of a tetrahedron and of the edges of a triangle
+    private static final int[][] TETRAHEDRON_FACES = {{0, 1, 2}, {0, 1, 3}, {0, 2, 3}, {1, 2, 3}};
+    private static final int[][] TRIANGLE_EDGES = {{0, 1}, {1, 2}, {2, 0}};
+
+    private final int numberOfParts;
+    // part of each element
+    private final int[] elementParts;
+    // part of each node: lowest part of its elements, -1 for a node without element
+    private final int[] nodeParts;
+    private final int[] partSizes;
+    private final int interfaceNodes;
+    private final long edgeCut;
+    private final long elapsedMillis;
+    private final Cut root;
+
+    private MeshPartition(int numberOfParts, int[] elementParts, int[] nodeParts, int interfaceNodes, long edgeCut,
+                          Cut root, long elapsedMillis) {
+        this.numberOfParts = numberOfParts;
+        this.elementParts = elementParts;
+        this.nodeParts = nodeParts;
+        this.interfaceNodes = interfaceNodes;
+        this.edgeCut = edgeCut;
+        this.root = root;
+        this.elapsedMillis = elapsedMillis;
+        partSizes = new int[numberOfParts];
+        for (int part : elementParts) {
+            partSizes[part]++;
+        }
+    }
+
+    /**
+     * Partition the elements of a mesh
+     *
+     * @param mesh          the mesh
+     * @param numberOfParts the number of parts (processes)
+     * @return the partition
+     */
+    public static MeshPartition compute(CFDTriangleMesh mesh, int numberOfParts) {
+        long start = System.nanoTime();
+        boolean volume = mesh.getTetrahedronCount() > 0;
+        int[] elements = volume ? mesh.getTetrahedra() : mesh.getTriangles();
+        int verticesPerElement = volume ? 4 : 3;
+        Bisection bisection = new Bisection(mesh.getCoordinates(), elements, verticesPerElement);
+        int numberOfElements = elements.length / verticesPerElement;
+        int[] elementParts = new int[numberOfElements];
+        Cut root = bisection.bisect(0, numberOfElements, 0, numberOfParts, elementParts);
+        // node parts and interface nodes
+        int[] nodeParts = new int[mesh.getVertexCount()];
+        Arrays.fill(nodeParts, -1);
+        boolean[] shared = new boolean[mesh.getVertexCount()];
+        for (int element = 0; element < numberOfElements; element++) {
+            int part = elementParts[element];
+            for (int corner = 0; corner < verticesPerElement; corner++) {
+                int node = elements[verticesPerElement * element + corner];
+                if (nodeParts[node] < 0) {
+                    nodeParts[node] = part;
+                } else if (nodeParts[node] != part) {
+                    shared[node] = true;
+                    nodeParts[node] = Math.min(nodeParts[node], part);
+                }
+            }
+        }
+        int interfaceNodes = (int) IntStream.range(0, shared.length).filter(node -> shared[node]).count();
+        long edgeCut = countEdgeCut(elements, verticesPerElement, volume ? TETRAHEDRON_FACES : TRIANGLE_EDGES,
+                elementParts, mesh.getVertexCount());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new MeshPartition(numberOfParts, elementParts, nodeParts, interfaceNodes, edgeCut, root, elapsedMillis);
+    }
+
+    /**
+     * @return the largest part / the mean part, 1 for a perfect balance
+     */
+    public double getImbalance() {
+        int largest = Arrays.stream(partSizes).max().orElse(0);
+        return elementParts.length == 0 ? 1 : (double) largest * numberOfParts / elementParts.length;
+    }
+
+    /**
+     * Find the part of the space containing a point (following the cuts of the bisection)
+     *
+     * @return the part
+     */
+    public int locate(double x, double y, double z) {
+        double[] point = {x, y, z};
+        Cut cut = root;
+        while (cut.left != null) {
+            cut = point[cut.axis] < cut.value ? cut.left : cut.right;
+        }
+        return cut.part;
+    }
+
+    /**
+     * Format the statistics of the partition for the console
+     *
+     * @return one line of statistics
+     */
+    public String format() {
+        int smallest = Arrays.stream(partSizes).min().orElse(0);
+        int largest = Arrays.stream(partSizes).max().orElse(0);
+        return String.format(Locale.ROOT,
+                "%3d parts: elements per part %d - %d, imbalance %.3f, interface nodes %d (%.1f%%), edge cut %d (%d ms)",
+                numberOfParts, smallest, largest, getImbalance(), interfaceNodes,
+                100.0 * interfaceNodes / Math.max(1, nodeParts.length), edgeCut, elapsedMillis);
+    }
+
+    /**
+     * Count the faces (edges in 2D) shared by 2 elements of different parts. The faces are grouped by their
+     * lowest vertex, each group is sorted by the other vertices so the 2 occurrences of a face are consecutive.
+     */
+    private static long countEdgeCut(int[] elements, int verticesPerElement, int[][] localFacets, int[] elementParts,
+                                     int numberOfNodes) {
+        int numberOfElements = elements.length / verticesPerElement;
+        int[] groupStarts = new int[numberOfNodes + 1];
+        int[] facet = new int[3];
+        for (int element = 0; element < numberOfElements; element++) {
+            for (int[] localFacet : localFacets) {
+                groupStarts[lowestVertex(elements, verticesPerElement * element, localFacet) + 1]++;
+            }
+        }
+        Arrays.parallelPrefix(groupStarts, Integer::sum);
+        // other vertices of the facet (2 x 32 bits) and part of its element
+        long[] keys = new long[groupStarts[numberOfNodes]];
+        int[] parts = new int[keys.length];
+        int[] next = Arrays.copyOf(groupStarts, numberOfNodes);
+        for (int element = 0; element < numberOfElements; element++) {
+            for (int[] localFacet : localFacets) {
+                for (int i = 0; i < localFacet.length; i++) {
+                    facet[i] = elements[verticesPerElement * element + localFacet[i]];
+                }
+                Arrays.sort(facet, 0, localFacet.length);
+                int position = next[facet[0]]++;
+                keys[position] = localFacet.length == 3 ? ((long) facet[1] << 32) | facet[2] : facet[1];
+                parts[position] = elementParts[element];
+            }
+        }
+        return IntStream.range(0, numberOfNodes).parallel().mapToLong(node -> {
+            int from = groupStarts[node];
+            int to = groupStarts[node + 1];
+            // insertion sort, few facets per vertex
+            for (int i = from + 1; i < to; i++) {
+                long key = keys[i];
+                int part = parts[i];
+                int j = i - 1;
+                while (j >= from && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    parts[j + 1] = parts[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                parts[j + 1] = part;
+            }
+            long cut = 0;
+            for (int i = from + 1; i < to; i++) {
+                if (keys[i] == keys[i - 1] && parts[i] != parts[i - 1]) {
+                    cut++;
+                }
+            }
+            return cut;
+        }).sum();
+    }
+
+    private static int lowestVertex(int[] elements, int offset, int[] localFacet) {
+        int lowest = Integer.MAX_VALUE;
+        for (int corner : localFacet) {
+            lowest = Math.min(lowest, elements[offset + corner]);
+        }
+        return lowest;
+    }
+
+    /**
+     * A node of the bisection tree: a leaf is a part, otherwise the points below the value along the axis
+     * are in the left side
+     */
+    private static final class Cut {
+        private int part;
+        private int axis;
+        private double value;
+        private Cut left;
+        private Cut right;
+    }
+
+    /**
+     * Recursive bisection of the elements by their center
+     */
+    private static final class Bisection {
+        private final double[] centers;
+        private final int[] order;
+
+        private Bisection(double[] coordinates, int[] elements, int verticesPerElement) {
+            int numberOfElements = elements.length / verticesPerElement;
+            order = new int[numberOfElements];
+            Arrays.setAll(order, i -> i);
+            centers = new double[3 * numberOfElements];
+            IntStream.range(0, numberOfElements).parallel().forEach(element -> {
+                for (int corner = 0; corner < verticesPerElement; corner++) {
+                    int vertex = elements[verticesPerElement * element + corner];
+                    for (int axis = 0; axis < 3; axis++) {
+                        centers[3 * element + axis] += coordinates[3 * vertex + axis] / verticesPerElement;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Split the elements order[start, end[ in the parts [firstPart, firstPart + numberOfParts[
+         *
+         * @return the tree of the cuts
+         */
+        private Cut bisect(int start, int end, int firstPart, int numberOfParts, int[] elementParts) {
+            Cut cut = new Cut();
+            if (numberOfParts == 1) {
+                cut.part = firstPart;
+                for (int i = start; i < end; i++) {
+                    elementParts[order[i]] = firstPart;
+                }
+                return cut;
+            }
+            double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+            double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+            for (int i = start; i < end; i++) {
+                for (int axis = 0; axis < 3; axis++) {
+                    min[axis] = Math.min(min[axis], centers[3 * order[i] + axis]);
+                    max[axis] = Math.max(max[axis], centers[3 * order[i] + axis]);
+                }
+            }
+            for (int axis = 1; axis < 3; axis++) {
+                if (max[axis] - min[axis] > max[cut.axis] - min[cut.axis]) {
+                    cut.axis = axis;
+                }
+            }
+            int leftParts = numberOfParts / 2;
+            int middle = (int) (start + (long) (end - start) * leftParts / numberOfParts);
+            if (middle < end) {
+                select(start, end - 1, middle, cut.axis);
+                cut.value = centers[3 * order[middle] + cut.axis];
+            } else {
+                cut.value = Double.POSITIVE_INFINITY;
+            }
+            if (end - start > PARALLEL_THRESHOLD) {
+                Cut[] children = IntStream.of(0, 1).parallel()
+                        .mapToObj(child -> child == 0
+                                ? bisect(start, middle, firstPart, leftParts, elementParts)
+                                : bisect(middle, end, firstPart + leftParts, numberOfParts - leftParts, elementParts))
+                        .toArray(Cut[]::new);
+                cut.left = children[0];
+                cut.right = children[1];
+            } else {
+                cut.left = bisect(start, middle, firstPart, leftParts, elementParts);
+                cut.right = bisect(middle, end, firstPart + leftParts, numberOfParts - leftParts, elementParts);
+            }
+            return cut;
+        }
+
+        /**
+         * Partial sort of order[from, to] (quickselect): the element at k is the one of a full sort by center,
+         * the elements before are not greater, the elements after are not smaller
+         */
+        private void select(int from, int to, int k, int axis) {
+            while (from < to) {
+                double pivot = centers[3 * order[(from + to) >>> 1] + axis];
+                int i = from;
+                int j = to;
+                while (i <= j) {
+                    while (centers[3 * order[i] + axis] < pivot) {
+                        i++;
+                    }
+                    while (centers[3 * order[j] + axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int element = order[i];
+                        order[i++] = order[j];
+                        order[j--] = element;
+                    }
+                }
+                if (k <= j) {
+                    to = j;
+                } else if (k >= i) {
+                    from = i;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Quality of the elements of a mesh: the tetrahedra of a volume mesh, the triangles otherwise.
+ * <p>
+ * Metrics of each element:
+ * <ul>
+ *     <li>aspect ratio: longest edge / diameter of the inscribed circle (sphere), 1 for the regular element</li>
+ *     <li>minimum and maximum angle (dihedral angles of a tetrahedron), in degrees</li>
+ *     <li>shortest and longest edge</li>
+ *     <li>area (volume of a tetrahedron)</li>
+ *     <li>equiangular skewness: 0 for the regular element, 1 for a degenerate (flat) element</li>
+ * </ul>
+ * The elements are analyzed by chunks in parallel without any array per element: each chunk fills its own
+ * histograms and list of worst elements (highest skewness), then the chunks are merged.
+ * The edges and sizes are binned on a logarithmic scale, so their range does not need to be known in advance.
+ * </p>
+ */
+@Getter
+public final class MeshQuality {
+
+    private static final int CHUNK_SIZE = 1 << 15;
+    private static final int WORST_COUNT = 20;
+    // skewness above which an element is counted as bad (sliver)
+    private static final double BAD_SKEWNESS = 0.9;
+    // relative size under which an element is degenerate
+    private static final double DEGENERATE = 1e-12;
+    private static final int MAX_ROWS = 12;
+    private static final int BAR_WIDTH = 40;
+    private static final double TRIANGLE_ANGLE = 60;
+    private static final double TETRAHEDRON_ANGLE = Math.toDegrees(Math.acos(1.0 / 3));
+    // local vertices of the edges of a tetrahedron and of the 2 other vertices (for the dihedral angle)
+    private static final int[][] TETRAHEDRON_EDGES = {{0, 1, 2, 3}, {0, 2, 1, 3}, {0, 3, 1, 2},
+            {1, 2, 0, 3}, {1, 3, 0, 2}, {2, 3, 0, 1}};
+    private static final int[][] TETRAHEDRON_FACES = {{0, 2, 1}, {0, 1, 3}, {0, 3, 2}, {1, 2, 3}};
+
+    // metrics of an element
+    private static final int ASPECT_RATIO = 0;
+    private static final int MIN_ANGLE = 1;
+    private static final int MAX_ANGLE = 2;
+    private static final int MIN_EDGE = 3;
+    private static final int MAX_EDGE = 4;
+    private static final int SIZE = 5;
+    private static final int SKEWNESS = 6;
+    private static final int METRICS = 7;
+    private static final String[] METRIC_NAMES = {"Aspect ratio", "Minimum angle", "Maximum angle",
+            "Shortest edge", "Longest edge", "Size", "Skewness"};
+
+    // bounds of the histograms
+    private static final double[] ASPECT_RATIO_BOUNDS = {1, 1.5, 2, 3, 5, 10, 20, 50, 100, 1000, Double.POSITIVE_INFINITY};
+    private static final double[] ANGLE_BOUNDS = IntStream.rangeClosed(0, 18).mapToDouble(i -> 10.0 * i).toArray();
+    private static final double[] SKEWNESS_BOUNDS = IntStream.rangeClosed(0, 10).mapToDouble(i -> i / 10.0).toArray();
+    // 4 bins per decade from 1e-15 to 1e15
+    private static final double[] LOG_BOUNDS = IntStream.rangeClosed(-60, 60).mapToDouble(i -> Math.pow(10, i / 4.0)).toArray();
+
+    private final boolean volume;
+    private final int numberOfElements;
+    private final long badElements;
+    private final long elapsedMillis;
+    private final List<Histogram> histograms;
+    // worst elements first (0-based) and their metrics
+    private final int[] worstElements;
+    private final double[][] worstMetrics;
+    // 3 vertices per triangle to highlight the worst elements: the worst triangles or the faces of the worst tetrahedra
+    private final int[] worstTriangles;
+
+    private MeshQuality(boolean volume, int numberOfElements, Accumulator accumulator, int[] elements,
+                        double[] coordinates, long elapsedMillis) {
+        this.volume = volume;
+        this.numberOfElements = numberOfElements;
+        this.badElements = accumulator.badElements;
+        this.elapsedMillis = elapsedMillis;
+        this.histograms = List.of(accumulator.histograms);
+        this.worstElements = Arrays.copyOf(accumulator.worstElements, accumulator.worstSize);
+        this.worstMetrics = new double[worstElements.length][METRICS];
+        double[] points = new double[12];
+        for (int i = 0; i < worstElements.length; i++) {
+            evaluate(volume, coordinates, elements, worstElements[i], points, worstMetrics[i]);
+        }
+        if (volume) {
+            worstTriangles = new int[12 * worstElements.length];
+            for (int i = 0; i < worstElements.length; i++) {
+                for (int face = 0; face < 4; face++) {
+                    for (int corner = 0; corner < 3; corner++) {
+                        worstTriangles[12 * i + 3 * face + corner] =
+                                elements[4 * worstElements[i] + TETRAHEDRON_FACES[face][corner]];
+                    }
+                }
+            }
+        } else {
+            worstTriangles = new int[3 * worstElements.length];
+            for (int i = 0; i < worstElements.length; i++) {
+                System.arraycopy(elements, 3 * worstElements[i], worstTriangles, 3 * i, 3);
+            }
+        }
+    }
+
+    /**
+     * Analyze the elements of a mesh: its tetrahedra if any, its triangles otherwise
+     *
+     * @param mesh the mesh
+     * @return the quality of the mesh
+     */
+    public static MeshQuality analyze(CFDTriangleMesh mesh) {
+        long start = System.nanoTime();
+        boolean volume = mesh.getTetrahedronCount() > 0;
+        int[] elements = volume ? mesh.getTetrahedra() : mesh.getTriangles();
+        int numberOfElements = volume ? mesh.getTetrahedronCount() : mesh.getTriangleCount();
+        double[] coordinates = mesh.getCoordinates();
+        int numberOfChunks = (numberOfElements + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Accumulator accumulator = IntStream.range(0, numberOfChunks).parallel()
+                .mapToObj(chunk -> {
+                    Accumulator chunkAccumulator = new Accumulator(volume);
+                    double[] points = new double[12];
+                    double[] metrics = new double[METRICS];
+                    int end = Math.min(numberOfElements, (chunk + 1) * CHUNK_SIZE);
+                    for (int element = chunk * CHUNK_SIZE; element < end; element++) {
+                        evaluate(volume, coordinates, elements, element, points, metrics);
+                        chunkAccumulator.add(element, metrics);
+                    }
+                    return chunkAccumulator;
+                })
+                .reduce(Accumulator::merge)
+                .orElseGet(() -> new Accumulator(volume));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new MeshQuality(volume, numberOfElements, accumulator, elements, coordinates, elapsedMillis);
+    }
+
+    /**
+     * Format the report for the console: the histograms and the worst elements
+     *
+     * @return the report
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        String elementName = volume ? "tetrahedra" : "triangles";
+        report.append(String.format(Locale.ROOT, "Mesh quality of %d %s (analyzed in %d ms)%n",
+                numberOfElements, elementName, elapsedMillis));
+        for (Histogram histogram : histograms) {
+            histogram.format(report);
+        }
+        report.append(String.format(Locale.ROOT, "Bad elements (skewness > %.1f): %d%n", BAD_SKEWNESS, badElements));
+        report.append("Worst elements:");
+        for (int i = 0; i < worstElements.length; i++) {
+            double[] metrics = worstMetrics[i];
+            report.append(String.format(Locale.ROOT,
+                    "%n  #%d  skewness %.3f  aspect ratio %.3g  angles [%.1f, %.1f] deg  edges [%.3g, %.3g]  size %.3g",
+                    worstElements[i], metrics[SKEWNESS], metrics[ASPECT_RATIO], metrics[MIN_ANGLE],
+                    metrics[MAX_ANGLE], metrics[MIN_EDGE], metrics[MAX_EDGE], metrics[SIZE]));
+        }
+        return report.toString();
+    }
+
+    private static void evaluate(boolean volume, double[] coordinates, int[] elements, int element,
+                                 double[] points, double[] metrics) {
+        int numberOfVertices = volume ? 4 : 3;
+        for (int corner = 0; corner < numberOfVertices; corner++) {
+            System.arraycopy(coordinates, 3 * elements[numberOfVertices * element + corner], points, 3 * corner, 3);
+        }
+        if (volume) {
+            evaluateTetrahedron(points, metrics);
+        } else {
+            evaluateTriangle(points, metrics);
+        }
+    }
+
+    private static void evaluateTriangle(double[] points, double[] metrics) {
+        // edge i is opposite to the vertex i
+        double a = distance(points, 1, 2);
+        double b = distance(points, 2, 0);
+        double c = distance(points, 0, 1);
+        double area = crossNorm(points, 0, 1, 2) / 2;
+        double longest = Math.max(a, Math.max(b, c));
+        metrics[MIN_EDGE] = Math.min(a, Math.min(b, c));
+        metrics[MAX_EDGE] = longest;
+        metrics[SIZE] = area;
+        if (area <= DEGENERATE * longest * longest) {
+            setDegenerate(metrics);
+            return;
+        }
+        double angleA = angle(b, c, a);
+        double angleB = angle(c, a, b);
+        double angleC = 180 - angleA - angleB;
+        metrics[MIN_ANGLE] = Math.min(angleA, Math.min(angleB, angleC));
+        metrics[MAX_ANGLE] = Math.max(angleA, Math.max(angleB, angleC));
+        // inscribed radius = 2 * area / perimeter, longest / (2 * sqrt(3) * radius) = 1 for the equilateral triangle
+        double radius = 2 * area / (a + b + c);
+        metrics[ASPECT_RATIO] = longest / (2 * Math.sqrt(3) * radius);
+        metrics[SKEWNESS] = skewness(metrics[MIN_ANGLE], metrics[MAX_ANGLE], TRIANGLE_ANGLE);
+    }
+
+    private static void evaluateTetrahedron(double[] points, double[] metrics) {
+        double shortest = Double.MAX_VALUE;
+        double longest = 0;
+        for (int[] edge : TETRAHEDRON_EDGES) {
+            double length = distance(points, edge[0], edge[1]);
+            shortest = Math.min(shortest, length);
+            longest = Math.max(longest, length);
+        }
+        double surface = 0;
+        for (int[] face : TETRAHEDRON_FACES) {
+            surface += crossNorm(points, face[0], face[1], face[2]) / 2;
+        }
+        double volume = Math.abs(determinant(points)) / 6;
+        metrics[MIN_EDGE] = shortest;
+        metrics[MAX_EDGE] = longest;
+        metrics[SIZE] = volume;
+        if (volume <= DEGENERATE * longest * longest * longest) {
+            setDegenerate(metrics);
+            return;
+        }
+        // the angle decreases with its cosine: only the extreme cosines are converted
+        double minCosine = 1;
+        double maxCosine = -1;
+        for (int[] edge : TETRAHEDRON_EDGES) {
+            double cosine = dihedralCosine(points, edge[0], edge[1], edge[2], edge[3]);
+            minCosine = Math.min(minCosine, cosine);
+            maxCosine = Math.max(maxCosine, cosine);
+        }
+        double minAngle = Math.toDegrees(Math.acos(maxCosine));
+        double maxAngle = Math.toDegrees(Math.acos(minCosine));
+        metrics[MIN_ANGLE] = minAngle;
+        metrics[MAX_ANGLE] = maxAngle;
+        // inscribed radius = 3 * volume / surface, longest / (2 * sqrt(6) * radius) = 1 for the regular tetrahedron
+        double radius = 3 * volume / surface;
+        metrics[ASPECT_RATIO] = longest / (2 * Math.sqrt(6) * radius);
+        metrics[SKEWNESS] = skewness(minAngle, maxAngle, TETRAHEDRON_ANGLE);
+    }
+
+    private static void setDegenerate(double[] metrics) {
+        metrics[ASPECT_RATIO] = Double.POSITIVE_INFINITY;
+        metrics[MIN_ANGLE] = 0;
+        metrics[MAX_ANGLE] = 180;
+        metrics[SKEWNESS] = 1;
+    }
+
+    /**
+     * Equiangular skewness: the largest deviation of the angles from the angle of the regular element
+     */
+    private static double skewness(double minAngle, double maxAngle, double regularAngle) {
+        return Math.max((maxAngle - regularAngle) / (180 - regularAngle), (regularAngle - minAngle) / regularAngle);
+    }
+
+    /**
+     * @return the angle (degrees) opposite to the side c of a triangle of sides a, b, c
+     */
+    private static double angle(double a, double b, double c) {
+        double cosine = (a * a + b * b - c * c) / (2 * a * b);
+        return Math.toDegrees(Math.acos(Math.max(-1, Math.min(1, cosine))));
+    }
+
+    /**
+     * @return the cosine of the dihedral angle along the edge (i, j) between the faces (i, j, k) and (i, j, l)
+     */
+    private static double dihedralCosine(double[] points, int i, int j, int k, int l) {
+        double ex = points[3 * j] - points[3 * i], ey = points[3 * j + 1] - points[3 * i + 1], ez = points[3 * j + 2] - points[3 * i + 2];
+        double ux = points[3 * k] - points[3 * i], uy = points[3 * k + 1] - points[3 * i + 1], uz = points[3 * k + 2] - points[3 * i + 2];
+        double vx = points[3 * l] - points[3 * i], vy = points[3 * l + 1] - points[3 * i + 1], vz = points[3 * l + 2] - points[3 * i + 2];
+        double edgeSquared = ex * ex + ey * ey + ez * ez;
+        double uAlong = (ux * ex + uy * ey + uz * ez) / edgeSquared;
+        double vAlong = (vx * ex + vy * ey + vz * ez) / edgeSquared;
+        // components of u and v perpendicular to the edge
+        ux -= uAlong * ex;
+        uy -= uAlong * ey;
+        uz -= uAlong * ez;
+        vx -= vAlong * ex;
+        vy -= vAlong * ey;
+        vz -= vAlong * ez;
+        double cosine = (ux * vx + uy * vy + uz * vz) / Math.sqrt((ux * ux + uy * uy + uz * uz) * (vx * vx + vy * vy + vz * vz));
+        return Math.max(-1, Math.min(1, cosine));
+    }
+
+    private static double distance(double[] points, int i, int j) {
+        double dx = points[3 * j] - points[3 * i];
+        double dy = points[3 * j + 1] - points[3 * i + 1];
+        double dz = points[3 * j + 2] - points[3 * i + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * @return the norm of (points[j] - points[i]) x (points[k] - points[i])
+     */
+    private static double crossNorm(double[] points, int i, int j, int k) {
+        double ux = points[3 * j] - points[3 * i], uy = points[3 * j + 1] - points[3 * i + 1], uz = points[3 * j + 2] - points[3 * i + 2];
+        double vx = points[3 * k] - points[3 * i], vy = points[3 * k + 1] - points[3 * i + 1], vz = points[3 * k + 2] - points[3 * i + 2];
+        double x = uy * vz - uz * vy;
+        double y = uz * vx - ux * vz;
+        double z = ux * vy - uy * vx;
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * @return the determinant of (points[1] - points[0], points[2] - points[0], points[3] - points[0])
+     */
+    private static double determinant(double[] points) {
+        double ux = points[3] - points[0], uy = points[4] - points[1], uz = points[5] - points[2];
+        double vx = points[6] - points[0], vy = points[7] - points[1], vz = points[8] - points[2];
+        double wx = points[9] - points[0], wy = points[10] - points[1], wz = points[11] - points[2];
+        return ux * (vy * wz - vz * wy) - uy * (vx * wz - vz * wx) + uz * (vx * wy - vy * wx);
+    }
+
+    /**
+     * Histograms and worst elements of a chunk of elements
+     */
+    private static final class Accumulator {
+        private final Histogram[] histograms;
+        private final int[] worstElements = new int[WORST_COUNT];
+        // skewness of the worst elements, descending
+        private final double[] worstSkewness = new double[WORST_COUNT];
+        private int worstSize;
+        private long badElements;
+
+        private Accumulator(boolean volume) {
+            String sizeName = volume ? "Volume" : "Area";
+            histograms = new Histogram[METRICS];
+            histograms[ASPECT_RATIO] = new Histogram(METRIC_NAMES[ASPECT_RATIO], ASPECT_RATIO_BOUNDS);
+            histograms[MIN_ANGLE] = new Histogram(METRIC_NAMES[MIN_ANGLE], ANGLE_BOUNDS);
+            histograms[MAX_ANGLE] = new Histogram(METRIC_NAMES[MAX_ANGLE], ANGLE_BOUNDS);
+            histograms[MIN_EDGE] = new Histogram(METRIC_NAMES[MIN_EDGE], LOG_BOUNDS);
+            histograms[MAX_EDGE] = new Histogram(METRIC_NAMES[MAX_EDGE], LOG_BOUNDS);
+            histograms[SIZE] = new Histogram(sizeName, LOG_BOUNDS);
+            histograms[SKEWNESS] = new Histogram(METRIC_NAMES[SKEWNESS], SKEWNESS_BOUNDS);
+        }
+
+        private void add(int element, double[] metrics) {
+            for (int metric = 0; metric < METRICS; metric++) {
+                histograms[metric].add(metrics[metric]);
+            }
+            double skewness = metrics[SKEWNESS];
+            if (skewness > BAD_SKEWNESS) {
+                badElements++;
+            }
+            addWorst(element, skewness);
+        }
+
+        private void addWorst(int element, double skewness) {
+            if (worstSize == WORST_COUNT && skewness <= worstSkewness[WORST_COUNT - 1]) {
+                return;
+            }
+            // insertion in the sorted list, the last one is dropped when the list is full
+            int position = Math.min(worstSize, WORST_COUNT - 1);
+            while (position > 0 && worstSkewness[position - 1] < skewness) {
+                worstElements[position] = worstElements[position - 1];
+                worstSkewness[position] = worstSkewness[position - 1];
+                position--;
+            }
+            worstElements[position] = element;
+            worstSkewness[position] = skewness;
+            worstSize = Math.min(worstSize + 1, WORST_COUNT);
+        }
+
+        private Accumulator merge(Accumulator other) {
+            for (int metric = 0; metric < METRICS; metric++) {
+                histograms[metric].merge(other.histograms[metric]);
+            }
+            badElements += other.badElements;
+            for (int i = 0; i < other.worstSize; i++) {
+                addWorst(other.worstElements[i], other.worstSkewness[i]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Distribution of a metric: number of elements in each bin [bounds[i], bounds[i + 1][, the values out of
+     * the bounds are counted in the first / last bin
+     */
+    @Getter
+    public static final class Histogram {
+        private final String name;
+        private final double[] bounds;
+        private final long[] counts;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        // number of values, the infinite values are not in the mean
+        private long size;
+        private long finiteSize;
+
+        private Histogram(String name, double[] bounds) {
+            this.name = name;
+            this.bounds = bounds;
+            this.counts = new long[bounds.length - 1];
+        }
+
+        private void add(double value) {
+            int position = Arrays.binarySearch(bounds, value);
+            int bin = position >= 0 ? position : -position - 2;
+            counts[Math.max(0, Math.min(counts.length - 1, bin))]++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            size++;
+            if (Double.isFinite(value)) {
+                sum += value;
+                finiteSize++;
+            }
+        }
+
+        private void merge(Histogram other) {
+            for (int bin = 0; bin < counts.length; bin++) {
+                counts[bin] += other.counts[bin];
+            }
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            size += other.size;
+            finiteSize += other.finiteSize;
+        }
+
+        /**
+         * @return the mean of the finite values
+         */
+        public double getMean() {
+            return finiteSize == 0 ? 0 : sum / finiteSize;
+        }
+
+        /**
+         * Append the histogram: the bins from the first to the last not empty, consecutive bins are grouped
+         * to display at most {@value #MAX_ROWS} rows
+         */
+        private void format(StringBuilder report) {
+            report.append(String.format(Locale.ROOT, "%s: min %.4g, mean %.4g, max %.4g%n", name, min, getMean(), max));
+            int first = 0;
+            while (first < counts.length && counts[first] == 0) {
+                first++;
+            }
+            int last = counts.length - 1;
+            while (last > first && counts[last] == 0) {
+                last--;
+            }
+            if (first == counts.length) {
+                return;
+            }
+            int group = (last - first + MAX_ROWS) / MAX_ROWS;
+            long[] rows = new long[(last - first) / group + 1];
+            for (int bin = first; bin <= last; bin++) {
+                rows[(bin - first) / group] += counts[bin];
+            }
+            long maxRow = Arrays.stream(rows).max().orElse(1);
+            for (int row = 0; row < rows.length; row++) {
+                double lower = bounds[first + row * group];
+                double upper = bounds[Math.min(first + (row + 1) * group, bounds.length - 1)];
+                int bar = (int) Math.ceil((double) BAR_WIDTH * rows[row] / maxRow);
+                report.append(String.format(Locale.ROOT, "  [%9.3g, %9.3g[ %10d %5.1f%% %s%n", lower, upper,
+                        rows[row], 100.0 * rows[row] / size, "#".repeat(bar)));
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.softpath.riverpath.fileparser;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Spatial index of a mesh: bounding volume hierarchies (BVH) over its triangles and its tetrahedra,
+ * to answer in logarithmic time:
+ * <ul>
+ *     <li>the nearest vertex of a point</li>
+ *     <li>the element containing a point: triangle of a 2D mesh, tetrahedron of a volume mesh</li>
+ *     <li>the first triangle hit by a ray (picking)</li>
+ * </ul>
+ * Each hierarchy is split at the median of the element centers along the longest axis, the large nodes
+ * are built in parallel.
+ */
+public final class MeshSpatialIndex {
+
+    private static final int LEAF_SIZE = 4;
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    // relative tolerance of the point in element tests (points on a shared edge / face)
+    private static final double EPSILON = 1e-10;
+
+    private final double[] coordinates;
+    private final boolean is3D;
+    private final Hierarchy triangleHierarchy;
+    // null for a surface or 2D mesh
+    private final Hierarchy tetrahedronHierarchy;
+
+    /**
+     * Build the index of a mesh
+     *
+     * @param mesh the mesh
+     */
+    MeshSpatialIndex(CFDTriangleMesh mesh) {
+        coordinates = mesh.getCoordinates();
+        is3D = mesh.is3D();
+        triangleHierarchy = new Hierarchy(mesh.getTriangles(), 3);
+        tetrahedronHierarchy = mesh.getTetrahedronCount() > 0 ? new Hierarchy(mesh.getTetrahedra(), 4) : null;
+    }
+
+    /**
+     * Find the vertex the closest to a point
+     *
+     * @return the vertex (0-based), -1 for an empty mesh
+     */
+    public int findNearestVertex(double x, double y, double z) {
+        Hierarchy hierarchy = tetrahedronHierarchy != null ? tetrahedronHierarchy : triangleHierarchy;
+        double[] best = {Double.MAX_VALUE, -1};
+        if (hierarchy.root != null) {
+            hierarchy.findNearestVertex(hierarchy.root, x, y, z, best);
+        }
+        return (int) best[1];
+    }
+
+    /**
+     * Find the element containing a point: a triangle for a 2D mesh (z is ignored), a tetrahedron for a volume mesh
+     *
+     * @return the triangle / tetrahedron (0-based), -1 if the point is outside the mesh or the mesh is a surface
+     */
+    public int findContainingElement(double x, double y, double z) {
+        if (tetrahedronHierarchy != null) {
+            return tetrahedronHierarchy.root == null ? -1 : tetrahedronHierarchy.findContaining(tetrahedronHierarchy.root, x, y, z);
+        }
+        if (is3D || triangleHierarchy.root == null) {
+            return -1;
+        }
+        return triangleHierarchy.findContaining(triangleHierarchy.root, x, y, 0);
+    }
+
+    /**
+     * Find the first triangle hit by a ray
+     *
+     * @param origin    x, y, z of the origin of the ray
+     * @param direction x, y, z of the direction of the ray (not necessarily normalized)
+     * @return the triangle (0-based) and the distance in units of the direction, null if no triangle is hit
+     */
+    public Hit pick(double[] origin, double[] direction) {
+        double[] inverse = {1 / direction[0], 1 / direction[1], 1 / direction[2]};
+        double[] best = {Double.MAX_VALUE, -1};
+        if (triangleHierarchy.root != null) {
+            triangleHierarchy.pick(triangleHierarchy.root, origin, direction, inverse, best);
+        }
+        return best[1] < 0 ? null : new Hit((int) best[1], best[0]);
+    }
+
+    /**
+     * A triangle hit by a ray, at origin + distance * direction
+     */
+    public record Hit(int triangle, double distance) {
+    }
+
+    private static double distanceToBox(Node node, double x, double y, double z) {
+        double dx = Math.max(0, Math.max(node.min[0] - x, x - node.max[0]));
+        double dy = Math.max(0, Math.max(node.min[1] - y, y - node.max[1]));
+        double dz = Math.max(0, Math.max(node.min[2] - z, z - node.max[2]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Slab test
+     *
+     * @return the distance where the ray enters the box, infinite if it does not hit the box
+     */
+    private static double rayToBox(Node node, double[] origin, double[] inverse) {
+        double enter = 0;
+        double exit = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            double t1 = (node.min[axis] - origin[axis]) * inverse[axis];
+            double t2 = (node.max[axis] - origin[axis]) * inverse[axis];
+            // NaN (0 * infinity) when the origin is on a side of a flat box: the axis does not restrict the ray
+            if (!Double.isNaN(t1) && !Double.isNaN(t2)) {
+                enter = Math.max(enter, Math.min(t1, t2));
+                exit = Math.min(exit, Math.max(t1, t2));
+            }
+        }
+        return enter <= exit ? enter : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * A node of a hierarchy: the elements order[start, end[ and their bounding box
+     */
+    private static final class Node {
+        private final double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        private final double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        private final int start;
+        private final int end;
+        private Node left;
+        private Node right;
+
+        private Node(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * BVH of elements with the same number of vertices
+     */
+    private final class Hierarchy {
+        private final int[] elements;
+        private final int verticesPerElement;
+        private final int[] order;
+        private final double[] centers;
+        private final Node root;
+
+        private Hierarchy(int[] elements, int verticesPerElement) {
+            this.elements = elements;
+            this.verticesPerElement = verticesPerElement;
+            int numberOfElements = elements.length / verticesPerElement;
+            order = new int[numberOfElements];
+            Arrays.setAll(order, i -> i);
+            centers = new double[3 * numberOfElements];
+            IntStream.range(0, numberOfElements).parallel().forEach(element -> {
+                for (int corner = 0; corner < verticesPerElement; corner++) {
+                    int vertex = elements[verticesPerElement * element + corner];
+                    for (int axis = 0; axis < 3; axis++) {
+                        centers[3 * element + axis] += coordinates[3 * vertex + axis] / verticesPerElement;
+                    }
+                }
+            });
+            root = numberOfElements == 0 ? null : build(0, numberOfElements);
+        }
+
+        private Node build(int start, int end) {
+            Node node = new Node(start, end);
+            for (int i = start; i < end; i++) {
+                for (int corner = 0; corner < verticesPerElement; corner++) {
+                    int vertex = elements[verticesPerElement * order[i] + corner];
+                    for (int axis = 0; axis < 3; axis++) {
+                        node.min[axis] = Math.min(node.min[axis], coordinates[3 * vertex + axis]);
+                        node.max[axis] = Math.max(node.max[axis], coordinates[3 * vertex + axis]);
+                    }
+                }
+            }
+            if (end - start <= LEAF_SIZE) {
+                return node;
+            }
+            int axis = 0;
+            for (int other = 1; other < 3; other++) {
+                if (node.max[other] - node.min[other] > node.max[axis] - node.min[axis]) {
+                    axis = other;
+                }
+            }
+            int middle = (start + end) >>> 1;
+            select(start, end - 1, middle, axis);
+            if (end - start > PARALLEL_THRESHOLD) {
+                Node[] children = IntStream.of(0, 1).parallel()
+                        .mapToObj(child -> child == 0 ? build(start, middle) : build(middle, end))
+                        .toArray(Node[]::new);
+                node.left = children[0];
+                node.right = children[1];
+            } else {
+                node.left = build(start, middle);
+                node.right = build(middle, end);
+            }
+            return node;
+        }
+
+        /**
+         * Partial sort of order[from, to] (quickselect): the element at k is the one of a full sort by center,
+         * the elements before are not greater, the elements after are not smaller
+         */
+        private void select(int from, int to, int k, int axis) {
+            while (from < to) {
+                double pivot = centers[3 * order[(from + to) >>> 1] + axis];
+                int i = from;
+                int j = to;
+                while (i <= j) {
+                    while (centers[3 * order[i] + axis] < pivot) {
+                        i++;
+                    }
+                    while (centers[3 * order[j] + axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int element = order[i];
+                        order[i++] = order[j];
+                        order[j--] = element;
+                    }
+                }
+                if (k <= j) {
+                    to = j;
+                } else if (k >= i) {
+                    from = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void findNearestVertex(Node node, double x, double y, double z, double[] best) {
+            if (node.left == null) {
+                for (int i = node.start; i < node.end; i++) {
+                    for (int corner = 0; corner < verticesPerElement; corner++) {
+                        int vertex = elements[verticesPerElement * order[i] + corner];
+                        double dx = coordinates[3 * vertex] - x;
+                        double dy = coordinates[3 * vertex + 1] - y;
+                        double dz = coordinates[3 * vertex + 2] - z;
+                        double distance = dx * dx + dy * dy + dz * dz;
+                        if (distance < best[0]) {
+                            best[0] = distance;
+                            best[1] = vertex;
+                        }
+                    }
+                }
+                return;
+            }
+            // nearest child first, the other one is often pruned
+            double leftDistance = distanceToBox(node.left, x, y, z);
+            double rightDistance = distanceToBox(node.right, x, y, z);
+            Node first = leftDistance <= rightDistance ? node.left : node.right;
+            Node second = first == node.left ? node.right : node.left;
+            if (Math.min(leftDistance, rightDistance) < best[0]) {
+                findNearestVertex(first, x, y, z, best);
+            }
+            if (Math.max(leftDistance, rightDistance) < best[0]) {
+                findNearestVertex(second, x, y, z, best);
+            }
+        }
+
+        private int findContaining(Node node, double x, double y, double z) {
+            double tolerance = EPSILON * Math.max(1, Math.max(node.max[0] - node.min[0], node.max[1] - node.min[1]));
+            if (x < node.min[0] - tolerance || x > node.max[0] + tolerance
+                    || y < node.min[1] - tolerance || y > node.max[1] + tolerance
+                    || (verticesPerElement == 4 && (z < node.min[2] - tolerance || z > node.max[2] + tolerance))) {
+                return -1;
+            }
+            if (node.left == null) {
+                for (int i = node.start; i < node.end; i++) {
+                    if (verticesPerElement == 3 ? isInTriangle(order[i], x, y) : isInTetrahedron(order[i], x, y, z)) {
+                        return order[i];
+                    }
+                }
+                return -1;
+            }
+            int element = findContaining(node.left, x, y, z);
+            return element >= 0 ? element : findContaining(node.right, x, y, z);
+        }
+
+        private boolean isInTriangle(int triangle, double x, double y) {
+            int p0 = 3 * elements[3 * triangle];
+            int p1 = 3 * elements[3 * triangle + 1];
+            int p2 = 3 * elements[3 * triangle + 2];
+            double area = cross(p0, p1, coordinates[p2], coordinates[p2 + 1]);
+            double tolerance = EPSILON * Math.abs(area);
+            double w0 = cross(p1, p2, x, y) * Math.signum(area);
+            double w1 = cross(p2, p0, x, y) * Math.signum(area);
+            double w2 = cross(p0, p1, x, y) * Math.signum(area);
+            return area != 0 && w0 >= -tolerance && w1 >= -tolerance && w2 >= -tolerance;
+        }
+
+        /**
+         * @return the z of the cross product (b - a) x (point - a)
+         */
+        private double cross(int a, int b, double x, double y) {
+            return (coordinates[b] - coordinates[a]) * (y - coordinates[a + 1])
+                    - (coordinates[b + 1] - coordinates[a + 1]) * (x - coordinates[a]);
+        }
+
+        /**
+         * The 4 sub-volumes obtained by replacing a vertex by the point must have the sign of the volume
+         */
+        private boolean isInTetrahedron(int tetrahedron, double x, double y, double z) {
+            int a = 3 * elements[4 * tetrahedron];
+            int b = 3 * elements[4 * tetrahedron + 1];
+            int c = 3 * elements[4 * tetrahedron + 2];
+            int d = 3 * elements[4 * tetrahedron + 3];
+            double volume = orient(a, b, c, coordinates[d], coordinates[d + 1], coordinates[d + 2]);
+            double sign = Math.signum(volume);
+            double tolerance = EPSILON * Math.abs(volume);
+            return volume != 0
+                    && -orient(b, c, d, x, y, z) * sign >= -tolerance
+                    && orient(a, c, d, x, y, z) * sign >= -tolerance
+                    && -orient(a, b, d, x, y, z) * sign >= -tolerance
+                    && orient(a, b, c, x, y, z) * sign >= -tolerance;
+        }
+
+        /**
+         * @return the determinant of (b - a, c - a, point - a), 6 times the signed volume
+         */
+        private double orient(int a, int b, int c, double x, double y, double z) {
+            double abx = coordinates[b] - coordinates[a], aby = coordinates[b + 1] - coordinates[a + 1], abz = coordinates[b + 2] - coordinates[a + 2];
+            double acx = coordinates[c] - coordinates[a], acy = coordinates[c + 1] - coordinates[a + 1], acz = coordinates[c + 2] - coordinates[a + 2];
+            double apx = x - coordinates[a], apy = y - coordinates[a + 1], apz = z - coordinates[a + 2];
+            return abx * (acy * apz - acz * apy) - aby * (acx * apz - acz * apx) + abz * (acx * apy - acy * apx);
+        }
+
+        private void pick(Node node, double[] origin, double[] direction, double[] inverse, double[] best) {
+            if (node.left == null) {
+                for (int i = node.start; i < node.end; i++) {
+                    double distance = intersect(order[i], origin, direction);
+                    if (distance < best[0]) {
+                        best[0] = distance;
+                        best[1] = order[i];
+                    }
+                }
+                return;
+            }
+            double leftDistance = rayToBox(node.left, origin, inverse);
+            double rightDistance = rayToBox(node.right, origin, inverse);
+            Node first = leftDistance <= rightDistance ? node.left : node.right;
+            Node second = first == node.left ? node.right : node.left;
+            if (Math.min(leftDistance, rightDistance) < best[0]) {
+                pick(first, origin, direction, inverse, best);
+            }
+            if (Math.max(leftDistance, rightDistance) < best[0]) {
+                pick(second, origin, direction, inverse, best);
+            }
+        }
+
+        /**
+         * Möller–Trumbore intersection of a ray and a triangle (both sides)
+         *
+         * @return the distance in units of the direction, infinite if the triangle is not hit
+         */
+        private double intersect(int triangle, double[] origin, double[] direction) {
+            int p0 = 3 * elements[3 * triangle];
+            int p1 = 3 * elements[3 * triangle + 1];
+            int p2 = 3 * elements[3 * triangle + 2];
+            double e1x = coordinates[p1] - coordinates[p0], e1y = coordinates[p1 + 1] - coordinates[p0 + 1], e1z = coordinates[p1 + 2] - coordinates[p0 + 2];
+            double e2x = coordinates[p2] - coordinates[p0], e2y = coordinates[p2 + 1] - coordinates[p0 + 1], e2z = coordinates[p2 + 2] - coordinates[p0 + 2];
+            double px = direction[1] * e2z - direction[2] * e2y;
+            double py = direction[2] * e2x - direction[0] * e2z;
+            double pz = direction[0] * e2y - direction[1] * e2x;
+            double determinant = e1x * px + e1y * py + e1z * pz;
+            if (determinant == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double tx = origin[0] - coordinates[p0], ty = origin[1] - coordinates[p0 + 1], tz = origin[2] - coordinates[p0 + 2];
+            double u = (tx * px + ty * py + tz * pz) / determinant;
+            if (u < 0 || u > 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double qx = ty * e1z - tz * e1y;
+            double qy = tz * e1x - tx * e1z;
+            double qz = tx * e1y - ty * e1x;
+            double v = (direction[0] * qx + direction[1] * qy + direction[2] * qz) / determinant;
+            if (v < 0 || u + v > 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double distance = (e2x * qx + e2y * qy + e2z * qz) / determinant;
+            return distance >= 0 ? distance : Double.POSITIVE_INFINITY;
+        }
+    }
+}
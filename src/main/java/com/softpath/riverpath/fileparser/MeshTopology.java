@@ -0,0 +1,281 @@
+package com.softpath.riverpath.fileparser;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Topological operations on element connectivity arrays.
+ * <p>
+ * A boundary edge (resp. face) is an edge of a triangle (resp. face of a tetrahedron) used by exactly one element.
+ * Edges and faces are counted in open addressing hash tables of primitive keys, so no object is created per
+ * element and the cost is linear in the number of elements. Large sets of edges are partitioned by hash and
+ * the partitions are counted in parallel.
+ * </p>
+ */
+final class MeshTopology {
+
+    // local vertices of the edges of a triangle and of the faces of a tetrahedron (same order as gmsh4mtc.py)
+    private static final int[][] TRIANGLE_EDGES = {{0, 1}, {2, 0}, {1, 2}};
+    private static final int[][] TETRAHEDRON_FACES = {{0, 2, 1}, {0, 1, 3}, {0, 3, 2}, {1, 2, 3}};
+    private static final int EMPTY = -1;
+    private static final int SHARED = -2;
+    // below this number of edge occurrences the edges are counted in a single table
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    // more partitions than workers to balance the partitions
+    private static final int PARTITIONS_PER_WORKER = 4;
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private MeshTopology() {
+    }
+
+    /**
+     * Find the edges used by only one triangle
+     *
+     * @param triangles 3 vertices per triangle
+     * @return 2 vertices per boundary edge, oriented as in their triangle, in the order of the triangles
+     */
+    static int[] boundaryEdges(int[] triangles) {
+        return toEdges(triangles, selectEdges(triangles, count -> count == 1));
+    }
+
+    /**
+     * List the edges of the triangles once
+     *
+     * @param triangles 3 vertices per triangle
+     * @return 2 vertices per distinct edge, oriented as in their first triangle, in the order of the triangles
+     */
+    static int[] uniqueEdges(int[] triangles) {
+        return toEdges(triangles, selectEdges(triangles, count -> true));
+    }
+
+    /**
+     * Count the edges which are not shared by exactly 2 triangles, a closed (watertight) surface has none
+     *
+     * @param triangles 3 vertices per triangle
+     * @return the number of open or non-manifold edges
+     */
+    static int countOpenEdges(int[] triangles) {
+        return selectEdges(triangles, count -> count != 2).length;
+    }
+
+    /**
+     * Count the triangles using each distinct edge and select the edges whose count matches the filter.
+     * The occurrence of an edge is 3 * triangle + local edge.
+     * <p>
+     * For large meshes the occurrences are first scattered by hash into partitions (in parallel over ranges of
+     * triangles), then each partition is counted in its own table in parallel. Both ways give the same result.
+     * </p>
+     *
+     * @param triangles 3 vertices per triangle
+     * @param filter    the number of triangles using a selected edge
+     * @return the first occurrence of each selected edge, ascending
+     */
+    private static int[] selectEdges(int[] triangles, IntPredicate filter) {
+        int occurrences = triangles.length;
+        int partitions = occurrences < PARALLEL_THRESHOLD ? 1
+                : Integer.highestOneBit(ForkJoinPool.getCommonPoolParallelism()) * PARTITIONS_PER_WORKER;
+        if (partitions == 1) {
+            return countEdges(triangles, null, 0, occurrences, filter);
+        }
+        int partitionBits = Integer.numberOfTrailingZeros(partitions);
+        // histogram[range][partition] = number of occurrences of the range in the partition
+        int[][] histogram = new int[partitions][partitions];
+        IntStream.range(0, partitions).parallel().forEach(range -> {
+            for (int occurrence = rangeStart(range, partitions, occurrences);
+                 occurrence < rangeStart(range + 1, partitions, occurrences); occurrence++) {
+                histogram[range][partition(edgeKey(triangles, occurrence), partitionBits)]++;
+            }
+        });
+        // partition major layout, the ranges of a partition are in order => occurrences stay ascending
+        int[] partitionStarts = new int[partitions + 1];
+        int[][] cursors = new int[partitions][partitions];
+        int offset = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            partitionStarts[partition] = offset;
+            for (int range = 0; range < partitions; range++) {
+                cursors[range][partition] = offset;
+                offset += histogram[range][partition];
+            }
+        }
+        partitionStarts[partitions] = offset;
+        int[] scattered = new int[occurrences];
+        IntStream.range(0, partitions).parallel().forEach(range -> {
+            for (int occurrence = rangeStart(range, partitions, occurrences);
+                 occurrence < rangeStart(range + 1, partitions, occurrences); occurrence++) {
+                scattered[cursors[range][partition(edgeKey(triangles, occurrence), partitionBits)]++] = occurrence;
+            }
+        });
+        int[][] selected = new int[partitions][];
+        IntStream.range(0, partitions).parallel().forEach(partition -> selected[partition] =
+                countEdges(triangles, scattered, partitionStarts[partition], partitionStarts[partition + 1], filter));
+        int[] result = new int[Arrays.stream(selected).mapToInt(edges -> edges.length).sum()];
+        offset = 0;
+        for (int[] edges : selected) {
+            System.arraycopy(edges, 0, result, offset, edges.length);
+            offset += edges.length;
+        }
+        Arrays.parallelSort(result);
+        return result;
+    }
+
+    /**
+     * Count the edges of a list of occurrences in an open addressing table
+     *
+     * @param occurrences the occurrences, null for all the occurrences from 0
+     * @return the first occurrence of the edges matching the filter
+     */
+    private static int[] countEdges(int[] triangles, int[] occurrences, int from, int to, IntPredicate filter) {
+        int mask = tableCapacity(to - from) - 1;
+        long[] keys = new long[mask + 1];
+        int[] firstOccurrences = new int[mask + 1];
+        int[] counts = new int[mask + 1];
+        Arrays.fill(firstOccurrences, EMPTY);
+        for (int i = from; i < to; i++) {
+            int occurrence = occurrences == null ? i : occurrences[i];
+            long key = edgeKey(triangles, occurrence);
+            int slot = (int) mix(key) & mask;
+            while (firstOccurrences[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (firstOccurrences[slot] == EMPTY) {
+                keys[slot] = key;
+                firstOccurrences[slot] = occurrence;
+            }
+            counts[slot]++;
+        }
+        IntArrayBuilder selected = new IntArrayBuilder((to - from) / 8);
+        for (int slot = 0; slot <= mask; slot++) {
+            if (firstOccurrences[slot] != EMPTY && filter.test(counts[slot])) {
+                selected.add(firstOccurrences[slot]);
+            }
+        }
+        int[] result = selected.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return 2 vertices per occurrence
+     */
+    private static int[] toEdges(int[] triangles, int[] occurrences) {
+        int[] edges = new int[2 * occurrences.length];
+        for (int i = 0; i < occurrences.length; i++) {
+            int[] edge = TRIANGLE_EDGES[occurrences[i] % 3];
+            int base = occurrences[i] - occurrences[i] % 3;
+            edges[2 * i] = triangles[base + edge[0]];
+            edges[2 * i + 1] = triangles[base + edge[1]];
+        }
+        return edges;
+    }
+
+    private static int rangeStart(int range, int ranges, int occurrences) {
+        return (int) ((long) occurrences * range / ranges);
+    }
+
+    /**
+     * The partition uses the high bits of the hash, the table slot uses the low bits
+     */
+    private static int partition(long key, int partitionBits) {
+        return partitionBits == 0 ? 0 : (int) (mix(key) >>> (Long.SIZE - partitionBits));
+    }
+
+    /**
+     * Find the faces used by only one tetrahedron (the hull of a volume mesh)
+     *
+     * @param tetrahedra 4 vertices per tetrahedron
+     * @return 3 vertices per boundary face, oriented as in their tetrahedron, in the order of the tetrahedra
+     */
+    static int[] boundaryFaces(int[] tetrahedra) {
+        int occurrences = tetrahedra.length;
+        int mask = tableCapacity(occurrences) - 1;
+        // sorted vertices of the face
+        int[] keys = new int[3 * (mask + 1)];
+        int[] values = new int[mask + 1];
+        Arrays.fill(values, EMPTY);
+        for (int occurrence = 0; occurrence < occurrences; occurrence++) {
+            int[] face = TETRAHEDRON_FACES[occurrence % 4];
+            int base = occurrence - occurrence % 4;
+            int a = tetrahedra[base + face[0]];
+            int b = tetrahedra[base + face[1]];
+            int c = tetrahedra[base + face[2]];
+            // sort a <= b <= c
+            if (a > b) {
+                int tmp = a; a = b; b = tmp;
+            }
+            if (b > c) {
+                int tmp = b; b = c; c = tmp;
+            }
+            if (a > b) {
+                int tmp = a; a = b; b = tmp;
+            }
+            int slot = (int) mix((a * PRIME_1 + b) * PRIME_2 + c) & mask;
+            while (values[slot] != EMPTY
+                    && (keys[3 * slot] != a || keys[3 * slot + 1] != b || keys[3 * slot + 2] != c)) {
+                slot = (slot + 1) & mask;
+            }
+            keys[3 * slot] = a;
+            keys[3 * slot + 1] = b;
+            keys[3 * slot + 2] = c;
+            values[slot] = values[slot] == EMPTY ? occurrence : SHARED;
+        }
+        int[] boundary = singleOccurrences(values);
+        int[] faces = new int[3 * boundary.length];
+        for (int i = 0; i < boundary.length; i++) {
+            int[] face = TETRAHEDRON_FACES[boundary[i] % 4];
+            int base = boundary[i] - boundary[i] % 4;
+            for (int j = 0; j < 3; j++) {
+                faces[3 * i + j] = tetrahedra[base + face[j]];
+            }
+        }
+        return faces;
+    }
+
+    /**
+     * @return the occurrences found only once, sorted to keep the order of the elements
+     */
+    private static int[] singleOccurrences(int[] values) {
+        int count = 0;
+        for (int value : values) {
+            if (value >= 0) {
+                count++;
+            }
+        }
+        int[] occurrences = new int[count];
+        count = 0;
+        for (int value : values) {
+            if (value >= 0) {
+                occurrences[count++] = value;
+            }
+        }
+        Arrays.parallelSort(occurrences);
+        return occurrences;
+    }
+
+    /**
+     * @return the key of an edge occurrence: the 2 vertices packed in a long, smallest first
+     */
+    private static long edgeKey(int[] triangles, int occurrence) {
+        int[] edge = TRIANGLE_EDGES[occurrence % 3];
+        int base = occurrence - occurrence % 3;
+        int vertex1 = triangles[base + edge[0]];
+        int vertex2 = triangles[base + edge[1]];
+        return vertex1 < vertex2
+                ? ((long) vertex1 << 32) | vertex2
+                : ((long) vertex2 << 32) | vertex1;
+    }
+
+    /**
+     * A power of two at least twice the number of distinct keys (each edge / face is shared by about 2 elements)
+     */
+    private static int tableCapacity(int occurrences) {
+        return Integer.highestOneBit(Math.max(occurrences, 8) - 1) << 1;
+    }
+
+    static long mix(long key) {
+        key = (key ^ (key >>> 32)) * PRIME_1;
+        return key ^ (key >>> 29);
+    }
+}
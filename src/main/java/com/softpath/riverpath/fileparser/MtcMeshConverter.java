@@ -0,0 +1,120 @@
+package com.softpath.riverpath.fileparser;
+
+import java.util.Arrays;
+
+/**
+ * Conversion of raw nodes and elements to a mesh as expected by cimlib (.t file), same steps as gmsh4mtc.py:
+ * <ul>
+ *     <li>3D: the triangles are replaced by the boundary faces of the tetrahedra</li>
+ *     <li>plane mesh: reduced to 2D with normals looking down and the boundary edges as border lines</li>
+ *     <li>otherwise surface mesh in 3D (2.5D)</li>
+ * </ul>
+ * The unused nodes are removed in all cases.
+ */
+final class MtcMeshConverter {
+
+    private MtcMeshConverter() {
+    }
+
+    /**
+     * Convert raw nodes and elements to a mesh
+     *
+     * @param nodes      x, y, z of each node (modified in place)
+     * @param triangles  3 nodes (0-based) per triangle
+     * @param tetrahedra 4 nodes (0-based) per tetrahedron
+     * @return the mesh
+     */
+    static CFDTriangleMesh toMesh(double[] nodes, int[] triangles, int[] tetrahedra) {
+        if (tetrahedra.length == 0 && triangles.length == 0) {
+            throw new IllegalStateException("No triangle or tetrahedron in mesh file");
+        }
+        int[] borderLines = new int[0];
+        if (tetrahedra.length > 0) {
+            triangles = MeshTopology.boundaryFaces(tetrahedra);
+        } else {
+            int constantAxis = findConstantAxis(nodes);
+            if (constantAxis >= 0) {
+                reduceTo2D(nodes, constantAxis);
+                orientDown(nodes, triangles);
+                borderLines = MeshTopology.boundaryEdges(triangles);
+            }
+        }
+        // remove unused nodes
+        int numberOfNodes = nodes.length / 3;
+        int[] newIndex = new int[numberOfNodes];
+        for (int[] elements : new int[][]{tetrahedra, triangles}) {
+            for (int vertex : elements) {
+                newIndex[vertex] = 1;
+            }
+        }
+        int numberOfUsedNodes = 0;
+        for (int node = 0; node < numberOfNodes; node++) {
+            if (newIndex[node] == 1) {
+                System.arraycopy(nodes, 3 * node, nodes, 3 * numberOfUsedNodes, 3);
+                newIndex[node] = numberOfUsedNodes++;
+            } else {
+                newIndex[node] = -1;
+            }
+        }
+        for (int[] elements : new int[][]{tetrahedra, triangles, borderLines}) {
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = newIndex[elements[i]];
+            }
+        }
+        return CFDTriangleMesh.builder()
+                .coordinates(Arrays.copyOf(nodes, 3 * numberOfUsedNodes))
+                .tetrahedra(tetrahedra)
+                .triangles(triangles)
+                .borderLines(borderLines)
+                .build();
+    }
+
+    /**
+     * @return the axis (0, 1 or 2) on which all nodes have the same coordinate, -1 if there is none
+     */
+    private static int findConstantAxis(double[] nodes) {
+        for (int axis = 0; axis < 3; axis++) {
+            boolean constant = true;
+            for (int i = axis + 3; i < nodes.length && constant; i += 3) {
+                constant = nodes[i] == nodes[axis];
+            }
+            if (constant) {
+                return axis;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keep the 2 other axes as x and y, z is set to 0
+     */
+    private static void reduceTo2D(double[] nodes, int constantAxis) {
+        int firstAxis = constantAxis == 0 ? 1 : 0;
+        int secondAxis = constantAxis == 2 ? 1 : 2;
+        for (int i = 0; i < nodes.length; i += 3) {
+            double x = nodes[i + firstAxis];
+            double y = nodes[i + secondAxis];
+            nodes[i] = x;
+            nodes[i + 1] = y;
+            nodes[i + 2] = 0;
+        }
+    }
+
+    /**
+     * Cimlib prefers normals looking down in 2D: the triangles with a positive normal are flipped
+     */
+    private static void orientDown(double[] nodes, int[] triangles) {
+        for (int i = 0; i < triangles.length; i += 3) {
+            int p0 = 3 * triangles[i];
+            int p1 = 3 * triangles[i + 1];
+            int p2 = 3 * triangles[i + 2];
+            double normal = (nodes[p1] - nodes[p0]) * (nodes[p2 + 1] - nodes[p0 + 1])
+                    - (nodes[p1 + 1] - nodes[p0 + 1]) * (nodes[p2] - nodes[p0]);
+            if (normal > 0) {
+                int vertex = triangles[i + 1];
+                triangles[i + 1] = triangles[i + 2];
+                triangles[i + 2] = vertex;
+            }
+        }
+    }
+}
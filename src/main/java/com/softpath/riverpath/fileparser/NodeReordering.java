@@ -0,0 +1,281 @@
+package com.softpath.riverpath.fileparser;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Renumbering of the nodes of a mesh by the reverse Cuthill-McKee algorithm (RCM), to reduce the bandwidth
+ * of the matrices assembled by the solver and improve the locality of its memory accesses.
+ * <p>
+ * The nodes are numbered by a breadth first traversal of the graph of the edges, the neighbors of a node in
+ * ascending degree, starting from a pseudo-peripheral node of each connected component; the order is then
+ * reversed. The elements are sorted by their lowest node so they are traversed in the same order as the nodes.
+ * The graph is stored in compressed rows of primitive arrays, its rows are deduplicated in parallel.
+ * </p>
+ */
+public final class NodeReordering {
+
+    // local vertices of the edges of a triangle and of a tetrahedron
+    private static final int[][] TRIANGLE_EDGES = {{0, 1}, {1, 2}, {2, 0}};
+    private static final int[][] TETRAHEDRON_EDGES = {{0, 1}, {0, 2}, {0, 3}, {1, 2}, {1, 3}, {2, 3}};
+
+    private NodeReordering() {
+    }
+
+    /**
+     * The renumbered mesh and the bandwidth of its graph before and after
+     *
+     * @param mesh            the renumbered mesh
+     * @param bandwidthBefore the largest difference between the nodes of an edge in the original mesh
+     * @param bandwidthAfter  the largest difference between the nodes of an edge in the renumbered mesh
+     */
+    public record Result(CFDTriangleMesh mesh, int bandwidthBefore, int bandwidthAfter) {
+    }
+
+    /**
+     * Renumber the nodes and the elements of a mesh
+     *
+     * @param mesh the mesh
+     * @return the renumbered mesh (a new mesh) and the bandwidths
+     */
+    public static Result reorder(CFDTriangleMesh mesh) {
+        int numberOfNodes = mesh.getVertexCount();
+        boolean volume = mesh.getTetrahedronCount() > 0;
+        Graph graph = volume ? new Graph(numberOfNodes, mesh.getTetrahedra(), 4, TETRAHEDRON_EDGES)
+                : new Graph(numberOfNodes, mesh.getTriangles(), 3, TRIANGLE_EDGES);
+        int[] identity = new int[numberOfNodes];
+        Arrays.setAll(identity, node -> node);
+        int bandwidthBefore = graph.bandwidth(identity);
+        int[] newIndex = graph.reverseCuthillMcKee();
+        int bandwidthAfter = graph.bandwidth(newIndex);
+
+        double[] coordinates = mesh.getCoordinates();
+        double[] newCoordinates = new double[coordinates.length];
+        IntStream.range(0, numberOfNodes).parallel().forEach(node ->
+                System.arraycopy(coordinates, 3 * node, newCoordinates, 3 * newIndex[node], 3));
+        CFDTriangleMesh reorderedMesh = CFDTriangleMesh.builder()
+                .coordinates(newCoordinates)
+                .tetrahedra(renumberElements(mesh.getTetrahedra(), 4, newIndex))
+                .triangles(renumberElements(mesh.getTriangles(), 3, newIndex))
+                .borderLines(renumberElements(mesh.getBorderLines(), 2, newIndex))
+                .build();
+        return new Result(reorderedMesh, bandwidthBefore, bandwidthAfter);
+    }
+
+    /**
+     * Apply the new numbering to the vertices of elements, then sort the elements by their lowest vertex
+     * (counting sort, the order of the elements with the same lowest vertex is kept)
+     *
+     * @return the new elements
+     */
+    private static int[] renumberElements(int[] elements, int verticesPerElement, int[] newIndex) {
+        int numberOfElements = elements.length / verticesPerElement;
+        int[] lowestVertices = new int[numberOfElements];
+        IntStream.range(0, numberOfElements).parallel().forEach(element -> {
+            int lowest = Integer.MAX_VALUE;
+            for (int corner = 0; corner < verticesPerElement; corner++) {
+                lowest = Math.min(lowest, newIndex[elements[verticesPerElement * element + corner]]);
+            }
+            lowestVertices[element] = lowest;
+        });
+        int[] starts = new int[newIndex.length + 1];
+        for (int lowest : lowestVertices) {
+            starts[lowest + 1]++;
+        }
+        Arrays.parallelPrefix(starts, Integer::sum);
+        int[] renumbered = new int[elements.length];
+        for (int element = 0; element < numberOfElements; element++) {
+            int position = starts[lowestVertices[element]]++;
+            for (int corner = 0; corner < verticesPerElement; corner++) {
+                renumbered[verticesPerElement * position + corner] = newIndex[elements[verticesPerElement * element + corner]];
+            }
+        }
+        return renumbered;
+    }
+
+    /**
+     * Graph of the edges of the elements, in compressed rows: the neighbors of node i are
+     * neighbors[rowStarts[i], rowStarts[i + 1][
+     */
+    private static final class Graph {
+        private final int numberOfNodes;
+        private final int[] rowStarts;
+        private final int[] neighbors;
+
+        private Graph(int numberOfNodes, int[] elements, int verticesPerElement, int[][] localEdges) {
+            this.numberOfNodes = numberOfNodes;
+            int numberOfElements = elements.length / verticesPerElement;
+            // each edge is first stored once in the row of its lowest node, with duplicates
+            int[] halfStarts = new int[numberOfNodes + 1];
+            for (int element = 0; element < numberOfElements; element++) {
+                for (int[] edge : localEdges) {
+                    int a = elements[verticesPerElement * element + edge[0]];
+                    int b = elements[verticesPerElement * element + edge[1]];
+                    halfStarts[Math.min(a, b) + 1]++;
+                }
+            }
+            Arrays.parallelPrefix(halfStarts, Integer::sum);
+            int[] halfNeighbors = new int[halfStarts[numberOfNodes]];
+            int[] next = Arrays.copyOf(halfStarts, numberOfNodes);
+            for (int element = 0; element < numberOfElements; element++) {
+                for (int[] edge : localEdges) {
+                    int a = elements[verticesPerElement * element + edge[0]];
+                    int b = elements[verticesPerElement * element + edge[1]];
+                    halfNeighbors[next[Math.min(a, b)]++] = Math.max(a, b);
+                }
+            }
+            // sort and deduplicate each row, halfSizes = number of unique neighbors of the row
+            int[] halfSizes = new int[numberOfNodes];
+            IntStream.range(0, numberOfNodes).parallel().forEach(node -> {
+                int start = halfStarts[node];
+                int end = halfStarts[node + 1];
+                Arrays.sort(halfNeighbors, start, end);
+                int size = 0;
+                for (int i = start; i < end; i++) {
+                    if (size == 0 || halfNeighbors[start + size - 1] != halfNeighbors[i]) {
+                        halfNeighbors[start + size++] = halfNeighbors[i];
+                    }
+                }
+                halfSizes[node] = size;
+            });
+            // symmetric rows: each unique edge in the rows of both nodes
+            rowStarts = new int[numberOfNodes + 1];
+            for (int node = 0; node < numberOfNodes; node++) {
+                rowStarts[node + 1] += halfSizes[node];
+                for (int i = halfStarts[node]; i < halfStarts[node] + halfSizes[node]; i++) {
+                    rowStarts[halfNeighbors[i] + 1]++;
+                }
+            }
+            Arrays.parallelPrefix(rowStarts, Integer::sum);
+            neighbors = new int[rowStarts[numberOfNodes]];
+            next = Arrays.copyOf(rowStarts, numberOfNodes);
+            for (int node = 0; node < numberOfNodes; node++) {
+                for (int i = halfStarts[node]; i < halfStarts[node] + halfSizes[node]; i++) {
+                    neighbors[next[node]++] = halfNeighbors[i];
+                    neighbors[next[halfNeighbors[i]]++] = node;
+                }
+            }
+        }
+
+        private int degree(int node) {
+            return rowStarts[node + 1] - rowStarts[node];
+        }
+
+        /**
+         * @return the largest difference between the indexes of the nodes of an edge
+         */
+        private int bandwidth(int[] index) {
+            return IntStream.range(0, numberOfNodes).parallel().map(node -> {
+                int bandwidth = 0;
+                for (int i = rowStarts[node]; i < rowStarts[node + 1]; i++) {
+                    bandwidth = Math.max(bandwidth, Math.abs(index[node] - index[neighbors[i]]));
+                }
+                return bandwidth;
+            }).max().orElse(0);
+        }
+
+        /**
+         * @return the new index of each node
+         */
+        private int[] reverseCuthillMcKee() {
+            // order[i] = node numbered i by Cuthill-McKee
+            int[] order = new int[numberOfNodes];
+            boolean[] numbered = new boolean[numberOfNodes];
+            // work arrays of the traversals to find the start nodes
+            int[] queue = new int[numberOfNodes];
+            int[] visits = new int[numberOfNodes];
+            int[] levels = new int[numberOfNodes];
+            int[] visit = {0};
+            int size = 0;
+            for (int node = 0; node < numberOfNodes; node++) {
+                if (numbered[node]) {
+                    continue;
+                }
+                int start = findPseudoPeripheralNode(node, queue, visits, levels, visit);
+                // breadth first numbering of the component of the start node
+                int head = size;
+                order[size++] = start;
+                numbered[start] = true;
+                while (head < size) {
+                    int current = order[head++];
+                    int first = size;
+                    for (int i = rowStarts[current]; i < rowStarts[current + 1]; i++) {
+                        int neighbor = neighbors[i];
+                        if (!numbered[neighbor]) {
+                            numbered[neighbor] = true;
+                            order[size++] = neighbor;
+                        }
+                    }
+                    sortByDegree(order, first, size);
+                }
+            }
+            int[] newIndex = new int[numberOfNodes];
+            for (int i = 0; i < numberOfNodes; i++) {
+                newIndex[order[i]] = numberOfNodes - 1 - i;
+            }
+            return newIndex;
+        }
+
+        /**
+         * Find a node of the component of a node with a large eccentricity (George-Liu): starting from the node,
+         * move to the node of lowest degree of the last level of the traversal while the number of levels grows
+         *
+         * @return the start node of the numbering
+         */
+        private int findPseudoPeripheralNode(int node, int[] queue, int[] visits, int[] levels, int[] visit) {
+            int root = node;
+            int eccentricity = -1;
+            while (true) {
+                // breadth first traversal from root, the nodes visited by a previous traversal have an older mark
+                int mark = ++visit[0];
+                int head = 0;
+                int size = 0;
+                queue[size++] = root;
+                visits[root] = mark;
+                levels[root] = 0;
+                while (head < size) {
+                    int current = queue[head++];
+                    for (int i = rowStarts[current]; i < rowStarts[current + 1]; i++) {
+                        int neighbor = neighbors[i];
+                        if (visits[neighbor] != mark) {
+                            visits[neighbor] = mark;
+                            levels[neighbor] = levels[current] + 1;
+                            queue[size++] = neighbor;
+                        }
+                    }
+                }
+                int lastLevel = levels[queue[size - 1]];
+                if (lastLevel <= eccentricity) {
+                    return root;
+                }
+                eccentricity = lastLevel;
+                int candidate = queue[size - 1];
+                for (int i = size - 1; i >= 0 && levels[queue[i]] == lastLevel; i--) {
+                    if (degree(queue[i]) < degree(candidate)) {
+                        candidate = queue[i];
+                    }
+                }
+                if (candidate == root) {
+                    return root;
+                }
+                root = candidate;
+            }
+        }
+
+        /**
+         * Insertion sort of nodes[from, to[ by ascending degree (few neighbors per node)
+         */
+        private void sortByDegree(int[] nodes, int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int node = nodes[i];
+                int degree = degree(node);
+                int j = i - 1;
+                while (j >= from && degree(nodes[j]) > degree) {
+                    nodes[j + 1] = nodes[j];
+                    j--;
+                }
+                nodes[j + 1] = node;
+            }
+        }
+    }
+}
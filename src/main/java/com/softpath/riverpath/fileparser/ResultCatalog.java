@@ -0,0 +1,306 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Catalog of the result time series of a run: the result files of a directory (one per stored increment).
+ * <p>
+ * The files are indexed once (time, location of the arrays, size), then the geometry and the arrays of a step are
+ * read on demand, one array at a time. The loaded arrays are kept in a cache limited in bytes, the least recently
+ * used are evicted first. A background thread prefetches the next step while a step is displayed, a concurrent
+ * request of the same array waits for the load in progress instead of reading the file again.
+ * </p>
+ * <p>
+ * Without remeshing all the steps have the same points and cells: the geometry of the first loaded step is kept
+ * apart from the cache and returned for every step whose points and cells are the same bytes in the files, so the
+ * geometry is read and the view built once for the whole series.
+ * </p>
+ */
+public final class ResultCatalog implements AutoCloseable {
+
+    // the step number is the last number of the file name: bulles_12.vtu
+    private static final Pattern STEP_NUMBER = Pattern.compile("(\\d+)\\D*\\.p?vtu$");
+
+    @Getter
+    private final File directory;
+    @Getter
+    private final List<Step> steps;
+    @Getter
+    private final long cacheBudget;
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private final ExecutorService prefetcher;
+    // the step requested by the last prefetch, an older prefetch is skipped
+    private final AtomicInteger prefetchedStep = new AtomicInteger(-1);
+    // the geometry shared by the steps without remeshing, null before the first geometry is loaded
+    private volatile SharedGeometry sharedGeometry;
+    // for each compared step, true if its geometry is the shared one
+    private final Map<Integer, Boolean> sameGeometry = new ConcurrentHashMap<>();
+
+    /**
+     * A result file
+     *
+     * @param number the increment number from the file name
+     * @param time   the simulation time, NaN if not written in the file
+     * @param index  the location of the arrays in the file
+     */
+    public record Step(int number, double time, VtuFileParser.Index index) {
+
+        public File file() {
+            return index.getFile();
+        }
+    }
+
+    /**
+     * Key of a cached array, the geometry has no array name
+     */
+    private record Key(int step, String name) {
+    }
+
+    /**
+     * The geometry of a step, shared by the steps with the same points and cells
+     */
+    private record SharedGeometry(int step, VtuResult geometry) {
+    }
+
+    /**
+     * A cached array (or a load in progress) and its size in bytes
+     */
+    private static final class Entry {
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private long bytes;
+    }
+
+    private ResultCatalog(File directory, List<Step> steps, long cacheBudget) {
+        this.directory = directory;
+        this.steps = steps;
+        this.cacheBudget = cacheBudget;
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "result-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Index the result files of a directory (the .pvtu files of a parallel run, the .vtu files otherwise)
+     *
+     * @param directory   the directory of the results
+     * @param prefix      the prefix of the result files (bulles_)
+     * @param cacheBudget the maximum size in bytes of the loaded arrays kept in memory
+     * @return the catalog, the steps are sorted by increment number
+     */
+    public static ResultCatalog scan(File directory, String prefix, long cacheBudget) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".pvtu"));
+        if (files == null || files.length == 0) {
+            files = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".vtu"));
+        }
+        if (files == null) {
+            files = new File[0];
+        }
+        List<Step> steps = Arrays.stream(files).parallel()
+                .map(file -> {
+                    VtuFileParser.Index index = VtuFileParser.index(file);
+                    return new Step(stepNumber(file), index.getTime(), index);
+                })
+                .sorted(Comparator.comparingInt(Step::number).thenComparing(step -> step.file().getName()))
+                .toList();
+        return new ResultCatalog(directory, steps, cacheBudget);
+    }
+
+    private static int stepNumber(File file) {
+        Matcher matcher = STEP_NUMBER.matcher(file.getName());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * @return the total size of the result files
+     */
+    public long getTotalFileSize() {
+        return steps.stream().mapToLong(step -> step.index().getFileSize()).sum();
+    }
+
+    /**
+     * @param step the index of the step in the catalog
+     * @return the points and the cells of the step, the same instance for the steps with the same geometry
+     */
+    public VtuResult getGeometry(int step) {
+        SharedGeometry shared = sharedGeometry;
+        if (shared != null && sameGeometry.computeIfAbsent(step, other -> other == shared.step()
+                || VtuFileParser.isSameGeometry(steps.get(shared.step()).index(), steps.get(other).index()))) {
+            return shared.geometry();
+        }
+        VtuResult geometry = get(new Key(step, null), () -> VtuFileParser.readGeometry(steps.get(step).index()),
+                loaded -> 8L * loaded.getPoints().length
+                        + 4L * (loaded.getConnectivity().length + loaded.getOffsets().length
+                        + loaded.getCellTypes().length));
+        if (shared == null) {
+            synchronized (this) {
+                if (sharedGeometry == null) {
+                    sharedGeometry = new SharedGeometry(step, geometry);
+                    sameGeometry.clear();
+                }
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * @param step the index of the step in the catalog
+     * @param name the name of the array
+     * @return the array of the step
+     */
+    public VtuResult.Field getField(int step, String name) {
+        return get(new Key(step, name), () -> VtuFileParser.readField(steps.get(step).index(), name),
+                field -> 8L * field.values().length);
+    }
+
+    /**
+     * @param step       the index of the step in the catalog
+     * @param fieldNames the arrays to read
+     * @return the geometry and the arrays of the step
+     */
+    public VtuResult getResult(int step, List<String> fieldNames) {
+        VtuResult geometry = getGeometry(step);
+        VtuFileParser.Index index = steps.get(step).index();
+        Map<String, VtuResult.Field> pointData = new LinkedHashMap<>();
+        Map<String, VtuResult.Field> cellData = new LinkedHashMap<>();
+        for (String name : fieldNames) {
+            (index.isPointData(name) ? pointData : cellData).put(name, getField(step, name));
+        }
+        return new VtuResult(geometry.getPoints(), geometry.getConnectivity(), geometry.getOffsets(),
+                geometry.getCellTypes(), pointData, cellData, geometry.getFieldData());
+    }
+
+    /**
+     * Load in background the geometry and an array of a step (typically the step after the displayed one),
+     * the prefetch is skipped if another step is requested before it starts
+     *
+     * @param step the index of the step in the catalog
+     * @param name the name of the array, null for the geometry only
+     */
+    public void prefetch(int step, String name) {
+        if (step < 0 || step >= steps.size()) {
+            return;
+        }
+        prefetchedStep.set(step);
+        prefetcher.execute(() -> {
+            if (prefetchedStep.get() != step) {
+                return;
+            }
+            try {
+                getGeometry(step);
+                if (name != null) {
+                    getField(step, name);
+                }
+            } catch (RuntimeException e) {
+                // the error is reported when the step is requested
+            }
+        });
+    }
+
+    /**
+     * @return the number of cached arrays, their size and the hit ratio of the cache
+     */
+    public synchronized String formatCacheStatistics() {
+        long requests = hits + misses;
+        return String.format(Locale.ROOT, "cache: %d arrays, %.1f / %.1f MB, %d hits / %d requests",
+                cache.size(), cachedBytes / 1e6, cacheBudget / 1e6, hits, requests);
+    }
+
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+        synchronized (this) {
+            cache.clear();
+            cachedBytes = 0;
+            sharedGeometry = null;
+            sameGeometry.clear();
+        }
+    }
+
+    /**
+     * Get a value from the cache, or load it; the thread creating the entry loads the value, the other threads
+     * wait for it
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader, ToLongFunction<T> sizer) {
+        Entry entry;
+        boolean load;
+        synchronized (this) {
+            entry = cache.get(key);
+            load = entry == null;
+            if (load) {
+                entry = new Entry();
+                cache.put(key, entry);
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+        if (load) {
+            try {
+                T value = loader.get();
+                synchronized (this) {
+                    if (cache.get(key) == entry) {
+                        entry.bytes = sizer.applyAsLong(value);
+                        cachedBytes += entry.bytes;
+                        evict(key);
+                    }
+                }
+                entry.value.complete(value);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    cache.remove(key, entry);
+                }
+                entry.value.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Remove the least recently used loaded values until the cache fits in the budget, the value just loaded
+     * is kept even if it is larger than the budget
+     */
+    private void evict(Key loaded) {
+        Iterator<Map.Entry<Key, Entry>> iterator = cache.entrySet().iterator();
+        while (cachedBytes > cacheBudget && iterator.hasNext()) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            if (!eldest.getKey().equals(loaded) && eldest.getValue().value.isDone()) {
+                cachedBytes -= eldest.getValue().bytes;
+                iterator.remove();
+            }
+        }
+    }
+}
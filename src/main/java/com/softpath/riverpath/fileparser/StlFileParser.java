@@ -0,0 +1,253 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class to read a STL file (binary or ASCII) and convert it to a surface mesh / .t file.
+ * <p>
+ * STL facets do not share their vertices: the vertices closer than a small fraction of the bounding box
+ * diagonal are welded with a spatial hash, and the facets which become degenerate are dropped.
+ * A binary file is read in place from a memory mapped buffer.
+ * </p>
+ */
+@Slf4j
+public class StlFileParser {
+
+    private static final String EXTENSION = "stl";
+    // 80 bytes of text followed by the number of facets
+    private static final int HEADER_SIZE = 84;
+    // normal and 3 vertices (float), attribute byte count (short)
+    private static final int FACET_SIZE = 50;
+    private static final int NORMAL_SIZE = 12;
+    // relative to the bounding box diagonal
+    private static final double WELD_TOLERANCE = 1e-7;
+
+    /**
+     * Check if a file can be read by this parser
+     *
+     * @param file the file
+     * @return true for a .stl file
+     */
+    public static boolean isSupported(File file) {
+        return FilenameUtils.isExtension(file.getName().toLowerCase(), EXTENSION) && file.length() <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Read a STL file and convert it to a surface mesh
+     *
+     * @param file the .stl file
+     * @return the mesh
+     */
+    public static CFDTriangleMesh parseFile2TriangleMesh(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            double[] corners = isBinary(buffer) ? readBinaryCorners(buffer) : readAsciiCorners(buffer);
+            VertexWelder welder = new VertexWelder(corners);
+            int[] triangles = new int[corners.length / 3];
+            int size = 0;
+            for (int i = 0; i < corners.length; i += 9) {
+                int vertex1 = welder.add(corners[i], corners[i + 1], corners[i + 2]);
+                int vertex2 = welder.add(corners[i + 3], corners[i + 4], corners[i + 5]);
+                int vertex3 = welder.add(corners[i + 6], corners[i + 7], corners[i + 8]);
+                if (vertex1 != vertex2 && vertex2 != vertex3 && vertex3 != vertex1) {
+                    triangles[size++] = vertex1;
+                    triangles[size++] = vertex2;
+                    triangles[size++] = vertex3;
+                }
+            }
+            log.info("{}: {} facets, {} vertices after welding, {} degenerate facets dropped", file.getName(),
+                    corners.length / 9, welder.getVertexCount(), (triangles.length - size) / 3);
+            return MtcMeshConverter.toMesh(welder.getCoordinates(), Arrays.copyOf(triangles, size), new int[0]);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read STL file " + file, e);
+        }
+    }
+
+    /**
+     * Convert a STL file to a .t file
+     *
+     * @param stlFile the .stl file
+     * @param tFile   the .t file to write
+     * @return the converted mesh
+     */
+    public static CFDTriangleMesh convertFile2T(File stlFile, File tFile) {
+        CFDTriangleMesh mesh = parseFile2TriangleMesh(stlFile);
+        MeshFileWriter.writeTriangleMesh2File(mesh, tFile);
+        return mesh;
+    }
+
+    /**
+     * A binary file has exactly the size announced by its number of facets (an ASCII file starts with "solid"
+     * but some binary files too)
+     */
+    private static boolean isBinary(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE) {
+            return false;
+        }
+        long numberOfFacets = Integer.toUnsignedLong(buffer.getInt(HEADER_SIZE - Integer.BYTES));
+        return buffer.limit() == HEADER_SIZE + FACET_SIZE * numberOfFacets;
+    }
+
+    /**
+     * @return x, y, z of the 3 vertices of each facet
+     */
+    private static double[] readBinaryCorners(ByteBuffer buffer) {
+        int numberOfFacets = buffer.getInt(HEADER_SIZE - Integer.BYTES);
+        double[] corners = new double[9 * numberOfFacets];
+        for (int facet = 0; facet < numberOfFacets; facet++) {
+            int offset = HEADER_SIZE + facet * FACET_SIZE + NORMAL_SIZE;
+            for (int i = 0; i < 9; i++) {
+                corners[9 * facet + i] = buffer.getFloat(offset + i * Float.BYTES);
+            }
+        }
+        return corners;
+    }
+
+    /**
+     * Only the "vertex x y z" lines are decoded, the other keywords (solid, facet, outer loop...) are skipped
+     *
+     * @return x, y, z of the 3 vertices of each facet
+     */
+    private static double[] readAsciiCorners(ByteBuffer buffer) {
+        MeshFileTokenizer tokenizer = new MeshFileTokenizer(buffer, 0, buffer.limit());
+        double[] corners = new double[9 * Math.max(buffer.limit() / 256, 1)];
+        int size = 0;
+        while (!tokenizer.isEndOfInput()) {
+            // "vertex" is the only keyword starting with v
+            if (tokenizer.peek() == 'v') {
+                tokenizer.skipToken();
+                if (size + 3 > corners.length) {
+                    corners = Arrays.copyOf(corners, 2 * corners.length);
+                }
+                corners[size++] = tokenizer.nextDouble();
+                corners[size++] = tokenizer.nextDouble();
+                corners[size++] = tokenizer.nextDouble();
+            }
+            tokenizer.nextLine();
+        }
+        if (size % 9 != 0) {
+            throw new IllegalStateException("Invalid ASCII STL file: facets must have 3 vertices");
+        }
+        return Arrays.copyOf(corners, size);
+    }
+
+    /**
+     * Spatial hash of the welded vertices: a grid of cells of the size of the tolerance, each cell is a chain
+     * of vertices. A new vertex is compared to the vertices of its cell and of the 26 neighbouring cells.
+     */
+    private static class VertexWelder {
+        private static final int EMPTY = -1;
+        private static final long CELL_MASK = (1L << 21) - 1;
+
+        private final double minX, minY, minZ;
+        private final double tolerance;
+        private final double cellSize;
+        private final long[] cellKeys;
+        // first vertex of the chain of each cell
+        private final int[] cellHeads;
+        private final int mask;
+        // next vertex in the chain of its cell
+        private final int[] next;
+        private final double[] coordinates;
+        private int vertexCount;
+
+        private VertexWelder(double[] corners) {
+            double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+            double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+            for (int i = 0; i < corners.length; i++) {
+                min[i % 3] = Math.min(min[i % 3], corners[i]);
+                max[i % 3] = Math.max(max[i % 3], corners[i]);
+            }
+            minX = min[0];
+            minY = min[1];
+            minZ = min[2];
+            double diagonal = Math.sqrt(Math.pow(max[0] - min[0], 2) + Math.pow(max[1] - min[1], 2)
+                    + Math.pow(max[2] - min[2], 2));
+            tolerance = WELD_TOLERANCE * diagonal;
+            cellSize = tolerance > 0 ? tolerance : 1;
+            int numberOfCorners = corners.length / 3;
+            int capacity = Integer.highestOneBit(Math.max(numberOfCorners, 8) - 1) << 1;
+            cellKeys = new long[capacity];
+            cellHeads = new int[capacity];
+            Arrays.fill(cellHeads, EMPTY);
+            mask = capacity - 1;
+            next = new int[numberOfCorners];
+            coordinates = new double[3 * numberOfCorners];
+        }
+
+        /**
+         * @return the index of the welded vertex
+         */
+        private int add(double x, double y, double z) {
+            long cellX = (long) Math.floor((x - minX) / cellSize);
+            long cellY = (long) Math.floor((y - minY) / cellSize);
+            long cellZ = (long) Math.floor((z - minZ) / cellSize);
+            // own cell first: most duplicates are identical
+            int vertex = find(cellX, cellY, cellZ, x, y, z);
+            for (int i = 0; i < 27 && vertex == EMPTY; i++) {
+                if (i != 13) {
+                    vertex = find(cellX + i % 3 - 1, cellY + i / 3 % 3 - 1, cellZ + i / 9 - 1, x, y, z);
+                }
+            }
+            if (vertex != EMPTY) {
+                return vertex;
+            }
+            vertex = vertexCount++;
+            coordinates[3 * vertex] = x;
+            coordinates[3 * vertex + 1] = y;
+            coordinates[3 * vertex + 2] = z;
+            long key = cellKey(cellX, cellY, cellZ);
+            int slot = slot(key);
+            cellKeys[slot] = key;
+            next[vertex] = cellHeads[slot];
+            cellHeads[slot] = vertex;
+            return vertex;
+        }
+
+        private int find(long cellX, long cellY, long cellZ, double x, double y, double z) {
+            int slot = slot(cellKey(cellX, cellY, cellZ));
+            for (int vertex = cellHeads[slot]; vertex != EMPTY; vertex = next[vertex]) {
+                double dx = coordinates[3 * vertex] - x;
+                double dy = coordinates[3 * vertex + 1] - y;
+                double dz = coordinates[3 * vertex + 2] - z;
+                if (dx * dx + dy * dy + dz * dz <= tolerance * tolerance) {
+                    return vertex;
+                }
+            }
+            return EMPTY;
+        }
+
+        private int slot(long key) {
+            int slot = (int) MeshTopology.mix(key) & mask;
+            while (cellHeads[slot] != EMPTY && cellKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Cells far away may share a key, it is harmless since the distance is always checked
+         */
+        private static long cellKey(long cellX, long cellY, long cellZ) {
+            return ((cellX & CELL_MASK) << 42) | ((cellY & CELL_MASK) << 21) | (cellZ & CELL_MASK);
+        }
+
+        private int getVertexCount() {
+            return vertexCount;
+        }
+
+        private double[] getCoordinates() {
+            return Arrays.copyOf(coordinates, 3 * vertexCount);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.softpath.riverpath.fileparser;
+
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Build a single mesh holding a thin tube around each edge, so that thousands of 3D lines are rendered
+ * with one node and one material instead of one {@link javafx.scene.shape.Cylinder} per edge.
+ * <p>
+ * Each tube is a prism of {@value #SIDES} sides without caps: 2 * {@value #SIDES} points
+ * and 2 * {@value #SIDES} triangles per edge.
+ * </p>
+ */
+final class TubeMeshBuilder {
+
+    private static final int SIDES = 4;
+    private static final float[] COS = new float[SIDES];
+    private static final float[] SIN = new float[SIDES];
+
+    static {
+        for (int side = 0; side < SIDES; side++) {
+            COS[side] = (float) Math.cos(2 * Math.PI * side / SIDES);
+            SIN[side] = (float) Math.sin(2 * Math.PI * side / SIDES);
+        }
+    }
+
+    private TubeMeshBuilder() {
+    }
+
+    /**
+     * Build the tubes of the edges, the edges of zero length are skipped
+     *
+     * @param coordinates x, y, z of each vertex
+     * @param edges       2 vertices (0-based) per edge
+     * @param radius      the radius of the tubes, in the unit of the coordinates
+     * @return the mesh of all the tubes
+     */
+    static TriangleMesh build(double[] coordinates, int[] edges, double radius) {
+        int numberOfEdges = edges.length / 2;
+        float[] points = new float[numberOfEdges * 2 * SIDES * 3];
+        int[] faces = new int[numberOfEdges * 2 * SIDES * 6];
+        int pointsSize = 0;
+        int facesSize = 0;
+        for (int i = 0; i < edges.length; i += 2) {
+            int start = 3 * edges[i];
+            int end = 3 * edges[i + 1];
+            double dx = coordinates[end] - coordinates[start];
+            double dy = coordinates[end + 1] - coordinates[start + 1];
+            double dz = coordinates[end + 2] - coordinates[start + 2];
+            double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (length == 0) {
+                continue;
+            }
+            dx /= length;
+            dy /= length;
+            dz /= length;
+            // u = direction x (the axis the least aligned with the direction), v = direction x u
+            double ux, uy, uz;
+            if (Math.abs(dx) <= Math.abs(dy) && Math.abs(dx) <= Math.abs(dz)) {
+                ux = 0;
+                uy = dz;
+                uz = -dy;
+            } else if (Math.abs(dy) <= Math.abs(dz)) {
+                ux = -dz;
+                uy = 0;
+                uz = dx;
+            } else {
+                ux = dy;
+                uy = -dx;
+                uz = 0;
+            }
+            double norm = radius / Math.sqrt(ux * ux + uy * uy + uz * uz);
+            ux *= norm;
+            uy *= norm;
+            uz *= norm;
+            double vx = dy * uz - dz * uy;
+            double vy = dz * ux - dx * uz;
+            double vz = dx * uy - dy * ux;
+            int firstPoint = pointsSize / 3;
+            // the ring around the start, then the ring around the end
+            for (int vertex : new int[]{start, end}) {
+                for (int side = 0; side < SIDES; side++) {
+                    points[pointsSize++] = (float) (coordinates[vertex] + COS[side] * ux + SIN[side] * vx);
+                    points[pointsSize++] = (float) (coordinates[vertex + 1] + COS[side] * uy + SIN[side] * vy);
+                    points[pointsSize++] = (float) (coordinates[vertex + 2] + COS[side] * uz + SIN[side] * vz);
+                }
+            }
+            for (int side = 0; side < SIDES; side++) {
+                int startPoint = firstPoint + side;
+                int nextStartPoint = firstPoint + (side + 1) % SIDES;
+                // texture index is always 0
+                facesSize = addFace(faces, facesSize, startPoint, startPoint + SIDES, nextStartPoint + SIDES);
+                facesSize = addFace(faces, facesSize, startPoint, nextStartPoint + SIDES, nextStartPoint);
+            }
+        }
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points, 0, pointsSize);
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces, 0, facesSize);
+        return mesh;
+    }
+
+    private static int addFace(int[] faces, int size, int point1, int point2, int point3) {
+        faces[size] = point1;
+        faces[size + 2] = point2;
+        faces[size + 4] = point3;
+        return size + 6;
+    }
+}
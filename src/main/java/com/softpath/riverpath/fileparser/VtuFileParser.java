@@ -0,0 +1,875 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Parser of the VTK XML unstructured grid files written by cimlib (SortieVtu): .vtu files and .pvtu files
+ * referencing one .vtu file per process.
+ * <p>
+ * The file is memory mapped and only its tags are scanned, no DOM is built: the data arrays are decoded directly
+ * from the mapped bytes into primitive arrays. The ascii, binary (inline base64) and appended (raw or base64)
+ * formats are supported, with or without zlib compression, UInt32 or UInt64 headers, in both byte orders.
+ * The compressed blocks are inflated in parallel, the uncompressed data is converted by chunks in parallel.
+ * </p>
+ */
+public final class VtuFileParser {
+
+    private static final String ZLIB_COMPRESSOR = "vtkZLibDataCompressor";
+    // names of the field data array of the simulation time
+    private static final List<String> TIME_FIELDS = List.of("Temps", "TimeValue", "TIME");
+    // size of the chunks of uncompressed data converted in parallel
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private VtuFileParser() {
+    }
+
+    /**
+     * Type of the values of a data array, named as in the VTK files (Float64 -> FLOAT64)
+     */
+    private enum DataType {
+        INT8(1), UINT8(1), INT16(2), UINT16(2), INT32(4), UINT32(4), INT64(8), UINT64(8), FLOAT32(4), FLOAT64(8);
+
+        private final int size;
+
+        DataType(int size) {
+            this.size = size;
+        }
+
+        private static DataType of(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+
+        private double read(ByteBuffer buffer, int index) {
+            return switch (this) {
+                case INT8 -> buffer.get(index);
+                case UINT8 -> buffer.get(index) & 0xFF;
+                case INT16 -> buffer.getShort(index);
+                case UINT16 -> buffer.getShort(index) & 0xFFFF;
+                case INT32 -> buffer.getInt(index);
+                case UINT32 -> buffer.getInt(index) & 0xFFFFFFFFL;
+                case INT64, UINT64 -> buffer.getLong(index);
+                case FLOAT32 -> buffer.getFloat(index);
+                case FLOAT64 -> buffer.getDouble(index);
+            };
+        }
+    }
+
+    /**
+     * Receive the values of a part of a data array
+     */
+    @FunctionalInterface
+    private interface BlockReader {
+        /**
+         * @param block          the bytes of the values, in the byte order of the file
+         * @param firstValue     the index in the array of the first value of the block
+         * @param numberOfValues the number of values of the block
+         */
+        void read(ByteBuffer block, int firstValue, int numberOfValues);
+    }
+
+    /**
+     * A tag of the file
+     *
+     * @param name         the name of the tag
+     * @param end          true for an end tag
+     * @param attributes   the attributes
+     * @param contentStart the position after the tag
+     */
+    private record Tag(String name, boolean end, Map<String, String> attributes, int contentStart) {
+    }
+
+    /**
+     * Location of a data array in the file
+     *
+     * @param section      Points, Cells, PointData, CellData or FieldData
+     * @param attributes   the attributes of the DataArray tag
+     * @param contentStart the start of the inline content
+     * @param contentEnd   the end of the inline content
+     */
+    private record ArrayLocation(String section, Map<String, String> attributes, int contentStart, int contentEnd) {
+
+        private String name() {
+            return attributes.getOrDefault("Name", "");
+        }
+
+        private int numberOfComponents() {
+            return Integer.parseInt(attributes.getOrDefault("NumberOfComponents", "1"));
+        }
+
+        private DataType type() {
+            return DataType.of(attributes.get("type"));
+        }
+    }
+
+    /**
+     * Location of the arrays of a result file, to read them later without scanning the file again.
+     * For a .pvtu file the locations are in the index of each piece file.
+     */
+    public static final class Index {
+        @Getter
+        private final File file;
+        @Getter
+        private final long fileSize;
+        // index of each piece file of a .pvtu file, empty for a .vtu file
+        private final List<Index> pieceFiles;
+        private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+        // size of the integers of the headers of the binary arrays
+        private int headerSize = 4;
+        private boolean compressed;
+        // appended data: encoding, position of the first byte (after '_') and end of the base64 text
+        private String appendedEncoding;
+        private long appendedStart;
+        private int appendedEnd;
+        // offsets of the appended arrays, sorted, to find the end of the base64 text of an array
+        private long[] appendedOffsets;
+        // the arrays of each piece
+        private final List<List<ArrayLocation>> pieces = new ArrayList<>();
+        // the arrays attached to the whole grid, decoded with the index (a few values)
+        @Getter
+        private Map<String, VtuResult.Field> fieldData = new LinkedHashMap<>();
+
+        private Index(File file, long fileSize, List<Index> pieceFiles) {
+            this.file = file;
+            this.fileSize = fileSize;
+            this.pieceFiles = pieceFiles;
+        }
+
+        /**
+         * @return the simulation time of the result (field data Temps or TimeValue), NaN if not written
+         */
+        public double getTime() {
+            if (!pieceFiles.isEmpty()) {
+                return pieceFiles.get(0).getTime();
+            }
+            for (String name : TIME_FIELDS) {
+                VtuResult.Field time = fieldData.get(name);
+                if (time != null && time.values().length > 0) {
+                    return time.values()[0];
+                }
+            }
+            return Double.NaN;
+        }
+
+        /**
+         * @return the names of the point data arrays then of the cell data arrays
+         */
+        public List<String> getFieldNames() {
+            if (!pieceFiles.isEmpty()) {
+                return pieceFiles.get(0).getFieldNames();
+            }
+            return pieces.get(0).stream()
+                    .filter(location -> location.section().equals("PointData") || location.section().equals("CellData"))
+                    .sorted(Comparator.comparing(location -> !location.section().equals("PointData")))
+                    .map(ArrayLocation::name)
+                    .distinct()
+                    .toList();
+        }
+
+        /**
+         * @param name the name of an array
+         * @return true if it is a point data array, false for a cell data array
+         */
+        public boolean isPointData(String name) {
+            if (!pieceFiles.isEmpty()) {
+                return pieceFiles.get(0).isPointData(name);
+            }
+            return pieces.get(0).stream()
+                    .anyMatch(location -> location.section().equals("PointData") && location.name().equals(name));
+        }
+    }
+
+    /**
+     * Scan the tags of a .vtu or .pvtu file (the data arrays are not decoded)
+     *
+     * @param file the file
+     * @return the location of the arrays
+     */
+    public static Index index(File file) {
+        if (file.getName().endsWith(".pvtu")) {
+            return indexParallelFile(file);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Index index = new Index(file, channel.size(), List.of());
+            Reader reader = new Reader(index, channel);
+            reader.scan();
+            return index;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read result file " + file, e);
+        }
+    }
+
+    /**
+     * Read the points and the cells of a result, without the point and cell data
+     *
+     * @param index the index of the file
+     * @return the grid
+     */
+    public static VtuResult readGeometry(Index index) {
+        if (!index.pieceFiles.isEmpty()) {
+            return VtuResult.merge(index.pieceFiles.parallelStream().map(VtuFileParser::readGeometry).toList());
+        }
+        return VtuResult.merge(withReader(index, reader -> index.pieces.stream().map(reader::readGeometry).toList()));
+    }
+
+    /**
+     * Compare the points and the cells of two result files as written (no decoding), typically two steps of a run
+     * without remeshing
+     *
+     * @param first  the index of a file
+     * @param second the index of another file
+     * @return true if the points and the cells are the same bytes in both files
+     */
+    public static boolean isSameGeometry(Index first, Index second) {
+        if (first.pieceFiles.size() != second.pieceFiles.size()) {
+            return false;
+        }
+        if (!first.pieceFiles.isEmpty()) {
+            return IntStream.range(0, first.pieceFiles.size()).parallel()
+                    .allMatch(piece -> isSameGeometry(first.pieceFiles.get(piece), second.pieceFiles.get(piece)));
+        }
+        if (first.pieces.size() != second.pieces.size() || first.byteOrder != second.byteOrder
+                || first.headerSize != second.headerSize || first.compressed != second.compressed) {
+            return false;
+        }
+        return withReader(first, firstReader -> withReader(second, secondReader -> {
+            for (int piece = 0; piece < first.pieces.size(); piece++) {
+                List<ArrayLocation> firstArrays = geometryArrays(first.pieces.get(piece));
+                List<ArrayLocation> secondArrays = geometryArrays(second.pieces.get(piece));
+                if (firstArrays.size() != secondArrays.size()) {
+                    return false;
+                }
+                for (int i = 0; i < firstArrays.size(); i++) {
+                    if (!firstArrays.get(i).name().equals(secondArrays.get(i).name())
+                            || firstReader.encodedBytes(firstArrays.get(i))
+                            .mismatch(secondReader.encodedBytes(secondArrays.get(i))) != -1) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }));
+    }
+
+    private static List<ArrayLocation> geometryArrays(List<ArrayLocation> arrays) {
+        return arrays.stream()
+                .filter(location -> location.section().equals("Points") || location.section().equals("Cells"))
+                .toList();
+    }
+
+    /**
+     * Read a point data array (a cell data array if there is no point data array with this name)
+     *
+     * @param index the index of the file
+     * @param name  the name of the array
+     * @return the array, the values of all the pieces are concatenated
+     */
+    public static VtuResult.Field readField(Index index, String name) {
+        List<VtuResult.Field> fields;
+        if (!index.pieceFiles.isEmpty()) {
+            fields = index.pieceFiles.parallelStream().map(pieceFile -> readField(pieceFile, name)).toList();
+        } else {
+            fields = withReader(index, reader -> index.pieces.stream().map(arrays -> {
+                ArrayLocation location = arrays.stream()
+                        .filter(array -> array.name().equals(name) && array.section().equals("PointData"))
+                        .findFirst()
+                        .or(() -> arrays.stream()
+                                .filter(array -> array.name().equals(name) && array.section().equals("CellData"))
+                                .findFirst())
+                        .orElseThrow(() -> new IllegalArgumentException("No array " + name + " in " + index.file));
+                return new VtuResult.Field(name, location.numberOfComponents(), reader.readDoubles(location));
+            }).toList());
+        }
+        return VtuResult.concatenate(fields);
+    }
+
+    private static <T> T withReader(Index index, Function<Reader, T> function) {
+        try (FileChannel channel = FileChannel.open(index.file.toPath(), StandardOpenOption.READ)) {
+            return function.apply(new Reader(index, channel));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read result file " + index.file, e);
+        }
+    }
+
+    /**
+     * Index the pieces referenced by a .pvtu file in parallel
+     */
+    private static Index indexParallelFile(File file) {
+        List<File> sources = new ArrayList<>();
+        long size;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            TagScanner scanner = new TagScanner(buffer);
+            Tag tag;
+            while ((tag = scanner.next()) != null) {
+                if (!tag.end() && tag.name().equals("Piece") && tag.attributes().containsKey("Source")) {
+                    sources.add(new File(file.getParentFile(), tag.attributes().get("Source")));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read result file " + file, e);
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No piece in the result file " + file);
+        }
+        List<Index> pieceFiles = sources.parallelStream().map(VtuFileParser::index).toList();
+        return new Index(file, size + pieceFiles.stream().mapToLong(Index::getFileSize).sum(), pieceFiles);
+    }
+
+    /**
+     * Reader of the arrays of a .vtu file
+     */
+    private static final class Reader {
+        private final Index index;
+        private final FileChannel channel;
+        private final ByteBuffer xml;
+
+        private Reader(Index index, FileChannel channel) throws IOException {
+            this.index = index;
+            this.channel = channel;
+            this.xml = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+        }
+
+        /**
+         * Scan the tags to fill the index
+         */
+        private void scan() {
+            TagScanner scanner = new TagScanner(xml);
+            List<ArrayLocation> gridArrays = new ArrayList<>();
+            List<ArrayLocation> arrays = gridArrays;
+            String section = null;
+            Tag tag;
+            while ((tag = scanner.next()) != null) {
+                switch (tag.name()) {
+                    case "VTKFile" -> readFileAttributes(tag.attributes());
+                    case "Piece" -> {
+                        if (!tag.end()) {
+                            arrays = new ArrayList<>();
+                            index.pieces.add(arrays);
+                        }
+                    }
+                    case "Points", "Cells", "PointData", "CellData", "FieldData" -> section = tag.end() ? null : tag.name();
+                    case "DataArray" -> {
+                        if (!tag.end() && section != null) {
+                            List<ArrayLocation> target = section.equals("FieldData") ? gridArrays : arrays;
+                            target.add(new ArrayLocation(section, tag.attributes(), tag.contentStart(),
+                                    scanner.indexOf('<', tag.contentStart())));
+                        }
+                    }
+                    case "AppendedData" -> {
+                        index.appendedEncoding = tag.attributes().getOrDefault("encoding", "raw");
+                        // the data starts after the '_' marker
+                        int marker = scanner.indexOf('_', tag.contentStart());
+                        index.appendedStart = marker + 1L;
+                        if (!index.appendedEncoding.equals("raw")) {
+                            index.appendedEnd = scanner.indexOf('<', marker);
+                        }
+                        scanner.stop();
+                    }
+                    default -> {
+                        // other tags are not needed
+                    }
+                }
+            }
+            if (index.pieces.isEmpty()) {
+                throw new IllegalArgumentException("No piece in the result file " + index.file);
+            }
+            index.appendedOffsets = index.pieces.stream().flatMap(List::stream)
+                    .filter(location -> "appended".equals(location.attributes().get("format")))
+                    .mapToLong(location -> Long.parseLong(location.attributes().get("offset")))
+                    .sorted().toArray();
+            index.fieldData = readFields(gridArrays);
+        }
+
+        private void readFileAttributes(Map<String, String> attributes) {
+            String type = attributes.getOrDefault("type", "UnstructuredGrid");
+            if (!type.equals("UnstructuredGrid")) {
+                throw new IllegalArgumentException("Unsupported VTK file type " + type);
+            }
+            if ("BigEndian".equals(attributes.get("byte_order"))) {
+                index.byteOrder = ByteOrder.BIG_ENDIAN;
+            }
+            index.headerSize = DataType.of(attributes.getOrDefault("header_type", "UInt32")).size;
+            String compressor = attributes.get("compressor");
+            if (compressor != null) {
+                if (!compressor.equals(ZLIB_COMPRESSOR)) {
+                    throw new IllegalArgumentException("Unsupported compressor " + compressor);
+                }
+                index.compressed = true;
+            }
+        }
+
+        /**
+         * Read the points and the cells of a piece
+         */
+        private VtuResult readGeometry(List<ArrayLocation> arrays) {
+            double[] points = new double[0];
+            int[] connectivity = new int[0];
+            int[] offsets = new int[0];
+            int[] cellTypes = new int[0];
+            for (ArrayLocation location : arrays) {
+                switch (location.section()) {
+                    case "Points" -> points = readDoubles(location);
+                    case "Cells" -> {
+                        switch (location.name()) {
+                            case "connectivity" -> connectivity = readInts(location);
+                            case "offsets" -> offsets = readInts(location);
+                            case "types" -> cellTypes = readInts(location);
+                            default -> {
+                                // faces of polyhedra are not supported
+                            }
+                        }
+                    }
+                    default -> {
+                        // the point and cell data are read by field
+                    }
+                }
+            }
+            return new VtuResult(points, connectivity, offsets, cellTypes, new LinkedHashMap<>(),
+                    new LinkedHashMap<>(), index.fieldData);
+        }
+
+        /**
+         * Decode the data arrays of a section in parallel
+         */
+        private Map<String, VtuResult.Field> readFields(List<ArrayLocation> arrays) {
+            List<VtuResult.Field> fields = arrays.parallelStream()
+                    .map(location -> new VtuResult.Field(location.name(), location.numberOfComponents(),
+                            readDoubles(location)))
+                    .toList();
+            Map<String, VtuResult.Field> fieldsByName = new LinkedHashMap<>();
+            fields.forEach(field -> fieldsByName.put(field.name(), field));
+            return fieldsByName;
+        }
+
+        private double[] readDoubles(ArrayLocation location) {
+            if (isAscii(location)) {
+                return readAscii(location);
+            }
+            BinaryArray array = openBinary(location);
+            DataType type = location.type();
+            double[] values = new double[array.numberOfValues(type)];
+            array.read(type, (block, first, count) -> {
+                if (type == DataType.FLOAT64) {
+                    block.asDoubleBuffer().get(values, first, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        values[first + i] = type.read(block, i * type.size);
+                    }
+                }
+            });
+            return values;
+        }
+
+        private int[] readInts(ArrayLocation location) {
+            if (isAscii(location)) {
+                double[] values = readAscii(location);
+                int[] ints = new int[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    ints[i] = (int) values[i];
+                }
+                return ints;
+            }
+            BinaryArray array = openBinary(location);
+            DataType type = location.type();
+            int[] values = new int[array.numberOfValues(type)];
+            array.read(type, (block, first, count) -> {
+                if (type == DataType.INT32) {
+                    block.asIntBuffer().get(values, first, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        values[first + i] = (int) type.read(block, i * type.size);
+                    }
+                }
+            });
+            return values;
+        }
+
+        private static boolean isAscii(ArrayLocation location) {
+            return "ascii".equals(location.attributes().get("format"));
+        }
+
+        /**
+         * Decode the numbers of an ascii array: count them, then parse them in place
+         */
+        private double[] readAscii(ArrayLocation location) {
+            int count = 0;
+            boolean inToken = false;
+            for (int i = location.contentStart(); i < location.contentEnd(); i++) {
+                boolean blank = xml.get(i) <= ' ';
+                if (!blank && !inToken) {
+                    count++;
+                }
+                inToken = !blank;
+            }
+            double[] values = new double[count];
+            MeshFileTokenizer tokenizer = new MeshFileTokenizer(xml, location.contentStart(), location.contentEnd());
+            for (int i = 0; i < count; i++) {
+                while (tokenizer.isEndOfLine()) {
+                    tokenizer.nextLine();
+                }
+                values[i] = tokenizer.nextDouble();
+            }
+            return values;
+        }
+
+        /**
+         * Locate the header and the data of a binary array (inline or appended)
+         */
+        private BinaryArray openBinary(ArrayLocation location) {
+            String format = location.attributes().get("format");
+            if ("binary".equals(format)) {
+                return BinaryArray.ofBase64(compact(location.contentStart(), location.contentEnd()), index);
+            }
+            if (!"appended".equals(format)) {
+                throw new IllegalArgumentException("Unsupported format " + format + " for " + location.name());
+            }
+            long offset = Long.parseLong(location.attributes().get("offset"));
+            if (index.appendedEncoding.equals("raw")) {
+                return BinaryArray.ofRaw(mapAppended(offset), index);
+            }
+            return BinaryArray.ofBase64(compact((int) (index.appendedStart + offset), base64End(offset)), index);
+        }
+
+        /**
+         * @return the bytes of an array as written in the file: its text, or the header and the data of a raw array
+         */
+        private ByteBuffer encodedBytes(ArrayLocation location) {
+            if (!"appended".equals(location.attributes().get("format"))) {
+                return xml.slice(location.contentStart(), location.contentEnd() - location.contentStart());
+            }
+            long offset = Long.parseLong(location.attributes().get("offset"));
+            if (index.appendedEncoding.equals("raw")) {
+                ByteBuffer buffer = mapAppended(offset);
+                return buffer.slice(0, (int) BinaryArray.ofRaw(buffer, index).encodedLength());
+            }
+            int start = (int) (index.appendedStart + offset);
+            return xml.slice(start, base64End(offset) - start);
+        }
+
+        /**
+         * @return the bytes of the raw appended data from an offset
+         */
+        private ByteBuffer mapAppended(long offset) {
+            try {
+                long position = index.appendedStart + offset;
+                return channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(channel.size() - position, Integer.MAX_VALUE)).order(index.byteOrder);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * @return the end of the base64 text of an appended array: the start of the next array
+         */
+        private int base64End(long offset) {
+            int end = index.appendedEnd;
+            for (long other : index.appendedOffsets) {
+                if (other > offset) {
+                    end = (int) Math.min(end, index.appendedStart + other);
+                    break;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * @return the bytes of [start, end[ without the blanks
+         */
+        private byte[] compact(int start, int end) {
+            byte[] text = new byte[end - start];
+            int size = 0;
+            for (int i = start; i < end; i++) {
+                byte b = xml.get(i);
+                if (b > ' ') {
+                    text[size++] = b;
+                }
+            }
+            return size == text.length ? text : Arrays.copyOf(text, size);
+        }
+    }
+
+    /**
+     * Binary content of an array: a header giving the number of bytes (uncompressed) or the blocks
+     * (compressed: number of blocks, size of a block, size of the last block, compressed size of each block)
+     * followed by the data
+     */
+    private static final class BinaryArray {
+        private final ByteBuffer header;
+        private final ByteBuffer data;
+        private final Index fileIndex;
+
+        private BinaryArray(ByteBuffer header, ByteBuffer data, Index fileIndex) {
+            this.header = header.order(fileIndex.byteOrder);
+            this.data = data.order(fileIndex.byteOrder);
+            this.fileIndex = fileIndex;
+        }
+
+        /**
+         * @param buffer the bytes from the start of the header
+         */
+        private static BinaryArray ofRaw(ByteBuffer buffer, Index fileIndex) {
+            int headerLength = fileIndex.headerSize * (fileIndex.compressed
+                    ? 3 + (int) headerValue(buffer, 0, fileIndex.headerSize) : 1);
+            return new BinaryArray(buffer.slice(0, headerLength), buffer.slice(headerLength,
+                    buffer.limit() - headerLength), fileIndex);
+        }
+
+        /**
+         * The header is base64 encoded alone for a compressed array, and alone or with the data otherwise
+         *
+         * @param text the base64 text without blanks
+         */
+        private static BinaryArray ofBase64(byte[] text, Index fileIndex) {
+            Base64.Decoder decoder = Base64.getDecoder();
+            int headerSize = fileIndex.headerSize;
+            if (fileIndex.compressed) {
+                ByteBuffer first = ByteBuffer.wrap(decoder.decode(Arrays.copyOf(text,
+                        base64Length(3 * headerSize)))).order(fileIndex.byteOrder);
+                int headerLength = headerSize * (3 + (int) headerValue(first, 0, headerSize));
+                int headerChars = base64Length(headerLength);
+                return new BinaryArray(ByteBuffer.wrap(decoder.decode(Arrays.copyOf(text, headerChars))),
+                        ByteBuffer.wrap(decoder.decode(Arrays.copyOfRange(text, headerChars, text.length))),
+                        fileIndex);
+            }
+            int headerChars = base64Length(headerSize);
+            if (text.length > headerChars && text[headerChars - 1] == '=') {
+                return new BinaryArray(ByteBuffer.wrap(decoder.decode(Arrays.copyOf(text, headerChars))),
+                        ByteBuffer.wrap(decoder.decode(Arrays.copyOfRange(text, headerChars, text.length))),
+                        fileIndex);
+            }
+            ByteBuffer decoded = ByteBuffer.wrap(decoder.decode(text));
+            return new BinaryArray(decoded.slice(0, headerSize),
+                    decoded.slice(headerSize, decoded.limit() - headerSize), fileIndex);
+        }
+
+        private static int base64Length(int numberOfBytes) {
+            return 4 * ((numberOfBytes + 2) / 3);
+        }
+
+        private static long headerValue(ByteBuffer buffer, int index, int headerSize) {
+            return headerSize == 8 ? buffer.getLong(8 * index) : buffer.getInt(4 * index) & 0xFFFFFFFFL;
+        }
+
+        private long headerValue(int position) {
+            return headerValue(header, position, fileIndex.headerSize);
+        }
+
+        /**
+         * @return the size of the header and of the data as written in the file
+         */
+        private long encodedLength() {
+            if (!fileIndex.compressed) {
+                return header.limit() + numberOfBytes();
+            }
+            long length = header.limit();
+            for (int block = 0; block < headerValue(0); block++) {
+                length += headerValue(3 + block);
+            }
+            return length;
+        }
+
+        private long numberOfBytes() {
+            if (!fileIndex.compressed) {
+                return headerValue(0);
+            }
+            long numberOfBlocks = headerValue(0);
+            long lastBlockSize = headerValue(2);
+            if (numberOfBlocks == 0) {
+                return 0;
+            }
+            // a last block size of 0 means a full block
+            return (numberOfBlocks - 1) * headerValue(1) + (lastBlockSize == 0 ? headerValue(1) : lastBlockSize);
+        }
+
+        private int numberOfValues(DataType type) {
+            long count = numberOfBytes() / type.size;
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Data array too large: " + count + " values");
+            }
+            return (int) count;
+        }
+
+        /**
+         * Send the values to the reader by blocks, in parallel
+         */
+        private void read(DataType type, BlockReader blockReader) {
+            int numberOfValues = numberOfValues(type);
+            if (!fileIndex.compressed) {
+                int valuesPerChunk = CHUNK_SIZE / type.size;
+                int numberOfChunks = (numberOfValues + valuesPerChunk - 1) / valuesPerChunk;
+                IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+                    int first = chunk * valuesPerChunk;
+                    int count = Math.min(valuesPerChunk, numberOfValues - first);
+                    blockReader.read(data.slice(first * type.size, count * type.size).order(fileIndex.byteOrder),
+                            first, count);
+                });
+                return;
+            }
+            int numberOfBlocks = (int) headerValue(0);
+            int blockSize = (int) headerValue(1);
+            if (blockSize % type.size != 0) {
+                throw new IllegalArgumentException("Block size " + blockSize + " is not a multiple of " + type.size);
+            }
+            long[] blockStarts = new long[numberOfBlocks + 1];
+            for (int block = 0; block < numberOfBlocks; block++) {
+                blockStarts[block + 1] = blockStarts[block] + headerValue(3 + block);
+            }
+            IntStream.range(0, numberOfBlocks).parallel().forEach(block -> {
+                int first = block * (blockSize / type.size);
+                int count = Math.min(blockSize / type.size, numberOfValues - first);
+                byte[] inflated = new byte[count * type.size];
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(data.slice((int) blockStarts[block],
+                            (int) (blockStarts[block + 1] - blockStarts[block])));
+                    int size = 0;
+                    while (size < inflated.length && !inflater.finished()) {
+                        int inflatedSize = inflater.inflate(inflated, size, inflated.length - size);
+                        if (inflatedSize == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new DataFormatException("Truncated block " + block);
+                        }
+                        size += inflatedSize;
+                    }
+                } catch (DataFormatException e) {
+                    throw new RuntimeException("Invalid compressed data", e);
+                } finally {
+                    inflater.end();
+                }
+                blockReader.read(ByteBuffer.wrap(inflated).order(fileIndex.byteOrder), first, count);
+            });
+        }
+    }
+
+    /**
+     * Scanner of the tags of a XML document, the content between the tags is skipped
+     */
+    private static final class TagScanner {
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int position;
+
+        private TagScanner(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+        }
+
+        /**
+         * Stop the scan (the remaining bytes are not XML)
+         */
+        private void stop() {
+            position = limit;
+        }
+
+        /**
+         * @return the position of the next c from a position, the limit if there is none
+         */
+        private int indexOf(char c, int from) {
+            int index = from;
+            while (index < limit && buffer.get(index) != c) {
+                index++;
+            }
+            return index;
+        }
+
+        /**
+         * @return the next start, empty or end tag, null at the end of the document
+         */
+        private Tag next() {
+            while (true) {
+                position = indexOf('<', position);
+                if (position + 1 >= limit) {
+                    return null;
+                }
+                byte b = buffer.get(position + 1);
+                if (b == '?' || b == '!') {
+                    // declaration, comment
+                    position = skipAfter(b == '?' ? "?>" : b == '!' && startsWith("<!--") ? "-->" : ">");
+                    continue;
+                }
+                boolean end = b == '/';
+                position += end ? 2 : 1;
+                String name = nextName();
+                Map<String, String> attributes = new HashMap<>();
+                while (true) {
+                    skipBlanks();
+                    if (position >= limit) {
+                        return null;
+                    }
+                    b = buffer.get(position);
+                    if (b == '>' || b == '/') {
+                        position = indexOf('>', position) + 1;
+                        return new Tag(name, end, attributes, position);
+                    }
+                    String attribute = nextName();
+                    skipBlanks();
+                    position = indexOf('=', position) + 1;
+                    skipBlanks();
+                    char quote = (char) buffer.get(position);
+                    int valueEnd = indexOf(quote, position + 1);
+                    attributes.put(attribute, string(position + 1, valueEnd));
+                    position = valueEnd + 1;
+                }
+            }
+        }
+
+        private String nextName() {
+            int start = position;
+            byte b;
+            while (position < limit && (b = buffer.get(position)) > ' ' && b != '>' && b != '/' && b != '=') {
+                position++;
+            }
+            return string(start, position);
+        }
+
+        private void skipBlanks() {
+            while (position < limit && buffer.get(position) <= ' ') {
+                position++;
+            }
+        }
+
+        private boolean startsWith(String prefix) {
+            for (int i = 0; i < prefix.length(); i++) {
+                if (position + i >= limit || buffer.get(position + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int skipAfter(String terminator) {
+            while (position < limit && !startsWith(terminator)) {
+                position++;
+            }
+            return position + terminator.length();
+        }
+
+        private String string(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.softpath.riverpath.fileparser;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Content of a VTK unstructured grid result file: the points, the cells and the data arrays, in primitive arrays.
+ * <p>
+ * The cells follow the VTK layout: the vertices of cell i are connectivity[offsets[i - 1], offsets[i]][
+ * (0 for the first cell) and its type is cellTypes[i].
+ * </p>
+ */
+@Getter
+public final class VtuResult {
+
+    // VTK cell types
+    public static final int VTK_LINE = 3;
+    public static final int VTK_TRIANGLE = 5;
+    public static final int VTK_TETRA = 10;
+
+    // x, y, z of each point
+    private final double[] points;
+    private final int[] connectivity;
+    private final int[] offsets;
+    private final int[] cellTypes;
+    private final Map<String, Field> pointData;
+    private final Map<String, Field> cellData;
+    // arrays attached to the whole grid (time, increment...)
+    private final Map<String, Field> fieldData;
+
+    /**
+     * A data array
+     *
+     * @param name               the name of the array (Vitesse, Pression...)
+     * @param numberOfComponents the number of components of each tuple (3 for a vector)
+     * @param values             the components of the tuples
+     */
+    public record Field(String name, int numberOfComponents, double[] values) {
+
+        public int numberOfTuples() {
+            return values.length / numberOfComponents;
+        }
+
+        /**
+         * @param tuple the tuple index
+         * @return the value of a scalar, the norm of a vector
+         */
+        public double magnitude(int tuple) {
+            if (numberOfComponents == 1) {
+                return values[tuple];
+            }
+            double sum = 0;
+            for (int component = 0; component < numberOfComponents; component++) {
+                double value = values[numberOfComponents * tuple + component];
+                sum += value * value;
+            }
+            return Math.sqrt(sum);
+        }
+
+        /**
+         * @return the min and max of the magnitude of the tuples, NaN values are ignored
+         */
+        public double[] range() {
+            return IntStream.range(0, numberOfTuples()).parallel()
+                    .mapToDouble(this::magnitude)
+                    .filter(value -> !Double.isNaN(value))
+                    .collect(() -> new double[]{Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY},
+                            (range, value) -> {
+                                range[0] = Math.min(range[0], value);
+                                range[1] = Math.max(range[1], value);
+                            },
+                            (range, other) -> {
+                                range[0] = Math.min(range[0], other[0]);
+                                range[1] = Math.max(range[1], other[1]);
+                            });
+        }
+    }
+
+    VtuResult(double[] points, int[] connectivity, int[] offsets, int[] cellTypes, Map<String, Field> pointData,
+              Map<String, Field> cellData, Map<String, Field> fieldData) {
+        this.points = points;
+        this.connectivity = connectivity;
+        this.offsets = offsets;
+        this.cellTypes = cellTypes;
+        this.pointData = pointData;
+        this.cellData = cellData;
+        this.fieldData = fieldData;
+    }
+
+    public int getNumberOfPoints() {
+        return points.length / 3;
+    }
+
+    public int getNumberOfCells() {
+        return cellTypes.length;
+    }
+
+    /**
+     * Build the mesh of the result: the tetrahedra, triangles and lines of the grid, other cells are ignored.
+     * For a volume grid the triangles are the hull of the tetrahedra, as for a .t file.
+     *
+     * @return the mesh, its vertices are the points of the grid
+     */
+    public CFDTriangleMesh toTriangleMesh() {
+        IntArrayBuilder tetrahedra = new IntArrayBuilder(0);
+        IntArrayBuilder triangles = new IntArrayBuilder(0);
+        IntArrayBuilder borderLines = new IntArrayBuilder(0);
+        for (int cell = 0; cell < cellTypes.length; cell++) {
+            IntArrayBuilder elements = switch (cellTypes[cell]) {
+                case VTK_TETRA -> tetrahedra;
+                case VTK_TRIANGLE -> triangles;
+                case VTK_LINE -> borderLines;
+                default -> null;
+            };
+            if (elements != null) {
+                for (int i = cell == 0 ? 0 : offsets[cell - 1]; i < offsets[cell]; i++) {
+                    elements.add(connectivity[i]);
+                }
+            }
+        }
+        int[] tetrahedronArray = tetrahedra.toArray();
+        return CFDTriangleMesh.builder()
+                .coordinates(points)
+                .tetrahedra(tetrahedronArray)
+                .triangles(tetrahedronArray.length > 0 ? MeshTopology.boundaryFaces(tetrahedronArray) : triangles.toArray())
+                .borderLines(borderLines.toArray())
+                .build();
+    }
+
+    /**
+     * Interpolate a cell field at the points: the value of a point is the mean of the values of its cells
+     *
+     * @param cellField a field with a tuple per cell
+     * @return the field with a tuple per point
+     */
+    public Field toPointData(Field cellField) {
+        int numberOfComponents = cellField.numberOfComponents();
+        double[] sums = new double[numberOfComponents * getNumberOfPoints()];
+        int[] counts = new int[getNumberOfPoints()];
+        for (int cell = 0; cell < cellTypes.length; cell++) {
+            for (int i = cell == 0 ? 0 : offsets[cell - 1]; i < offsets[cell]; i++) {
+                int point = connectivity[i];
+                counts[point]++;
+                for (int component = 0; component < numberOfComponents; component++) {
+                    sums[numberOfComponents * point + component] += cellField.values()[numberOfComponents * cell + component];
+                }
+            }
+        }
+        for (int point = 0; point < counts.length; point++) {
+            for (int component = 0; component < numberOfComponents; component++) {
+                sums[numberOfComponents * point + component] = counts[point] == 0 ? Double.NaN
+                        : sums[numberOfComponents * point + component] / counts[point];
+            }
+        }
+        return new Field(cellField.name(), numberOfComponents, sums);
+    }
+
+    /**
+     * @return a summary of the grid and of the range of its arrays
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(getNumberOfPoints()).append(" points, ").append(getNumberOfCells()).append(" cells");
+        appendFields(builder, "point data", pointData);
+        appendFields(builder, "cell data", cellData);
+        return builder.toString();
+    }
+
+    private static void appendFields(StringBuilder builder, String title, Map<String, Field> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        builder.append("\n").append(title).append(":");
+        for (Field field : fields.values()) {
+            double[] range = field.range();
+            builder.append("\n  ").append(field.name());
+            if (field.numberOfComponents() > 1) {
+                builder.append(" (").append(field.numberOfComponents()).append(" components, magnitude)");
+            }
+            builder.append(String.format(Locale.ROOT, " [%.6g, %.6g]", range[0], range[1]));
+        }
+    }
+
+    /**
+     * Merge the pieces of a parallel result (one per process), the points shared by pieces are duplicated.
+     * Only the arrays present in every piece are kept.
+     *
+     * @param pieces the pieces
+     * @return the whole grid
+     */
+    static VtuResult merge(List<VtuResult> pieces) {
+        if (pieces.size() == 1) {
+            return pieces.get(0);
+        }
+        int numberOfPoints = 0;
+        int connectivitySize = 0;
+        int numberOfCells = 0;
+        for (VtuResult piece : pieces) {
+            numberOfPoints += piece.getNumberOfPoints();
+            connectivitySize += piece.connectivity.length;
+            numberOfCells += piece.getNumberOfCells();
+        }
+        double[] points = new double[3 * numberOfPoints];
+        int[] connectivity = new int[connectivitySize];
+        int[] offsets = new int[numberOfCells];
+        int[] cellTypes = new int[numberOfCells];
+        int pointBase = 0;
+        int connectivityBase = 0;
+        int cellBase = 0;
+        for (VtuResult piece : pieces) {
+            System.arraycopy(piece.points, 0, points, 3 * pointBase, piece.points.length);
+            for (int i = 0; i < piece.connectivity.length; i++) {
+                connectivity[connectivityBase + i] = piece.connectivity[i] + pointBase;
+            }
+            for (int i = 0; i < piece.offsets.length; i++) {
+                offsets[cellBase + i] = piece.offsets[i] + connectivityBase;
+            }
+            System.arraycopy(piece.cellTypes, 0, cellTypes, cellBase, piece.cellTypes.length);
+            pointBase += piece.getNumberOfPoints();
+            connectivityBase += piece.connectivity.length;
+            cellBase += piece.getNumberOfCells();
+        }
+        return new VtuResult(points, connectivity, offsets, cellTypes,
+                mergeFields(pieces.stream().map(VtuResult::getPointData).toList()),
+                mergeFields(pieces.stream().map(VtuResult::getCellData).toList()),
+                pieces.get(0).fieldData);
+    }
+
+    private static Map<String, Field> mergeFields(List<Map<String, Field>> pieces) {
+        Map<String, Field> merged = new LinkedHashMap<>();
+        for (Field first : pieces.get(0).values()) {
+            List<Field> fields = new ArrayList<>();
+            for (Map<String, Field> piece : pieces) {
+                Field field = piece.get(first.name());
+                if (field == null || field.numberOfComponents() != first.numberOfComponents()) {
+                    break;
+                }
+                fields.add(field);
+            }
+            if (fields.size() == pieces.size()) {
+                merged.put(first.name(), concatenate(fields));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @param fields the same array of several pieces
+     * @return the array of the whole grid
+     */
+    static Field concatenate(List<Field> fields) {
+        if (fields.size() == 1) {
+            return fields.get(0);
+        }
+        double[] values = new double[fields.stream().mapToInt(field -> field.values().length).sum()];
+        int position = 0;
+        for (Field field : fields) {
+            System.arraycopy(field.values(), 0, values, position, field.values().length);
+            position += field.values().length;
+        }
+        return new Field(fields.get(0).name(), fields.get(0).numberOfComponents(), values);
+    }
+}
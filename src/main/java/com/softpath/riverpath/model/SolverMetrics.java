@@ -0,0 +1,147 @@
+package com.softpath.riverpath.model;
+
+import com.softpath.riverpath.util.SolverOutputParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a solver run read from its output: the current increment and time, the speed in increments per
+ * second (moving average of the last {@value #SPEED_WINDOW} increments), the last two values of the residuals (the
+ * first {@value #MAX_RESIDUALS} names only) and the warnings.
+ * <p>
+ * The lines are given by the thread reading the output, the JavaFX thread reads a {@link Snapshot} when the
+ * {@link #getVersion() version} has changed.
+ * </p>
+ */
+public final class SolverMetrics {
+
+    // number of increments of the moving average of the speed
+    private static final int SPEED_WINDOW = 32;
+    // number of residuals tracked, the residuals named later are ignored
+    private static final int MAX_RESIDUALS = 16;
+
+    private final SolverOutputParser parser = new SolverOutputParser();
+    // the last increments and the time (ms) they were read, in a ring
+    private final int[] windowIncrements = new int[SPEED_WINDOW];
+    private final long[] windowTimes = new long[SPEED_WINDOW];
+    private int windowCount;
+    private int increment = -1;
+    private double time = Double.NaN;
+    private final Map<String, Residual> residuals = new LinkedHashMap<>();
+    private int warnings;
+    private String lastWarning;
+    // incremented for each recognized line
+    private long version;
+
+    /**
+     * The metrics at a time
+     *
+     * @param increment           the last increment, -1 before the first one
+     * @param time                the last simulation time, NaN before the first one
+     * @param incrementsPerSecond the speed of the last increments, NaN before the second increment
+     * @param residuals           the last values of each residual
+     * @param warnings            the number of warnings
+     * @param lastWarning         the last warning line, null if none
+     */
+    public record Snapshot(int increment, double time, double incrementsPerSecond, List<ResidualValue> residuals,
+                           int warnings, String lastWarning) {
+
+        /**
+         * @param totalIncrement the number of increments of the run
+         * @return the estimated time to the end of the run (s) at the current speed, NaN if unknown
+         */
+        public double remainingSeconds(double totalIncrement) {
+            if (!(incrementsPerSecond > 0) || increment < 0) {
+                return Double.NaN;
+            }
+            return Math.max(0, totalIncrement - increment) / incrementsPerSecond;
+        }
+    }
+
+    /**
+     * The last values of a residual
+     *
+     * @param name     the name of the residual
+     * @param last     its last value
+     * @param previous its previous value, NaN if it has a single value
+     */
+    public record ResidualValue(String name, double last, double previous) {
+    }
+
+    /**
+     * The last two values of a residual
+     */
+    private static final class Residual {
+        private double last = Double.NaN;
+        private double previous = Double.NaN;
+    }
+
+    /**
+     * Read a line of the output
+     *
+     * @param line      the line
+     * @param timestamp the time the line was read from the solver (ms since the epoch)
+     */
+    public synchronized void accept(String line, long timestamp) {
+        switch (parser.parse(line)) {
+            case INCREMENT -> acceptIncrement(parser.getIncrement(), timestamp);
+            case TIME -> time = parser.getValue();
+            case RESIDUAL -> {
+                Residual residual = residuals.get(parser.getResidualName());
+                if (residual == null) {
+                    if (residuals.size() == MAX_RESIDUALS) {
+                        return;
+                    }
+                    residual = new Residual();
+                    residuals.put(parser.getResidualName(), residual);
+                }
+                residual.previous = residual.last;
+                residual.last = parser.getValue();
+            }
+            case WARNING -> {
+                warnings++;
+                lastWarning = line.trim();
+            }
+            case OTHER -> {
+                return;
+            }
+        }
+        version++;
+    }
+
+    private void acceptIncrement(int newIncrement, long now) {
+        if (newIncrement == increment) {
+            return;
+        }
+        increment = newIncrement;
+        windowIncrements[windowCount % SPEED_WINDOW] = newIncrement;
+        windowTimes[windowCount % SPEED_WINDOW] = now;
+        windowCount++;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a copy of the metrics, with the last values of the residuals
+     */
+    public synchronized Snapshot snapshot() {
+        double speed = Double.NaN;
+        if (windowCount >= 2) {
+            int newest = (windowCount - 1) % SPEED_WINDOW;
+            int oldest = windowCount > SPEED_WINDOW ? windowCount % SPEED_WINDOW : 0;
+            long elapsed = windowTimes[newest] - windowTimes[oldest];
+            if (elapsed > 0) {
+                speed = (windowIncrements[newest] - windowIncrements[oldest]) * 1e3 / elapsed;
+            }
+        }
+        List<ResidualValue> lastValues = new ArrayList<>(residuals.size());
+        residuals.forEach((name, residual) -> lastValues.add(
+                new ResidualValue(name, residual.last, residual.previous)));
+        return new Snapshot(increment, time, speed, lastValues, warnings, lastWarning);
+    }
+}
@@ -0,0 +1,262 @@
+package com.softpath.riverpath.service;
+
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A started process and the pumps of its output and error streams.
+ * <p>
+ * Each stream is read by its own virtual thread until its end, so a process writing a lot on one stream never
+ * blocks on a full pipe because the other one is not read. The lines are decoded with an explicit charset,
+ * stamped with the time they were read, optionally copied to a file, and given to a consumer by batches: a batch
+ * is delivered when it is full or when no more output is available yet. The consumer receives the batches of the
+ * two streams one at a time and must not wait for the user interface.
+ * </p>
+ */
+public final class ProcessSupervisor {
+
+    // charset of the console of the operating system, used by the native solvers
+    public static final Charset NATIVE_CHARSET = Charset.forName(System.getProperty("native.encoding"),
+            Charset.defaultCharset());
+    // maximum number of lines of a batch
+    private static final int BATCH_SIZE = 512;
+
+    @Getter
+    private final Process process;
+    private final Charset charset;
+    private final Consumer<List<Line>> lineConsumer;
+    // serializes the batches of the two streams
+    private final ReentrantLock consumerLock = new ReentrantLock();
+    private final Thread outputPump;
+    private final Thread errorPump;
+
+    public enum Stream {
+        OUTPUT,
+        ERROR
+    }
+
+    /**
+     * A line of the process
+     *
+     * @param stream    the stream of the line
+     * @param timestamp the time the line was read (ms since the epoch)
+     * @param text      the line without its line separator
+     */
+    public record Line(Stream stream, long timestamp, String text) {
+    }
+
+    private ProcessSupervisor(Builder builder) throws IOException {
+        this.charset = builder.charset;
+        this.lineConsumer = builder.lineConsumer;
+        // the copies are opened first, a process is never left running without the pumps of its streams
+        Writer outputCopy = openCopy(builder.outputFile);
+        Writer errorCopy = null;
+        try {
+            errorCopy = openCopy(builder.errorFile);
+            this.process = builder.processBuilder.start();
+        } catch (IOException e) {
+            closeCopy(outputCopy, e);
+            closeCopy(errorCopy, e);
+            throw e;
+        }
+        this.outputPump = startPump(Stream.OUTPUT, process.getInputStream(), outputCopy);
+        this.errorPump = startPump(Stream.ERROR, process.getErrorStream(), errorCopy);
+    }
+
+    /**
+     * Create a builder to start a process
+     *
+     * @param command the command and its arguments
+     * @return a new builder
+     */
+    public static Builder builder(List<String> command) {
+        return new Builder(command);
+    }
+
+    /**
+     * Wait for the end of the process and of its output
+     *
+     * @return the exit code of the process
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public int waitFor() throws InterruptedException {
+        int exitCode = process.waitFor();
+        awaitOutput();
+        return exitCode;
+    }
+
+    /**
+     * Wait for the end of the two streams, the last lines are delivered
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitOutput() throws InterruptedException {
+        outputPump.join();
+        errorPump.join();
+    }
+
+    /**
+     * Stop the process and its child processes
+     */
+    public void destroy() {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
+
+    private Writer openCopy(File file) throws IOException {
+        return file == null ? null : Files.newBufferedWriter(file.toPath(), charset);
+    }
+
+    private static void closeCopy(Writer copy, IOException cause) {
+        if (copy != null) {
+            try {
+                copy.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    private Thread startPump(Stream stream, InputStream input, Writer copy) {
+        return Thread.ofVirtual()
+                .name("process-" + stream.name().toLowerCase())
+                .start(() -> pump(stream, input, copy));
+    }
+
+    /**
+     * Read a stream to its end, the lines are delivered when no more output is available
+     */
+    private void pump(Stream stream, InputStream input, Writer copy) {
+        List<Line> batch = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, charset));
+             Writer writer = copy) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                batch.add(new Line(stream, System.currentTimeMillis(), text));
+                if (writer != null) {
+                    writer.write(text);
+                    writer.write(System.lineSeparator());
+                }
+                if (batch.size() >= BATCH_SIZE || !reader.ready()) {
+                    if (writer != null) {
+                        writer.flush();
+                    }
+                    deliver(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        } catch (IOException e) {
+            batch.add(new Line(Stream.ERROR, System.currentTimeMillis(),
+                    "Error reading the process " + stream.name().toLowerCase() + ": " + e.getMessage()));
+        }
+        deliver(batch);
+    }
+
+    private void deliver(List<Line> batch) {
+        if (batch.isEmpty() || lineConsumer == null) {
+            return;
+        }
+        consumerLock.lock();
+        try {
+            lineConsumer.accept(batch);
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * Builder of a supervised process
+     */
+    public static final class Builder {
+
+        private final ProcessBuilder processBuilder;
+        private Charset charset = NATIVE_CHARSET;
+        private Consumer<List<Line>> lineConsumer;
+        private File outputFile;
+        private File errorFile;
+
+        private Builder(List<String> command) {
+            processBuilder = new ProcessBuilder(command);
+        }
+
+        /**
+         * @param directory the working directory, ignored if it does not exist
+         */
+        public Builder directory(File directory) {
+            if (directory.isDirectory()) {
+                processBuilder.directory(directory);
+            }
+            return this;
+        }
+
+        /**
+         * @param name  a variable of the environment of the process
+         * @param value its value, null to remove it
+         */
+        public Builder environment(String name, String value) {
+            if (value == null) {
+                processBuilder.environment().remove(name);
+            } else {
+                processBuilder.environment().put(name, value);
+            }
+            return this;
+        }
+
+        /**
+         * @param charset the charset of the output of the process ({@link #NATIVE_CHARSET} by default)
+         */
+        public Builder charset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * @param lineConsumer receives the lines of the two streams by batches, null to discard them
+         */
+        public Builder lines(Consumer<List<Line>> lineConsumer) {
+            this.lineConsumer = lineConsumer;
+            return this;
+        }
+
+        /**
+         * @param outputFile the file receiving a copy of the output stream, null for none
+         */
+        public Builder redirectOutput(File outputFile) {
+            this.outputFile = outputFile;
+            return this;
+        }
+
+        /**
+         * @param errorFile the file receiving a copy of the error stream, null for none
+         */
+        public Builder redirectError(File errorFile) {
+            this.errorFile = errorFile;
+            return this;
+        }
+
+        /**
+         * Start the process and the pumps of its streams
+         *
+         * @return the supervised process
+         */
+        public ProcessSupervisor start() {
+            try {
+                return new ProcessSupervisor(this);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.apache.commons.lang3.StringUtils.SPACE;
 
@@ -526,13 +527,22 @@ public class RunnerService {
         return builder.toString();
     }
 
-    public Process startProcess(MainController mainController, File directory, List<String> command) {
+    /**
+     * Start the solver, its output and error streams are read while it runs
+     *
+     * @param mainController the main controller, to display an error
+     * @param directory      the working directory
+     * @param command        the command line
+     * @param lineConsumer   receives the lines of the solver by batches
+     * @return the supervised process, null if it cannot be started
+     */
+    public ProcessSupervisor startProcess(MainController mainController, File directory, List<String> command,
+                                          Consumer<List<ProcessSupervisor.Line>> lineConsumer) {
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            if (directory.exists() && directory.isDirectory()) {
-                processBuilder.directory(directory);
-            }
-            return processBuilder.start();
+            return ProcessSupervisor.builder(command)
+                    .directory(directory)
+                    .lines(lineConsumer)
+                    .start();
         } catch (Exception e) {
             mainController.displayMessageConsoleOutput(e.getMessage());
             return null;
@@ -0,0 +1,82 @@
+package com.softpath.riverpath.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue without lock between one producer thread and one consumer thread.
+ * <p>
+ * The elements are stored in an array used as a ring: the producer only writes the tail and the consumer only
+ * writes the head, each publishes its position with a release write read by the other with an acquire read.
+ * Several producers or several consumers must not use the same buffer.
+ * </p>
+ *
+ * @param <T> the type of the elements
+ */
+public final class RingBuffer<T> {
+
+    private final Object[] elements;
+    private final int mask;
+    // position of the next element to take, written by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // position of the next element to put, written by the producer
+    private final AtomicLong tail = new AtomicLong();
+    // last head read by the producer, the head is read again only when the buffer looks full
+    private long cachedHead;
+
+    /**
+     * @param capacity the maximum number of elements, rounded up to a power of 2
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        elements = new Object[size < capacity ? size << 1 : size];
+        mask = elements.length - 1;
+    }
+
+    /**
+     * Add an element if the buffer is not full, by the producer thread
+     *
+     * @param element the element
+     * @return false if the buffer is full
+     */
+    public boolean offer(T element) {
+        long position = tail.get();
+        if (position - cachedHead >= elements.length) {
+            cachedHead = head.getAcquire();
+            if (position - cachedHead >= elements.length) {
+                return false;
+            }
+        }
+        elements[(int) position & mask] = element;
+        tail.setRelease(position + 1);
+        return true;
+    }
+
+    /**
+     * Take the available elements, by the consumer thread
+     *
+     * @param consumer receives the elements in the order they were added
+     * @return the number of elements taken
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<T> consumer) {
+        long position = head.get();
+        long end = tail.getAcquire();
+        long taken = position;
+        try {
+            while (taken < end) {
+                int index = (int) taken++ & mask;
+                T element = (T) elements[index];
+                elements[index] = null;
+                consumer.accept(element);
+            }
+        } finally {
+            // an element is taken even if the consumer fails
+            head.setRelease(taken);
+        }
+        return (int) (taken - position);
+    }
+}
@@ -0,0 +1,352 @@
+package com.softpath.riverpath.util;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Output of a solver run written to a log file, and read back from the file.
+ * <p>
+ * The lines are appended by one thread (the reader of the solver output) into a {@link RingBuffer}, a writer thread
+ * encodes them in UTF-8 and writes them to the file in batches. The writer indexes the lines it writes: the
+ * offset of one line out of {@value #LINES_PER_CHECKPOINT} is kept, so the index of a log of 100 million lines
+ * takes 12 MB. A written line is read back through a memory mapping of the file from the previous checkpoint,
+ * a text is searched in parallel in mapped chunks of the file.
+ * </p>
+ * The lines can be read and searched by any thread while the log is written.
+ */
+public final class SolverLog implements AutoCloseable {
+
+    // lines waiting to be written, the producer waits when it is full
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    // size of the batches written to the file
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // pause of the writer when no line is waiting, and of the producer when the queue is full (ns)
+    private static final long WRITER_PAUSE_NANOS = 10_000_000;
+    private static final long PRODUCER_PAUSE_NANOS = 100_000;
+    // one line offset is kept every LINES_PER_CHECKPOINT lines
+    private static final int LINES_PER_CHECKPOINT = 64;
+    // bytes mapped to read lines, enlarged for longer lines
+    private static final int READ_WINDOW = 1 << 16;
+    // bytes searched by a task
+    private static final int SEARCH_CHUNK = 1 << 24;
+
+    @Getter
+    private final File file;
+    private final FileChannel channel;
+    private final RingBuffer<String> queue = new RingBuffer<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile boolean closing;
+    // written by the writer only, published by lineCount
+    private volatile long[] checkpoints = new long[1024];
+    // number of lines and bytes written to the file
+    private volatile int lineCount;
+    private volatile long length;
+    // lines in the write buffer not yet written, and the offset of the end of the buffer in the file
+    private int pendingLines;
+    private long pendingEnd;
+
+    private SolverLog(File file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.writer = new Thread(this::write, "solver-log-writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Create the log file (replaced if it exists) and start its writer
+     *
+     * @param file the log file
+     * @return the log
+     */
+    public static SolverLog create(File file) {
+        try {
+            SolverLog log = new SolverLog(file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            log.writer.start();
+            return log;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Append a line, by the single thread producing the lines, waits if the writer is late by
+     * {@value #QUEUE_CAPACITY} lines. The line is dropped if the writer has stopped on an error.
+     *
+     * @param line the line without its line separator
+     */
+    public void append(String line) {
+        while (!queue.offer(line)) {
+            if (!writer.isAlive()) {
+                return;
+            }
+            LockSupport.parkNanos(PRODUCER_PAUSE_NANOS);
+        }
+    }
+
+    /**
+     * @return the number of lines written to the file, the lines appended later are not readable yet
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the number of bytes written to the file
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Write the appended lines and stop the writer, the lines can still be read
+     */
+    public void finish() {
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Finish the writing and close the file
+     */
+    @Override
+    public void close() {
+        finish();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Read consecutive lines
+     *
+     * @param first the index of the first line
+     * @param count the maximum number of lines
+     * @return the lines, fewer than count at the end of the log
+     */
+    public List<String> readLines(int first, int count) {
+        int lines = lineCount;
+        long end = length;
+        long[] offsets = checkpoints;
+        count = Math.max(0, Math.min(count, lines - first));
+        List<String> result = new ArrayList<>(count);
+        if (count == 0) {
+            return result;
+        }
+        long start = offsets[first / LINES_PER_CHECKPOINT];
+        int skipped = first % LINES_PER_CHECKPOINT;
+        for (long window = READ_WINDOW; result.size() < count; window *= 2) {
+            result.clear();
+            ByteBuffer buffer = map(start, Math.min(end - start, window));
+            int lineStart = 0;
+            int line = 0;
+            for (int i = 0; i < buffer.limit() && result.size() < count; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (line >= skipped) {
+                        result.add(decode(buffer, lineStart, i));
+                    }
+                    line++;
+                    lineStart = i + 1;
+                }
+            }
+            if (buffer.limit() == end - start) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Search a text from a line to the end of the log
+     *
+     * @param text  the text
+     * @param first the index of the first line searched
+     * @return the index of the first line containing the text, -1 if not found
+     */
+    public int find(String text, int first) {
+        byte[] pattern = text.getBytes(StandardCharsets.UTF_8);
+        int lines = lineCount;
+        long end = length;
+        if (pattern.length == 0 || first >= lines) {
+            return -1;
+        }
+        long start = lineOffset(first, lines, end);
+        int numberOfChunks = (int) ((end - start + SEARCH_CHUNK - 1) / SEARCH_CHUNK);
+        // the chunks by batches, in parallel in a batch, the first batch with a match ends the search
+        int batchSize = 4 * ForkJoinPool.getCommonPoolParallelism();
+        for (int batch = 0; batch < numberOfChunks; batch += batchSize) {
+            long found = IntStream.range(batch, Math.min(numberOfChunks, batch + batchSize)).parallel()
+                    .mapToLong(chunk -> {
+                        long chunkStart = start + (long) chunk * SEARCH_CHUNK;
+                        // the chunk overlaps the next one to find a text across the limit
+                        long chunkLength = Math.min(end - chunkStart, SEARCH_CHUNK + pattern.length - 1);
+                        int position = indexOf(map(chunkStart, chunkLength), pattern);
+                        return position < 0 ? Long.MAX_VALUE : chunkStart + position;
+                    })
+                    .min()
+                    .orElse(Long.MAX_VALUE);
+            if (found != Long.MAX_VALUE) {
+                return lineAt(found, lines);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset of the start of a written line, from the previous checkpoint to the next one
+     */
+    private long lineOffset(int line, int lines, long end) {
+        long[] offsets = checkpoints;
+        int checkpoint = line / LINES_PER_CHECKPOINT;
+        long start = offsets[checkpoint];
+        int skipped = line % LINES_PER_CHECKPOINT;
+        if (skipped == 0) {
+            return start;
+        }
+        long next = (checkpoint + 1) * LINES_PER_CHECKPOINT < lines ? offsets[checkpoint + 1] : end;
+        ByteBuffer buffer = map(start, next - start);
+        for (int i = 0; ; i++) {
+            if (buffer.get(i) == '\n' && --skipped == 0) {
+                return start + i + 1;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the line containing an offset
+     */
+    private int lineAt(long offset, int lines) {
+        long[] offsets = checkpoints;
+        int numberOfCheckpoints = (lines + LINES_PER_CHECKPOINT - 1) / LINES_PER_CHECKPOINT;
+        int checkpoint = Arrays.binarySearch(offsets, 0, numberOfCheckpoints, offset);
+        if (checkpoint < 0) {
+            checkpoint = -checkpoint - 2;
+        }
+        long start = offsets[checkpoint];
+        ByteBuffer buffer = map(start, offset - start);
+        int line = checkpoint * LINES_PER_CHECKPOINT;
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+        byte firstByte = pattern[0];
+        int last = buffer.limit() - pattern.length;
+        for (int i = 0; i <= last; i++) {
+            if (buffer.get(i) == firstByte) {
+                int j = 1;
+                while (j < pattern.length && buffer.get(i + j) == pattern[j]) {
+                    j++;
+                }
+                if (j == pattern.length) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private MappedByteBuffer map(long position, long size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        // the line separator of the solver may be \r\n
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loop of the writer thread: write the waiting lines by batches, then publish them
+     */
+    private void write() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        while (true) {
+            // read before draining: the lines appended before the end are written
+            boolean last = closing;
+            if (queue.drain(line -> encode(line, buffer)) == 0 && !last) {
+                LockSupport.parkNanos(WRITER_PAUSE_NANOS);
+            }
+            flush(buffer);
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void encode(String line, ByteBuffer buffer) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            flush(buffer);
+        }
+        if (bytes.length > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes));
+        } else {
+            buffer.put(bytes);
+        }
+        int lineIndex = lineCount + pendingLines;
+        if (lineIndex % LINES_PER_CHECKPOINT == 0) {
+            int checkpoint = lineIndex / LINES_PER_CHECKPOINT;
+            if (checkpoint == checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, 2 * checkpoint);
+            }
+            checkpoints[checkpoint] = pendingEnd;
+        }
+        pendingLines++;
+        pendingEnd += bytes.length;
+    }
+
+    /**
+     * Write the buffer and publish its lines to the readers
+     */
+    private void flush(ByteBuffer buffer) {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+        length = pendingEnd;
+        lineCount += pendingLines;
+        pendingLines = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
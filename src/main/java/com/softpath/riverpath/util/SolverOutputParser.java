@@ -0,0 +1,175 @@
+package com.softpath.riverpath.util;
+
+import lombok.Getter;
+
+/**
+ * Classifier of the lines of the cimlib output.
+ * <p>
+ * A line is read once, character by character: a keyword is compared only where its first letter is found, and
+ * the value is parsed in place. Only the time and residual lines allocate (the text of the value, the name of the
+ * residual). The parser keeps the values of the last line, it is used by the single thread reading the output.
+ * </p>
+ * Recognized lines:
+ * <ul>
+ * <li>{@link LineType#INCREMENT}: {@code Increment de CompteurTemps : 12}</li>
+ * <li>{@link LineType#TIME}: {@code Temps = 0.25} (or {@code Temps : 0.25})</li>
+ * <li>{@link LineType#RESIDUAL}: {@code Erreur = 1.5e-4} or {@code Erreur relative : 1.5e-4}, the name is the
+ * keyword and at most one qualifier, so a message such as {@code Erreur de lecture : 3} is not a residual</li>
+ * <li>{@link LineType#WARNING}: a line containing warning or attention (any case)</li>
+ * </ul>
+ */
+@Getter
+public final class SolverOutputParser {
+
+    private static final String INCREMENT = "Increment de CompteurTemps";
+    private static final String TIME = "Temps";
+    private static final String RESIDUAL = "Erreur";
+    private static final String WARNING = "warning";
+    private static final String ATTENTION = "attention";
+
+    public enum LineType {
+        INCREMENT,
+        TIME,
+        RESIDUAL,
+        WARNING,
+        OTHER
+    }
+
+    // values of the last line: the increment, the time or the residual, and the name of the residual
+    private int increment;
+    private double value;
+    private String residualName;
+
+    /**
+     * Classify a line and keep its value
+     *
+     * @param line a line of the output
+     * @return the type of the line
+     */
+    public LineType parse(String line) {
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            switch (line.charAt(i)) {
+                case 'I' -> {
+                    if (line.startsWith(INCREMENT, i)) {
+                        int start = numberStart(line, i + INCREMENT.length());
+                        if (start >= 0 && parseInteger(line, start)) {
+                            return LineType.INCREMENT;
+                        }
+                    }
+                }
+                case 'T' -> {
+                    if (isWord(line, i, TIME)) {
+                        int start = numberStart(line, i + TIME.length());
+                        if (start >= 0 && parseDouble(line, start)) {
+                            return LineType.TIME;
+                        }
+                    }
+                }
+                case 'E' -> {
+                    if (line.startsWith(RESIDUAL, i) && (i == 0 || !Character.isLetter(line.charAt(i - 1)))) {
+                        int nameEnd = i + RESIDUAL.length();
+                        while (nameEnd < length && Character.isLetterOrDigit(line.charAt(nameEnd))) {
+                            nameEnd++;
+                        }
+                        int start = numberStart(line, nameEnd);
+                        if (start < 0) {
+                            // one qualifier before the separator: Erreur relative = 1e-3
+                            nameEnd = wordEnd(line, nameEnd);
+                            start = nameEnd < 0 ? -1 : numberStart(line, nameEnd);
+                        }
+                        if (start >= 0 && parseDouble(line, start)) {
+                            residualName = line.substring(i, nameEnd).trim();
+                            return LineType.RESIDUAL;
+                        }
+                    }
+                }
+                case 'W', 'w' -> {
+                    if (line.regionMatches(true, i, WARNING, 0, WARNING.length())) {
+                        return LineType.WARNING;
+                    }
+                }
+                case 'A', 'a' -> {
+                    if (line.regionMatches(true, i, ATTENTION, 0, ATTENTION.length())) {
+                        return LineType.WARNING;
+                    }
+                }
+                default -> {
+                    // not the first letter of a keyword
+                }
+            }
+        }
+        return LineType.OTHER;
+    }
+
+    /**
+     * @return true if a keyword is at a position and is not a part of a longer word
+     */
+    private static boolean isWord(String line, int position, String keyword) {
+        int end = position + keyword.length();
+        return line.startsWith(keyword, position)
+                && (position == 0 || !Character.isLetter(line.charAt(position - 1)))
+                && (end == line.length() || !Character.isLetterOrDigit(line.charAt(end)));
+    }
+
+    /**
+     * @return the start of the number after a keyword and a separator (blanks, = or :), -1 if none
+     */
+    private static int numberStart(String line, int position) {
+        while (position < line.length() && " \t=:".indexOf(line.charAt(position)) >= 0) {
+            position++;
+        }
+        if (position == line.length()) {
+            return -1;
+        }
+        char c = line.charAt(position);
+        boolean sign = c == '-' || c == '+' || c == '.';
+        if (Character.isDigit(c) || sign && position + 1 < line.length()
+                && Character.isDigit(line.charAt(position + 1))) {
+            return position;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the end of the word after the blanks from a position, -1 if none
+     */
+    private static int wordEnd(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        if (position == line.length() || !Character.isLetter(line.charAt(position))) {
+            return -1;
+        }
+        while (position < line.length() && Character.isLetterOrDigit(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean parseInteger(String line, int start) {
+        int result = 0;
+        int i = start;
+        while (i < line.length() && Character.isDigit(line.charAt(i))) {
+            result = 10 * result + line.charAt(i++) - '0';
+        }
+        if (i == start) {
+            return false;
+        }
+        increment = result;
+        return true;
+    }
+
+    private boolean parseDouble(String line, int start) {
+        int end = start + 1;
+        while (end < line.length() && "0123456789.eE+-".indexOf(line.charAt(end)) >= 0) {
+            end++;
+        }
+        try {
+            value = Double.parseDouble(line.substring(start, end));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -2,6 +2,10 @@ package com.softpath.riverpath.util;
 
 import com.softpath.riverpath.custom.event.CustomEvent;
 import com.softpath.riverpath.custom.event.EventManager;
+import com.softpath.riverpath.fileparser.CFDTriangleMesh;
+import com.softpath.riverpath.fileparser.GmshFileParser;
+import com.softpath.riverpath.fileparser.StlFileParser;
+import com.softpath.riverpath.service.ProcessSupervisor;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Hyperlink;
@@ -16,14 +20,13 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
@@ -279,6 +282,42 @@ public class UtilityClass {
         return new File(homeDirectory, ".riverpath");
     }
 
+    /**
+     * Convert mesh file to .t file.
+     * ASCII gmsh files (format 2 and 4) and STL files are converted in Java by {@link GmshFileParser} and
+     * {@link StlFileParser}, the other files (binary msh) are converted by the embedded python program gmsh4mtc.py
+     *
+     * @param selectedFile the selected mesh file
+     * @return the .t file
+     */
+    public static String convertMesh(File selectedFile) {
+        boolean isStl = StlFileParser.isSupported(selectedFile);
+        if (!isStl && !GmshFileParser.isSupported(selectedFile)) {
+            return convertMshPython(selectedFile);
+        }
+        EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "Conversion mesh: " + selectedFile.getName()));
+        String fileExtentionT = buildTExtentionName(selectedFile);
+        File outputFile = new File(workspaceDirectory, fileExtentionT);
+        CFDTriangleMesh mesh = isStl
+                ? StlFileParser.convertFile2T(selectedFile, outputFile)
+                : GmshFileParser.convertFile2T(selectedFile, outputFile);
+        if (isStl) {
+            int openEdges = mesh.countOpenEdges();
+            if (openEdges > 0) {
+                EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE,
+                        "WARNING: " + selectedFile.getName() + " is not watertight (" + openEdges + " open or non-manifold edges)"));
+            }
+        }
+        if (mesh.is3D()) {
+            EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "Nb elements 2d : " + mesh.getTriangleCount()));
+            EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "Nb elements 3d : " + mesh.getTetrahedronCount()));
+        } else {
+            EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "Nb elements 1d : " + mesh.getBorderLineCount()));
+            EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "Nb elements 2d : " + mesh.getTriangleCount()));
+        }
+        return fileExtentionT;
+    }
+
     /**
      * Convert msh file to .t file using embedded python program gmsh4mtc.py
      *
@@ -324,53 +363,41 @@ public class UtilityClass {
      * @return Exit code.
      */
     public static int runCommand(File directory, List<String> command, boolean silent) {
-        int exitCode = -1;
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            if (directory.exists() && directory.isDirectory()) {
-                processBuilder.directory(directory);
-            }
-
-            // Environment optimizations
-            processBuilder.environment().remove("PYTHONPATH");
-            processBuilder.environment().remove("PYTHONHOME");
-            // Remove NumPy warnings at source
-            processBuilder.environment().put("PYTHONWARNINGS", "ignore::DeprecationWarning");
-            // Optimizing Python performancew
-            processBuilder.environment().put("PYTHONUNBUFFERED", "1");
-
-            Process process = processBuilder.start();
-
-            // Read stdout in an optimized way
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!silent) {
-                        EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, line));
-                    }
-                }
-            }
-
-            // Read stderr with smart filtering of warnings
-            try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    if (!silent && shouldDisplayError(line)) {
-                        EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "ERROR: " + line));
-                    }
-                }
-            }
-
-            exitCode = process.waitFor();
-            process.destroy();
-
+            // both streams are read while the process runs, in UTF-8 as requested from Python
+            ProcessSupervisor process = ProcessSupervisor.builder(command)
+                    .directory(directory)
+                    // Environment optimizations
+                    .environment("PYTHONPATH", null)
+                    .environment("PYTHONHOME", null)
+                    // Remove NumPy warnings at source
+                    .environment("PYTHONWARNINGS", "ignore::DeprecationWarning")
+                    // Optimizing Python performance
+                    .environment("PYTHONUNBUFFERED", "1")
+                    .environment("PYTHONIOENCODING", "utf-8")
+                    .charset(StandardCharsets.UTF_8)
+                    .lines(silent ? null : UtilityClass::displayProcessLines)
+                    .start();
+            return process.waitFor();
         } catch (Exception e) {
             if (!silent) {
                 EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "Runtime error: " + e.getMessage()));
             }
             throw new RuntimeException(e);
         }
-        return exitCode;
+    }
+
+    /**
+     * Display the lines of a process, with smart filtering of the warnings of the error stream
+     */
+    private static void displayProcessLines(List<ProcessSupervisor.Line> lines) {
+        for (ProcessSupervisor.Line line : lines) {
+            if (line.stream() == ProcessSupervisor.Stream.OUTPUT) {
+                EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, line.text()));
+            } else if (shouldDisplayError(line.text())) {
+                EventManager.fireCustomEvent(new CustomEvent(CONVERT_PYTHON_PROCESS_MESSAGE, "ERROR: " + line.text()));
+            }
+        }
     }
 
     /**
@@ -388,7 +415,7 @@ public class UtilityClass {
     }
 
     public static String buildTExtentionName(File selectedFile) {
-        if (FilenameUtils.isExtension(selectedFile.getName(), "msh")) {
+        if (FilenameUtils.isExtension(selectedFile.getName().toLowerCase(), new String[]{"msh", "stl"})) {
             return FilenameUtils.removeExtension(selectedFile.getName()) + ".t";
         } else {
             return selectedFile.getName();